@@ -1,17 +1,46 @@
 package com.mockanytime.assessmentservice.controller;
 
+import com.mockanytime.assessmentservice.dto.GenerateTestRequest;
+import com.mockanytime.assessmentservice.dto.TestCardDto;
+import com.mockanytime.assessmentservice.model.ImportJob;
 import com.mockanytime.assessmentservice.model.Question;
 import com.mockanytime.assessmentservice.model.Test;
 import com.mockanytime.assessmentservice.service.DocumentParsingService;
+import com.mockanytime.assessmentservice.service.ImageMigrationJob;
+import com.mockanytime.assessmentservice.service.ImageStore;
+import com.mockanytime.assessmentservice.service.ImportJobService;
+import com.mockanytime.assessmentservice.service.PaperShuffle;
+import com.mockanytime.assessmentservice.service.QuestionBankMigrationJob;
+import com.mockanytime.assessmentservice.service.QuestionBankService;
 import com.mockanytime.assessmentservice.service.QuestionExtractionService;
+import com.mockanytime.assessmentservice.service.TakeTestPayloadCache;
+import com.mockanytime.assessmentservice.service.TestCatalogService;
 import com.mockanytime.assessmentservice.service.TestService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/tests")
@@ -19,8 +48,15 @@ import java.util.Optional;
 public class TestController {
 
     private final TestService testService;
+    private final TestCatalogService testCatalogService;
+    private final TakeTestPayloadCache takeTestPayloadCache;
+    private final ImageStore imageStore;
+    private final ImageMigrationJob imageMigrationJob;
     private final DocumentParsingService documentParsingService;
     private final QuestionExtractionService questionExtractionService;
+    private final ImportJobService importJobService;
+    private final QuestionBankService questionBankService;
+    private final QuestionBankMigrationJob questionBankMigrationJob;
 
     @PostMapping("/")
     public ResponseEntity<Test> createTest(@RequestBody Test test,
@@ -33,19 +69,49 @@ public class TestController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Test> updateTest(@PathVariable String id, @RequestBody Test test) {
-        return ResponseEntity.ok(testService.updateTest(id, test));
+    public ResponseEntity<?> updateTest(@PathVariable String id, @RequestBody Test test) {
+        try {
+            return ResponseEntity.ok(testService.updateTest(id, test));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(409).body(Map.of("message",
+                    "This test was changed by someone else. Reload it and apply your edits again."));
+        }
     }
 
     @GetMapping("/")
-    public List<Test> getAllTests() {
-        return testService.getAllTests();
+    public ResponseEntity<List<TestCardDto>> getAllTests(
+            @RequestParam(required = false) String topicId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        return catalogResponse(topicId, category, page, size, request);
     }
 
     @GetMapping("/available/all")
-    public List<Test> getAvailableTests() {
+    public ResponseEntity<List<TestCardDto>> getAvailableTests(
+            @RequestParam(required = false) String topicId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
         // Filter logic could be added here (e.g. only active tests)
-        return testService.getAllTests();
+        return catalogResponse(topicId, category, page, size, request);
+    }
+
+    // Cards only; clients revalidate with If-None-Match and get 304 while nothing changed
+    private ResponseEntity<List<TestCardDto>> catalogResponse(String topicId, String category, Integer page,
+            Integer size, WebRequest request) {
+        TestCatalogService.Page catalogPage = testCatalogService.getPage(topicId, category, page,
+                size != null ? Math.min(size, 200) : null);
+        if (request.checkNotModified(catalogPage.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(catalogPage.etag())
+                .cacheControl(CacheControl.noCache())
+                .header("X-Total-Count", String.valueOf(catalogPage.total()))
+                .body(catalogPage.cards());
     }
 
     @GetMapping("/my-tests")
@@ -60,30 +126,260 @@ public class TestController {
         return testService.getTestById(id).orElse(null); // Assuming getTestById returns Optional<Test>
     }
 
+    // Used when grading a paper that was served before the test's latest edit
+    @GetMapping("/{id}/versions/{version}")
+    public ResponseEntity<Test> getTestVersion(@PathVariable String id, @PathVariable long version) {
+        return testService.getTestVersion(id, version)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTest(@PathVariable String id) {
         testService.deleteTest(id);
         return ResponseEntity.ok().build();
     }
 
+    // Pre-rendered bytes, gzipped unless the client can't take them
     @GetMapping("/{id}/take")
-    public ResponseEntity<Test> takeTest(@PathVariable String id) {
-        Optional<Test> testOpt = testService.getTestById(id);
-        if (testOpt.isPresent()) {
-            Test test = testOpt.get();
-            // Sanitize answers
-            test.getQuestions().forEach(q -> q.setCorrectAnswer(null));
-            return ResponseEntity.ok(test);
+    public void takeTest(@PathVariable String id, @RequestParam(required = false) Long attempt,
+            @RequestHeader(value = "X-User-Id", required = false) String userId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        TakeTestPayloadCache.Payload payload = takeTestPayloadCache.get(id);
+        if (payload == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Shuffled papers are derived per student from the seed; "guest" matches the scoring service
+        boolean shuffled = payload.paper() != null;
+        long seed = shuffled
+                ? PaperShuffle.seed(id, userId != null ? userId : "guest", attempt != null ? attempt : 0)
+                : 0;
+        String etag = shuffled
+                ? payload.etag().substring(0, payload.etag().length() - 1) + "-" + Long.toHexString(seed) + "\""
+                : payload.etag();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, shuffled ? "private, no-cache" : "no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        if (shuffled) {
+            byte[] json = takeTestPayloadCache.shuffled(payload, seed);
+            if (gzip) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                try (OutputStream out = new GZIPOutputStream(response.getOutputStream())) {
+                    out.write(json);
+                }
+            } else {
+                response.setContentLength(json.length);
+                response.getOutputStream().write(json);
+            }
+        } else if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLength(payload.gzipped().length);
+            response.getOutputStream().write(payload.gzipped());
+        } else {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload.gzipped()))) {
+                in.transferTo(response.getOutputStream());
+            }
+        }
+    }
+
+    // Content-addressed, so the bytes behind a hash never change and can be cached for good.
+    // A Resource body lets Spring answer Range requests with 206.
+    @GetMapping("/images/{hash}")
+    public ResponseEntity<Resource> getImage(@PathVariable String hash) {
+        return imageStore.find(hash)
+                .map(image -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(image.contentType()))
+                        .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                        .eTag("\"" + hash + "\"")
+                        .header("X-Content-Type-Options", "nosniff")
+                        .header("Content-Security-Policy", "default-src 'none'; sandbox")
+                        .body(image.resource()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/admin/image-migration")
+    public ResponseEntity<Map<String, Object>> startImageMigration() {
+        if (!imageMigrationJob.start()) {
+            return ResponseEntity.status(409).body(imageMigrationJob.status());
+        }
+        return ResponseEntity.accepted().body(imageMigrationJob.status());
+    }
+
+    @GetMapping("/admin/image-migration")
+    public ResponseEntity<Map<String, Object>> getImageMigrationStatus() {
+        return ResponseEntity.ok(imageMigrationJob.status());
+    }
+
+    @PostMapping("/admin/question-bank-migration")
+    public ResponseEntity<Map<String, Object>> startQuestionBankMigration() {
+        if (!questionBankMigrationJob.start()) {
+            return ResponseEntity.status(409).body(questionBankMigrationJob.status());
+        }
+        return ResponseEntity.accepted().body(questionBankMigrationJob.status());
+    }
+
+    @GetMapping("/admin/question-bank-migration")
+    public ResponseEntity<Map<String, Object>> getQuestionBankMigrationStatus() {
+        return ResponseEntity.ok(questionBankMigrationJob.status());
+    }
+
+    @GetMapping("/question-bank")
+    public ResponseEntity<List<Question>> getBankQuestions(
+            @RequestParam(value = "topicId", required = false) String topicId,
+            @RequestParam(value = "subtopicId", required = false) String subtopicId,
+            @RequestParam(value = "difficulty", required = false) String difficulty,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        QuestionBankService.Page result = questionBankService.getPage(topicId, subtopicId, difficulty, page,
+                Math.min(Math.max(size, 1), 500));
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(result.total()))
+                .body(result.questions());
+    }
+
+    @GetMapping("/question-bank/sample")
+    public List<Question> sampleBankQuestions(
+            @RequestParam(value = "topicId", required = false) String topicId,
+            @RequestParam(value = "subtopicId", required = false) String subtopicId,
+            @RequestParam(value = "difficulty", required = false) String difficulty,
+            @RequestParam(value = "count", defaultValue = "50") int count) {
+        return questionBankService.sample(topicId, subtopicId, difficulty, Math.min(Math.max(count, 1), 500));
+    }
+
+    @GetMapping("/question-bank/{questionId}")
+    public ResponseEntity<Question> getBankQuestion(@PathVariable String questionId) {
+        return questionBankService.getQuestion(questionId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /** Creates a paper from random bank questions matching the request's filters. */
+    @PostMapping("/generate")
+    public ResponseEntity<?> generateTest(@RequestBody GenerateTestRequest request,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        try {
+            return ResponseEntity.ok(testService.generateTest(request, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         }
-        return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Extracts the document's questions in the request. If parts of it could not
+     * be read the questions found are still returned, with X-Failed-Chunks and
+     * X-Extraction-Warning saying how much is missing.
+     */
     @PostMapping("/extract-questions")
-    public List<Question> extractQuestions(
+    public ResponseEntity<List<Question>> extractQuestions(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "topicId", required = false) String topicId,
             @RequestParam(value = "subtopicId", required = false) String subtopicId) throws Exception {
         String text = documentParsingService.extractText(file);
-        return questionExtractionService.extractQuestions(text, topicId, subtopicId);
+        QuestionExtractionService.Extraction extraction = questionExtractionService.extractQuestions(text, topicId,
+                subtopicId);
+        if (extraction.complete()) {
+            return ResponseEntity.ok(extraction.questions());
+        }
+        return ResponseEntity.ok()
+                .header("X-Failed-Chunks", String.valueOf(extraction.failedChunks()))
+                .header("X-Extraction-Warning", extraction.failureMessage())
+                .body(extraction.questions());
+    }
+
+    /**
+     * Queues the document for import and returns at once; poll the job for
+     * progress. Refused with 503 while this instance has too many imports.
+     */
+    @PostMapping("/import-jobs")
+    public ResponseEntity<ImportJob> submitImportJob(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "topicId", required = false) String topicId,
+            @RequestParam(value = "subtopicId", required = false) String subtopicId,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) throws IOException {
+        ImportJob job = importJobService.submit(file, topicId, subtopicId, userId);
+        if (job == null) {
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+        return ResponseEntity.accepted().body(job);
+    }
+
+    /** Status of an import; questions are returned from index {@code from}, so polls fetch only new ones. */
+    @GetMapping("/import-jobs/{id}")
+    public ResponseEntity<ImportJob> getImportJob(@PathVariable String id,
+            @RequestParam(value = "from", defaultValue = "0") int from,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        ImportJob job = importJobService.get(id, from);
+        if (job == null || (job.getCreatedBy() != null && userId != null && !job.getCreatedBy().equals(userId))) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * An import's questions as an SSE stream: a "questions" event per batch
+     * as the job saves them, from index {@code from} on, then "done" with the
+     * count and any failed chunks, or "error" if the job failed. Reconnect
+     * with {@code from} set to the questions received to resume a dropped stream.
+     */
+    @GetMapping(value = "/import-jobs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamImportJob(@PathVariable String id,
+            @RequestParam(value = "from", defaultValue = "0") int from,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        ImportJob owned = importJobService.get(id, Integer.MAX_VALUE);
+        if (owned == null || (owned.getCreatedBy() != null && userId != null
+                && !owned.getCreatedBy().equals(userId))) {
+            return ResponseEntity.notFound().build();
+        }
+
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(30));
+        AtomicInteger received = new AtomicInteger(Math.max(from, 0));
+        Runnable stop = importJobService.follow(id, from, job -> {
+            try {
+                if (job == null) {
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(Map.of("message", "Import job not found"), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                    return false;
+                }
+                if (job.getQuestions() != null && !job.getQuestions().isEmpty()) {
+                    emitter.send(SseEmitter.event().name("questions")
+                            .data(job.getQuestions(), MediaType.APPLICATION_JSON));
+                    received.addAndGet(job.getQuestions().size());
+                }
+                if (job.isFinished() && received.get() >= job.getQuestionCount()) {
+                    if (ImportJob.FAILED.equals(job.getStatus())) {
+                        emitter.send(SseEmitter.event().name("error")
+                                .data(Map.of("message", String.valueOf(job.getError())), MediaType.APPLICATION_JSON));
+                    } else {
+                        Map<String, Object> done = new HashMap<>();
+                        done.put("count", job.getQuestionCount());
+                        done.put("failedChunks", job.getFailedChunks());
+                        done.put("warning", job.getError());
+                        emitter.send(SseEmitter.event().name("done").data(done, MediaType.APPLICATION_JSON));
+                    }
+                    emitter.complete();
+                }
+                return true;
+            } catch (Exception e) {
+                // Client already gone
+                emitter.complete();
+                return false;
+            }
+        });
+        emitter.onCompletion(stop);
+        emitter.onTimeout(stop);
+        emitter.onError(e -> stop.run());
+        return ResponseEntity.ok(emitter);
     }
 }
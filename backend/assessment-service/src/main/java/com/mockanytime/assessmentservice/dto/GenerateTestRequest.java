@@ -0,0 +1,13 @@
+package com.mockanytime.assessmentservice.dto;
+
+/** A paper to assemble from random bank questions; null filters match anything. */
+public record GenerateTestRequest(
+        String title,
+        String description,
+        String category,
+        String topicId,
+        String subtopicId,
+        String difficulty,
+        int questionCount,
+        int durationMinutes) {
+}
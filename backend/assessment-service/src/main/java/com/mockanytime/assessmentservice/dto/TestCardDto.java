@@ -0,0 +1,23 @@
+package com.mockanytime.assessmentservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Date;
+import java.util.List;
+
+// What the catalogue shows for a test; questions are only sent by /tests/{id}/take
+public record TestCardDto(
+        String id,
+        String title,
+        String description,
+        String category,
+        String difficulty,
+        int durationMinutes,
+        @JsonProperty("isPremium") boolean isPremium,
+        double price,
+        int questionCount,
+        String topicId,
+        String subtopicId,
+        List<String> tags,
+        Date createdAt) {
+}
@@ -0,0 +1,49 @@
+package com.mockanytime.assessmentservice.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// A question in the bank, shared by ID with the tests that contain it. Tests keep
+// their own embedded copy for taking and grading; this collection is what papers
+// are assembled from, so it is indexed for lookup by topic, subtopic and difficulty.
+@Data
+@NoArgsConstructor
+@Document(collection = "questions")
+@CompoundIndex(name = "topic_subtopic_difficulty", def = "{'topicId': 1, 'subtopicId': 1, 'difficulty': 1}")
+public class BankQuestion {
+    @Id
+    private String id; // Same as Question.id in the tests that use it
+    private String text;
+    private String type;
+    private List<String> options;
+    private String correctAnswer;
+    private String explanation;
+    private int points;
+    private String topicId;
+    private String subtopicId;
+    private String difficulty; // Taken from the first test it was saved in
+    private String imageUrl;
+    private String imageHash;
+    private String createdBy;
+    @Indexed
+    private List<String> testIds = new ArrayList<>();
+    private Date updatedAt;
+
+    public Question toQuestion() {
+        Question q = new Question(text, type, options, correctAnswer, explanation, points);
+        q.setId(id);
+        q.setTopicId(topicId);
+        q.setSubtopicId(subtopicId);
+        q.setImageUrl(imageUrl);
+        q.setImageHash(imageHash);
+        return q;
+    }
+}
@@ -0,0 +1,46 @@
+package com.mockanytime.assessmentservice.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// One uploaded document being turned into questions in the background.
+// Questions are appended as each chunk is extracted; expires a week after it finishes.
+@Data
+@NoArgsConstructor
+@Document(collection = "import_jobs")
+public class ImportJob {
+    public static final String QUEUED = "QUEUED";
+    public static final String PARSING = "PARSING";
+    public static final String EXTRACTING = "EXTRACTING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+    private String createdBy;
+    private String fileName;
+    private String topicId;
+    private String subtopicId;
+    private String status; // QUEUED, PARSING, EXTRACTING, COMPLETED, FAILED
+    private String node; // Instance running the job
+    private int textLength;
+    private int questionCount;
+    private List<Question> questions = new ArrayList<>();
+    private int failedChunks; // Parts of a COMPLETED job the model could not read; see error
+    private String error;
+    private Date createdAt;
+    private Date updatedAt; // Refreshed while the job is alive, so jobs of a dead instance can be detected
+    @Indexed(expireAfterSeconds = 604800)
+    private Date finishedAt;
+
+    public boolean isFinished() {
+        return COMPLETED.equals(status) || FAILED.equals(status);
+    }
+}
@@ -1,5 +1,7 @@
 package com.mockanytime.assessmentservice.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 import java.util.UUID;
 
@@ -13,7 +15,17 @@ public class Question {
     private int points;
     private String topicId;
     private String subtopicId;
-    private String imageUrl; // Base64 encoded image string for diagrams
+    private String imageUrl; // External URL, or a base64 data URL until moved to the image store
+    private String imageHash; // Image store key; served from /tests/images/{hash}
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private DuplicateOf duplicateOf; // Import-time hint only; cleared when a test is saved
+
+    /**
+     * An existing question in the bank that an imported one closely resembles,
+     * or, with no test, an earlier question of the same import.
+     */
+    public record DuplicateOf(String testId, String testTitle, String questionId, double similarity) {
+    }
 
     public Question() {
         this.id = UUID.randomUUID().toString();
@@ -109,4 +121,20 @@ public class Question {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
+    public DuplicateOf getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(DuplicateOf duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
 }
@@ -31,6 +31,9 @@ public class Test {
     private int totalAttempts = 0;
     private String topicId;
     private String subtopicId;
+    private long version; // Bumped on every edit so caches of the answer key can be invalidated
+    private boolean shuffleQuestions; // Each student gets their own order, see PaperShuffle
+    private boolean shuffleOptions;
 
     public Test() {
     }
@@ -187,6 +190,30 @@ public class Test {
         this.subtopicId = subtopicId;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isShuffleQuestions() {
+        return shuffleQuestions;
+    }
+
+    public void setShuffleQuestions(boolean shuffleQuestions) {
+        this.shuffleQuestions = shuffleQuestions;
+    }
+
+    public boolean isShuffleOptions() {
+        return shuffleOptions;
+    }
+
+    public void setShuffleOptions(boolean shuffleOptions) {
+        this.shuffleOptions = shuffleOptions;
+    }
+
     public void incrementAttempts() {
         this.totalAttempts++;
     }
@@ -0,0 +1,33 @@
+package com.mockanytime.assessmentservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Published whenever a test is created, edited or removed. Persisted so other
+// services (scoring) can poll it to invalidate their copies; expires after a day.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "test_change_events")
+public class TestChangeEvent {
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+
+    @Id
+    private String id;
+    // Allocated from a shared counter; other services page by it instead of by clock
+    @Indexed
+    private long seq;
+    private String testId;
+    private long version;
+    private String type; // CREATED, UPDATED, DELETED
+    @Indexed(expireAfterSeconds = 86400)
+    private Date createdAt;
+}
@@ -0,0 +1,30 @@
+package com.mockanytime.assessmentservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// A test as it was before an edit replaced it, so papers served before the edit
+// can still be graded against the questions they showed; expires after a week.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "test_versions")
+public class TestVersion {
+    @Id
+    private String id; // testId:version
+    private String testId;
+    private long version;
+    private Test test;
+    @Indexed(expireAfterSeconds = 604800)
+    private Date archivedAt;
+
+    public static String idFor(String testId, long version) {
+        return testId + ":" + version;
+    }
+}
@@ -0,0 +1,7 @@
+package com.mockanytime.assessmentservice.repository;
+
+import com.mockanytime.assessmentservice.model.BankQuestion;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface QuestionRepository extends MongoRepository<BankQuestion, String> {
+}
@@ -1,32 +1,89 @@
 package com.mockanytime.assessmentservice.service;
 
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
+import lombok.RequiredArgsConstructor;
 import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFPictureData;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 @Service
+@RequiredArgsConstructor
 public class DocumentParsingService {
 
+    private static final String CACHE_NAMESPACE = "document";
+    // Bump when parsing changes so text extracted by the old code is not reused
+    private static final String EXTRACTION_VERSION = "1";
+
+    private final PdfTextExtractor pdfTextExtractor;
+    private final OcrEnginePool ocrEnginePool;
+    private final ExtractionCache extractionCache;
+
+    // complete is false if some embedded image could not be OCRed
+    private record Parsed(String text, boolean complete) {
+    }
+
     public String extractText(MultipartFile file) throws IOException {
         String filename = file.getOriginalFilename();
         if (filename == null)
             return "";
 
+        Path spooled = Files.createTempFile("upload_", ".tmp");
+        try {
+            file.transferTo(spooled);
+            return extractText(spooled, filename);
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    /** Extracts text from an upload already on disk; {@code filename} gives the type. */
+    public String extractText(Path file, String filename) throws IOException {
+        // Images are cached by the OCR pool and plain text needs no parsing
+        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase();
+        if (!extension.equals("pdf") && !extension.equals("docx")) {
+            return parse(file, filename).text();
+        }
+
+        // Same bytes and same parser give the same text, so a re-upload is served from disk
+        String key;
+        try (InputStream in = Files.newInputStream(file)) {
+            key = ExtractionCache.sha256(new SequenceInputStream(
+                    new ByteArrayInputStream((EXTRACTION_VERSION + ":" + extension + ":").getBytes()), in));
+        }
+        Optional<String> cached = extractionCache.get(CACHE_NAMESPACE, key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        Parsed parsed = parse(file, filename);
+        // Word text whose picture OCR failed is missing content, so it is not kept
+        if (parsed.complete()) {
+            extractionCache.put(CACHE_NAMESPACE, key, parsed.text());
+        }
+        return parsed.text();
+    }
+
+    private Parsed parse(Path file, String filename) throws IOException {
         if (filename.toLowerCase().endsWith(".pdf")) {
-            return extractFromPdf(file);
+            return new Parsed(pdfTextExtractor.extract(file), true);
         } else if (filename.toLowerCase().endsWith(".docx")) {
             return extractFromWord(file);
         } else if (filename.toLowerCase().endsWith(".txt")) {
-            return new String(file.getBytes());
+            return new Parsed(new String(Files.readAllBytes(file)), true);
         } else if (isImageFile(filename)) {
-            return performOcr(file.getBytes());
+            OcrEnginePool.Batch ocr = ocrEnginePool.ocrAll(List.of(Files.readAllBytes(file)));
+            return new Parsed(ocr.texts().get(0), ocr.complete());
         } else {
             throw new IllegalArgumentException("Unsupported file type: " + filename);
         }
@@ -37,91 +94,27 @@ public class DocumentParsingService {
         return lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".bmp");
     }
 
-    private String extractFromPdf(MultipartFile file) throws IOException {
-        try (PDDocument document = Loader.loadPDF(file.getBytes())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
-        }
-    }
-
-    private String extractFromWord(MultipartFile file) throws IOException {
-        try (InputStream inputStream = file.getInputStream();
+    private Parsed extractFromWord(Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file);
                 XWPFDocument doc = new XWPFDocument(inputStream);
                 XWPFWordExtractor extractor = new XWPFWordExtractor(doc)) {
 
             StringBuilder fullText = new StringBuilder(extractor.getText());
 
-            // Extract images and perform OCR
-            for (org.apache.poi.xwpf.usermodel.XWPFPictureData picture : doc.getAllPictures()) {
-                try {
-                    String ocrResult = performOcr(picture.getData());
-                    if (ocrResult != null && !ocrResult.isBlank()) {
-                        System.out.println("OCR Success: Extracted " + ocrResult.length() + " chars from image.");
-                        fullText.append("\n[Image Text Content]:\n").append(ocrResult).append("\n");
-                    }
-                } catch (Exception e) {
-                    // Log error but don't break the whole extraction
-                    System.err.println("Non-critical: OCR failed for an image chunk. Skipping this image. Error: "
-                            + e.getMessage());
-                } catch (NoClassDefFoundError | UnsatisfiedLinkError e) {
-                    // Special handling for missing system dependencies (common in Railway/Docker)
-                    System.err.println("CRITICAL: Tesseract native library or class not found.");
-                    System.err.println("Error details: " + e.toString());
-                    System.err.println("java.library.path: " + System.getProperty("java.library.path"));
-                    break; // stop trying OCR for this doc if library is missing
-                }
+            // OCR the embedded images concurrently; text is appended in document order
+            List<byte[]> images = new ArrayList<>();
+            for (XWPFPictureData picture : doc.getAllPictures()) {
+                images.add(picture.getData());
             }
-
-            return fullText.toString();
-        }
-    }
-
-    private String performOcr(byte[] imageData) {
-        java.io.File tempFile = null;
-        try {
-            net.sourceforge.tess4j.ITesseract instance = new net.sourceforge.tess4j.Tesseract();
-
-            // Check common Linux tessdata locations (Ubuntu/Debian vs Alpine)
-            String[] commonPaths = {
-                    "/usr/share/tesseract-ocr/4.00/tessdata",
-                    "/usr/share/tesseract-ocr/5/tessdata",
-                    "/usr/share/tessdata"
-            };
-
-            for (String path : commonPaths) {
-                java.io.File folder = new java.io.File(path);
-                if (folder.exists()) {
-                    System.out.println("Tessdata found at: " + folder.getAbsolutePath());
-                    instance.setDatapath(folder.getAbsolutePath());
-                    break;
+            OcrEnginePool.Batch ocr = ocrEnginePool.ocrAll(images);
+            for (String ocrResult : ocr.texts()) {
+                if (ocrResult != null && !ocrResult.isBlank()) {
+                    System.out.println("OCR Success: Extracted " + ocrResult.length() + " chars from image.");
+                    fullText.append("\n[Image Text Content]:\n").append(ocrResult).append("\n");
                 }
             }
 
-            // Create a temp file for the image
-            tempFile = java.io.File.createTempFile("ocr_chunk_", ".png");
-            java.nio.file.Files.write(tempFile.toPath(), imageData);
-
-            System.out
-                    .println("Executing Tesseract OCR on " + tempFile.getName() + " (" + imageData.length + " bytes)");
-            String result = instance.doOCR(tempFile);
-
-            if (result == null || result.isBlank()) {
-                System.out.println("Warning: OCR returned empty result for image.");
-                return "";
-            }
-            return result;
-        } catch (Throwable e) {
-            // JVM level errors like SIGSEGV or UnsatisfiedLinkError should be caught to
-            // prevent service death
-            System.err.println("OCR Error (Critical): " + e.getMessage());
-            e.printStackTrace();
-            return "";
-        } finally {
-            if (tempFile != null && tempFile.exists()) {
-                boolean deleted = tempFile.delete();
-                if (!deleted)
-                    tempFile.deleteOnExit();
-            }
+            return new Parsed(fullText.toString(), ocr.complete());
         }
     }
 }
@@ -0,0 +1,157 @@
+package com.mockanytime.assessmentservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Text extracted from uploads, stored on local disk under the SHA-256 of the
+ * source bytes, so a re-uploaded file or a repeated embedded image is not
+ * parsed or OCR'd again. Questions the model extracted from a text chunk are
+ * kept the same way. Total size is capped; the least recently read
+ * entries are deleted first. Survives restarts; the index is rebuilt from
+ * file modification times.
+ */
+@Service
+public class ExtractionCache {
+
+    private final Path root;
+    private final long maxBytes;
+
+    // Access-ordered, oldest first; guarded by this
+    private final LinkedHashMap<Path, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long currentBytes;
+
+    public ExtractionCache(
+            @Value("${extraction-cache.dir:${java.io.tmpdir}/mockanytime-extraction-cache}") String dir,
+            @Value("${extraction-cache.max-bytes:268435456}") long maxBytes) throws IOException {
+        this.root = Files.createDirectories(Paths.get(dir));
+        this.maxBytes = maxBytes;
+        loadIndex();
+    }
+
+    public Optional<String> get(String namespace, String hash) {
+        Path path = pathFor(namespace, hash);
+        synchronized (this) {
+            if (index.get(path) == null) {
+                return Optional.empty();
+            }
+        }
+        try {
+            String text = Files.readString(path, StandardCharsets.UTF_8);
+            // Keep the order on disk in step for the next restart
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(text);
+        } catch (IOException e) {
+            forget(path);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String namespace, String hash, String text) {
+        Path path = pathFor(namespace, hash);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            return;
+        }
+        try {
+            Files.createDirectories(path.getParent());
+            // Write then rename, so a reader never sees a half-written entry
+            Path temp = Files.createTempFile(path.getParent(), hash, ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write extraction cache entry " + path + ": " + e.getMessage());
+            return;
+        }
+
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = index.put(path, (long) bytes.length);
+            currentBytes += bytes.length - (previous != null ? previous : 0);
+            Iterator<Map.Entry<Path, Long>> it = index.entrySet().iterator();
+            while (currentBytes > maxBytes && it.hasNext()) {
+                Map.Entry<Path, Long> eldest = it.next();
+                if (eldest.getKey().equals(path)) {
+                    continue;
+                }
+                currentBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (Path old : evicted) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                System.err.println("Failed to evict extraction cache entry " + old + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public static String sha256(byte[] data) {
+        return HexFormat.of().formatHex(digest().digest(data));
+    }
+
+    public static String sha256(InputStream in) throws IOException {
+        MessageDigest digest = digest();
+        try (DigestInputStream digesting = new DigestInputStream(in, digest)) {
+            digesting.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Path pathFor(String namespace, String hash) {
+        // Two-character fan-out keeps directories small
+        return root.resolve(namespace).resolve(hash.substring(0, 2)).resolve(hash + ".txt");
+    }
+
+    private synchronized void forget(Path path) {
+        Long size = index.remove(path);
+        if (size != null) {
+            currentBytes -= size;
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        List<Map.Entry<Path, BasicFileAttributes>> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.toString().endsWith(".txt")) {
+                    if (file.toString().endsWith(".tmp")) {
+                        Files.deleteIfExists(file); // left behind by a crash mid-write
+                    }
+                    continue;
+                }
+                entries.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+            }
+        }
+        entries.sort(Comparator.comparing(e -> e.getValue().lastModifiedTime()));
+        synchronized (this) {
+            for (Map.Entry<Path, BasicFileAttributes> e : entries) {
+                index.put(e.getKey(), e.getValue().size());
+                currentBytes += e.getValue().size();
+            }
+        }
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
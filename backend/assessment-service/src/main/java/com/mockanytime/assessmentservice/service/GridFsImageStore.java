@@ -0,0 +1,85 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+// Images live in GridFS (fs.files / fs.chunks) under their hash as file name
+@Service
+@RequiredArgsConstructor
+public class GridFsImageStore implements ImageStore {
+
+    private final GridFsTemplate gridFsTemplate;
+
+    @Override
+    public String store(byte[] data, String contentType) {
+        String hash = sha256(data);
+        if (gridFsTemplate.findOne(query(whereFilename().is(hash))) == null) {
+            gridFsTemplate.store(new ByteArrayInputStream(data), hash, contentType,
+                    new Document("contentType", contentType));
+        }
+        return hash;
+    }
+
+    @Override
+    public Optional<StoredImage> find(String hash) {
+        GridFSFile file = gridFsTemplate.findOne(query(whereFilename().is(hash)));
+        if (file == null) {
+            return Optional.empty();
+        }
+        String contentType = file.getMetadata() != null ? file.getMetadata().getString("contentType") : null;
+        return Optional.of(new StoredImage(hash, contentType != null ? contentType : "application/octet-stream",
+                new GridFsFileResource(file)));
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Opens a fresh download stream on every read
+    private class GridFsFileResource extends AbstractResource {
+        private final GridFSFile file;
+
+        GridFsFileResource(GridFSFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return gridFsTemplate.getResource(file).getInputStream();
+        }
+
+        @Override
+        public long contentLength() {
+            return file.getLength();
+        }
+
+        @Override
+        public String getFilename() {
+            return file.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return "GridFS image " + file.getFilename();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.Test;
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Moves base64 images embedded in existing tests into the image store. Tests
+ * are read one at a time from a cursor. Each rewritten test gets a new version
+ * so cached copies are dropped. Safe to re-run.
+ */
+@Service
+public class ImageMigrationJob {
+
+    private final MongoTemplate mongoTemplate;
+    private final TestService testService;
+    private final TestChangePublisher testChangePublisher;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "image-migration");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong migratedTests = new AtomicLong();
+    private volatile Date startedAt;
+    private volatile Date finishedAt;
+    private volatile String lastError;
+
+    public ImageMigrationJob(MongoTemplate mongoTemplate, TestService testService,
+            TestChangePublisher testChangePublisher) {
+        this.mongoTemplate = mongoTemplate;
+        this.testService = testService;
+        this.testChangePublisher = testChangePublisher;
+    }
+
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        migratedTests.set(0);
+        startedAt = new Date();
+        finishedAt = null;
+        lastError = null;
+        executor.execute(() -> {
+            try {
+                run();
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                System.err.println("Image migration failed: " + e.getMessage());
+            } finally {
+                finishedAt = new Date();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("migratedTests", migratedTests.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private void run() {
+        Query query = Query.query(Criteria.where("questions.imageUrl").regex("^data:"));
+        query.cursorBatchSize(10); // documents can be megabytes each
+        try (Stream<Test> tests = mongoTemplate.stream(query, Test.class)) {
+            for (Iterator<Test> it = tests.iterator(); it.hasNext();) {
+                Test test = it.next();
+                if (!testService.moveImagesToStore(test.getQuestions())) {
+                    continue;
+                }
+                // Only if nobody edited the test meanwhile; a later run picks it up otherwise
+                long version = test.getVersion() + 1;
+                boolean updated = mongoTemplate.updateFirst(
+                        Query.query(new Criteria().andOperator(Criteria.where("_id").is(test.getId()),
+                                TestService.versionIs(test.getVersion()))),
+                        new Update().set("questions", test.getQuestions()).set("version", version),
+                        Test.class).getModifiedCount() > 0;
+                if (updated) {
+                    testChangePublisher.publish(test.getId(), version, TestChangeEvent.UPDATED);
+                    migratedTests.incrementAndGet();
+                }
+            }
+        }
+        System.out.println("Image migration finished: " + migratedTests.get() + " tests migrated.");
+    }
+}
@@ -0,0 +1,22 @@
+package com.mockanytime.assessmentservice.service;
+
+import org.springframework.core.io.Resource;
+
+import java.util.Optional;
+
+/**
+ * Content-addressed storage for question images. The key is the SHA-256 of
+ * the bytes, so the same diagram used in many questions is stored once and a
+ * key never points at different content.
+ */
+public interface ImageStore {
+
+    /** Stores the image if it is not already present and returns its hash. */
+    String store(byte[] data, String contentType);
+
+    Optional<StoredImage> find(String hash);
+
+    /** Resource can be read more than once, which range requests rely on. */
+    record StoredImage(String hash, String contentType, Resource resource) {
+    }
+}
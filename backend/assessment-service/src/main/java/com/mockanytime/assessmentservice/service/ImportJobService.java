@@ -0,0 +1,259 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.ImportJob;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Runs document imports (parsing, OCR, question extraction) off the request
+ * thread. Each instance runs at most a few at once and queues a bounded
+ * number more; beyond that new uploads are refused so the node is not
+ * overloaded. Progress and questions found so far are kept on the job
+ * document, so any instance can answer a status request.
+ */
+@Service
+public class ImportJobService {
+
+    // Past this many questions a status response is paged with "from"
+    private static final int MAX_QUESTIONS_PER_READ = 1000;
+    private static final long FOLLOW_INTERVAL_MILLIS = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final DocumentParsingService documentParsingService;
+    private final QuestionExtractionService questionExtractionService;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService heartbeat;
+    private final ScheduledExecutorService followers;
+    private final Set<String> liveJobs = ConcurrentHashMap.newKeySet();
+    private final String node = ManagementFactory.getRuntimeMXBean().getName();
+    private final long staleAfterMillis;
+
+    public ImportJobService(MongoTemplate mongoTemplate, DocumentParsingService documentParsingService,
+            QuestionExtractionService questionExtractionService,
+            @Value("${import-jobs.max-running:2}") int maxRunning,
+            @Value("${import-jobs.max-queued:20}") int maxQueued,
+            @Value("${import-jobs.stale-after-seconds:300}") long staleAfterSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.documentParsingService = documentParsingService;
+        this.questionExtractionService = questionExtractionService;
+        this.staleAfterMillis = staleAfterSeconds * 1000;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxRunning, maxRunning, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(maxQueued, 1)), r -> {
+                    Thread t = new Thread(r, "import-job-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        // Queued and running jobs are touched regularly; one that goes quiet belonged to a dead instance
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "import-job-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(staleAfterMillis / 3, 1000);
+        heartbeat.scheduleAtFixedRate(this::touchLiveJobs, period, period, TimeUnit.MILLISECONDS);
+
+        AtomicInteger followerCount = new AtomicInteger();
+        this.followers = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "import-job-follow-" + followerCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Returns null if this instance is already at its job limit. */
+    public ImportJob submit(MultipartFile file, String topicId, String subtopicId, String userId)
+            throws IOException {
+        String filename = file.getOriginalFilename();
+        if (filename == null) {
+            throw new IllegalArgumentException("Uploaded file has no name");
+        }
+        if (executor.getQueue().remainingCapacity() == 0) {
+            return null;
+        }
+
+        // The upload is gone once the request ends, so the worker reads this copy
+        Path spooled = Files.createTempFile("import_", ".tmp");
+        file.transferTo(spooled);
+
+        Date now = new Date();
+        ImportJob job = new ImportJob();
+        job.setCreatedBy(userId);
+        job.setFileName(filename);
+        job.setTopicId(topicId);
+        job.setSubtopicId(subtopicId);
+        job.setStatus(ImportJob.QUEUED);
+        job.setNode(node);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job = mongoTemplate.insert(job);
+
+        String jobId = job.getId();
+        liveJobs.add(jobId);
+        try {
+            executor.execute(() -> run(jobId, spooled, filename, topicId, subtopicId));
+        } catch (RejectedExecutionException e) {
+            // Lost the race for the last queue slot
+            liveJobs.remove(jobId);
+            Files.deleteIfExists(spooled);
+            mongoTemplate.remove(job);
+            return null;
+        }
+        return job;
+    }
+
+    /** The job with questions from index {@code from} onward, or null if it does not exist. */
+    public ImportJob get(String jobId, int from) {
+        Query query = Query.query(Criteria.where("_id").is(jobId));
+        query.fields().slice("questions", Math.max(from, 0), MAX_QUESTIONS_PER_READ);
+        ImportJob job = mongoTemplate.findOne(query, ImportJob.class);
+        if (job == null || job.isFinished() || job.getUpdatedAt() == null) {
+            return job;
+        }
+
+        Date cutoff = new Date(System.currentTimeMillis() - staleAfterMillis);
+        if (job.getUpdatedAt().before(cutoff)) {
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(jobId).and("status")
+                            .nin(ImportJob.COMPLETED, ImportJob.FAILED).and("updatedAt").lt(cutoff)),
+                    finish(ImportJob.FAILED).set("error", "Import was interrupted; please upload the file again"),
+                    ImportJob.class);
+            job = mongoTemplate.findOne(query, ImportJob.class);
+        }
+        return job;
+    }
+
+    /**
+     * Calls {@code onUpdate} from a background thread whenever the job has saved
+     * new questions (those from index {@code from} on) or has finished, until it
+     * returns false or everything has been handed over. A job that does not exist
+     * is passed as null. Works for a job running on any instance; the returned
+     * handle stops following.
+     */
+    public Runnable follow(String jobId, int from, Predicate<ImportJob> onUpdate) {
+        AtomicInteger received = new AtomicInteger(Math.max(from, 0));
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        Runnable stop = () -> {
+            stopped.set(true);
+            ScheduledFuture<?> scheduled = task.get();
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        };
+
+        task.set(followers.scheduleWithFixedDelay(() -> {
+            if (stopped.get()) {
+                return;
+            }
+            try {
+                ImportJob job = get(jobId, received.get());
+                if (job == null) {
+                    onUpdate.test(null);
+                    stop.run();
+                    return;
+                }
+                int page = job.getQuestions() != null ? job.getQuestions().size() : 0;
+                boolean delivered = job.isFinished() && received.addAndGet(page) >= job.getQuestionCount();
+                if (!job.isFinished()) {
+                    received.addAndGet(page);
+                }
+                // Nothing new yet: wait for the next tick
+                if (page == 0 && !delivered) {
+                    return;
+                }
+                if (!onUpdate.test(job) || delivered) {
+                    stop.run();
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to follow import job " + jobId + ": " + e.getMessage());
+            }
+        }, 0, FOLLOW_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+        if (stopped.get()) {
+            task.get().cancel(false);
+        }
+        return stop;
+    }
+
+    private void run(String jobId, Path file, String filename, String topicId, String subtopicId) {
+        try {
+            update(jobId, new Update().set("status", ImportJob.PARSING));
+            String text;
+            try {
+                text = documentParsingService.extractText(file, filename);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+
+            update(jobId, new Update().set("status", ImportJob.EXTRACTING).set("textLength", text.length()));
+            QuestionExtractionService.Extraction extraction = questionExtractionService.extractQuestions(text,
+                    topicId, subtopicId, batch -> update(jobId, new Update().push("questions")
+                            .each(batch.toArray()).inc("questionCount", batch.size())))
+                    .join();
+
+            // Completed with what was found, but flagged so the user knows to check for missing questions
+            update(jobId, finish(ImportJob.COMPLETED).set("failedChunks", extraction.failedChunks())
+                    .set("error", extraction.failureMessage()));
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            System.err.println("Import job " + jobId + " failed: " + cause.getMessage());
+            update(jobId, finish(ImportJob.FAILED).set("error", String.valueOf(cause.getMessage())));
+        } finally {
+            liveJobs.remove(jobId);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void update(String jobId, Update update) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(jobId)),
+                update.set("updatedAt", new Date()), ImportJob.class);
+    }
+
+    private static Update finish(String status) {
+        Date now = new Date();
+        return new Update().set("status", status).set("finishedAt", now).set("updatedAt", now);
+    }
+
+    private void touchLiveJobs() {
+        try {
+            List<String> ids = List.copyOf(liveJobs);
+            if (!ids.isEmpty()) {
+                mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                        new Update().set("updatedAt", new Date()), ImportJob.class);
+            }
+        } catch (Exception e) {
+            System.err.println("Import job heartbeat failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        followers.shutdownNow();
+        executor.shutdownNow();
+    }
+}
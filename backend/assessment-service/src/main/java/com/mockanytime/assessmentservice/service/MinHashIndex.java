@@ -0,0 +1,163 @@
+package com.mockanytime.assessmentservice.service;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Near-duplicate lookup over question text. Each question is reduced to a
+ * MinHash signature of its character 5-grams; signatures are split into bands
+ * and two questions become candidates only if some band matches exactly, so a
+ * lookup reads a handful of buckets instead of comparing against every entry.
+ * Candidates are then kept only if their estimated Jaccard similarity reaches
+ * the caller's threshold. Not thread-safe.
+ */
+final class MinHashIndex<T> {
+
+    static final int HASHES = 64;
+    // 16 bands of 4 rows: pairs around 0.5 similar or better usually share a band
+    private static final int BANDS = 16;
+    private static final int ROWS = HASHES / BANDS;
+    private static final int SHINGLE = 5;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_0F_4B41L);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    record Match<T>(T value, double similarity) {
+    }
+
+    private record Entry<T>(T value, int[] signature) {
+    }
+
+    private final Map<Long, List<Entry<T>>> buckets = new HashMap<>();
+    private final Map<T, Entry<T>> entries = new HashMap<>();
+
+    void add(T value, int[] signature) {
+        remove(value);
+        Entry<T> entry = new Entry<>(value, signature);
+        entries.put(value, entry);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    void remove(T value) {
+        Entry<T> entry = entries.remove(value);
+        if (entry == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(entry.signature(), band);
+            List<Entry<T>> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    /** The most similar entry at or above {@code threshold}, if any. */
+    Optional<Match<T>> best(int[] signature, double threshold) {
+        Match<T> best = null;
+        Set<Entry<T>> checked = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int band = 0; band < BANDS; band++) {
+            List<Entry<T>> bucket = buckets.get(bandKey(signature, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (Entry<T> candidate : bucket) {
+                if (!checked.add(candidate)) {
+                    continue;
+                }
+                double similarity = similarity(signature, candidate.signature());
+                if (similarity >= threshold && (best == null || similarity > best.similarity())) {
+                    best = new Match<>(candidate.value(), similarity);
+                }
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /** Signature of a question's text and options; option order does not matter. */
+    static int[] signature(String text, List<String> options) {
+        return signature(normalize(text, options));
+    }
+
+    /** A question's text and options as the signature sees them; equal for exact repeats. */
+    static String normalize(String text, List<String> options) {
+        StringBuilder normalized = new StringBuilder(normalize(text));
+        if (options != null) {
+            options.stream().map(MinHashIndex::normalize).sorted()
+                    .forEach(option -> normalized.append(" | ").append(option));
+        }
+        return normalized.toString();
+    }
+
+    static int[] signature(String normalized) {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(normalized.length() - SHINGLE + 1, 1);
+        for (int start = 0; start < shingles; start++) {
+            long base = shingleHash(normalized, start, Math.min(start + SHINGLE, normalized.length()));
+            for (int i = 0; i < HASHES; i++) {
+                int h = (int) mix(base ^ SEEDS[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / HASHES;
+    }
+
+    static String normalize(String s) {
+        return s == null ? "" : NON_WORD.matcher(s.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long h = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            h = mix(h * 31 + signature[i]);
+        }
+        return h;
+    }
+
+    private static long shingleHash(String s, int from, int to) {
+        long h = 1125899906842597L;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+    // MurmurHash3 finaliser
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
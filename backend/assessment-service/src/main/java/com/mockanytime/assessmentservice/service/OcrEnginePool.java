@@ -0,0 +1,260 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.sun.jna.Pointer;
+import jakarta.annotation.PreDestroy;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of OCR worker threads, each owning one Tesseract engine that is
+ * initialised when the thread starts and reused for every image it handles;
+ * an engine is never shared because Tesseract is not thread-safe. A thread
+ * whose engine failed to start tries again on its next image. Images are
+ * decoded in memory, so no temp files are written. Once the native library
+ * turns out to be missing, later calls return empty text without trying again.
+ */
+@Service
+public class OcrEnginePool {
+
+    // Common Linux tessdata locations (Ubuntu/Debian vs Alpine)
+    private static final String[] TESSDATA_PATHS = {
+            "/usr/share/tesseract-ocr/4.00/tessdata",
+            "/usr/share/tesseract-ocr/5/tessdata",
+            "/usr/share/tessdata"
+    };
+
+    private static final String CACHE_NAMESPACE = "ocr";
+
+    private final ExtractionCache extractionCache;
+    private final Supplier<Engine> engineFactory;
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Engine> engine = new ThreadLocal<>();
+    private final List<Engine> engines = new CopyOnWriteArrayList<>();
+    private volatile boolean unavailable;
+
+    @Autowired
+    public OcrEnginePool(ExtractionCache extractionCache,
+            @Value("${ocr.parallelism:0}") int parallelism,
+            @Value("${ocr.language:eng}") String language) {
+        this(extractionCache, parallelism, engineFactory(findDatapath(), language));
+    }
+
+    OcrEnginePool(ExtractionCache extractionCache, int parallelism, Supplier<Engine> engineFactory) {
+        this.extractionCache = extractionCache;
+        this.engineFactory = engineFactory;
+
+        int workers = parallelism > 0 ? parallelism : Math.min(Runtime.getRuntime().availableProcessors(), 4);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(() -> {
+                        startEngine();
+                        r.run();
+                    }, "ocr-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /** Text of each image in order; {@code failed} counts images OCR could not be run on. */
+    public record Batch(List<String> texts, int failed) {
+        public boolean complete() {
+            return failed == 0;
+        }
+    }
+
+    public String ocr(byte[] imageData) {
+        return ocrAll(List.of(imageData)).texts().get(0);
+    }
+
+    /**
+     * OCRs the images concurrently and returns their text in the same order.
+     * Images seen before, in this or any earlier upload, come from the cache.
+     * An image whose OCR failed reads as empty text and is counted in the batch.
+     */
+    public Batch ocrAll(List<byte[]> images) {
+        List<Future<String>> futures = new ArrayList<>(images.size());
+        for (byte[] image : images) {
+            String hash = ExtractionCache.sha256(image);
+            Optional<String> cached = extractionCache.get(CACHE_NAMESPACE, hash);
+            futures.add(cached.isPresent()
+                    ? CompletableFuture.completedFuture(cached.get())
+                    : executor.submit(() -> {
+                        String text = recognize(image);
+                        if (text != null && !text.isBlank()) {
+                            extractionCache.put(CACHE_NAMESPACE, hash, text);
+                        }
+                        return text;
+                    }));
+        }
+
+        List<String> texts = new ArrayList<>(images.size());
+        int failed = 0;
+        try {
+            for (Future<String> future : futures) {
+                String text = future.get();
+                if (text == null) {
+                    failed++;
+                }
+                texts.add(text != null ? text : "");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for OCR", e);
+        } catch (ExecutionException e) {
+            // recognize() handles its own failures; this is not expected
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("OCR failed", e.getCause());
+        }
+        return new Batch(texts, failed);
+    }
+
+    // Null when OCR could not be run; empty text when it ran and found none
+    private String recognize(byte[] imageData) {
+        if (unavailable) {
+            return null;
+        }
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
+            if (image == null) {
+                System.out.println("Warning: skipping OCR for an image format ImageIO cannot read ("
+                        + imageData.length + " bytes).");
+                return "";
+            }
+            Engine own = engine.get();
+            if (own == null) {
+                // Starting this thread's engine failed earlier; the cause may have been transient
+                own = startEngine();
+                if (own == null) {
+                    return null;
+                }
+            }
+            String result = own.recognize(image);
+            if (result == null || result.isBlank()) {
+                System.out.println("Warning: OCR returned empty result for image.");
+                return "";
+            }
+            return result;
+        } catch (NoClassDefFoundError | UnsatisfiedLinkError e) {
+            // Special handling for missing system dependencies (common in Railway/Docker)
+            unavailable = true;
+            System.err.println("CRITICAL: Tesseract native library or class not found.");
+            System.err.println("Error details: " + e);
+            System.err.println("java.library.path: " + System.getProperty("java.library.path"));
+            return null;
+        } catch (Throwable e) {
+            // JVM level errors should be caught to prevent service death
+            System.err.println("OCR Error (Critical): " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // The calling thread's new engine, or null if it could not be started
+    private Engine startEngine() {
+        if (unavailable) {
+            return null;
+        }
+        try {
+            Engine own = engineFactory.get();
+            engine.set(own);
+            engines.add(own);
+            return own;
+        } catch (NoClassDefFoundError | UnsatisfiedLinkError e) {
+            unavailable = true;
+            System.err.println("CRITICAL: Tesseract native library or class not found.");
+            System.err.println("Error details: " + e);
+            System.err.println("java.library.path: " + System.getProperty("java.library.path"));
+        } catch (Throwable e) {
+            System.err.println("Failed to start OCR engine on " + Thread.currentThread().getName()
+                    + ", will retry on its next image: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static Supplier<Engine> engineFactory(String datapath, String language) {
+        return () -> new Engine(datapath, language);
+    }
+
+    // One native TessBaseAPI handle, initialised once and cleared between images
+    static final class Engine {
+        private final ITessAPI.TessBaseAPI handle;
+
+        Engine(String datapath, String language) {
+            handle = TessAPI1.TessBaseAPICreate();
+            if (TessAPI1.TessBaseAPIInit3(handle, datapath, language) != 0) {
+                TessAPI1.TessBaseAPIDelete(handle);
+                throw new IllegalStateException("Tesseract could not load language data '" + language + "'");
+            }
+        }
+
+        String recognize(BufferedImage image) {
+            ByteBuffer pixels = ImageIOHelper.convertImageData(image);
+            int bitsPerPixel = bitsPerPixel(image);
+            int bytesPerLine = (int) Math.ceil(image.getWidth() * bitsPerPixel / 8.0);
+            TessAPI1.TessBaseAPISetImage(handle, pixels, image.getWidth(), image.getHeight(), bitsPerPixel / 8,
+                    bytesPerLine);
+            Pointer text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+            try {
+                return text != null ? text.getString(0, StandardCharsets.UTF_8.name()) : "";
+            } finally {
+                if (text != null) {
+                    TessAPI1.TessDeleteText(text);
+                }
+                TessAPI1.TessBaseAPIClear(handle);
+            }
+        }
+
+        // convertImageData hands back byte rasters as they are and converts any other raster,
+        // e.g. a 16-bit PNG, to 8-bit gray, as Tesseract.setImage accounts for
+        static int bitsPerPixel(BufferedImage image) {
+            return image.getRaster().getDataBuffer() instanceof DataBufferByte
+                    ? image.getColorModel().getPixelSize()
+                    : 8;
+        }
+
+        void close() {
+            TessAPI1.TessBaseAPIEnd(handle);
+            TessAPI1.TessBaseAPIDelete(handle);
+        }
+    }
+
+    private static String findDatapath() {
+        for (String path : TESSDATA_PATHS) {
+            File folder = new File(path);
+            if (folder.exists()) {
+                System.out.println("Tessdata found at: " + folder.getAbsolutePath());
+                return folder.getAbsolutePath();
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        // Engines may only be freed once no worker can be using them
+        if (executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            engines.forEach(Engine::close);
+        }
+    }
+}
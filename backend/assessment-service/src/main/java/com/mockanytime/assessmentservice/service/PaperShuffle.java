@@ -0,0 +1,104 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Per-student question and option order for tests with shuffling on. The
+ * order follows from (testId, userId, attempt) alone, so nothing is stored per
+ * attempt: the scoring service derives the same question order from the same
+ * seed and maps the answers back before grading. Must stay in step with the
+ * scoring service's copy.
+ */
+public final class PaperShuffle {
+
+    private PaperShuffle() {
+    }
+
+    public static long seed(String testId, String userId, long attempt) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(
+                    (testId + '\u001f' + userId + '\u001f' + attempt).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        long seed = 0;
+        for (int i = 0; i < 8; i++) {
+            seed = (seed << 8) | (digest[i] & 0xff);
+        }
+        return seed;
+    }
+
+    /** order[p] is the original index of the question shown at position p. */
+    public static int[] order(long seed, int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        // Fisher-Yates over a SplitMix64 stream, spelled out so both services agree bit for bit
+        long state = seed;
+        for (int i = n - 1; i > 0; i--) {
+            state += 0x9E3779B97F4A7C15L;
+            int j = (int) (((mix(state) >>> 32) * (i + 1)) >>> 32);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    /** Option order of the question originally at index {@code question}, wherever it is shown. */
+    public static int[] optionOrder(long seed, int question, int n) {
+        return order(mix(seed + (question + 1) * 0xD1B54A32D192ED03L), n);
+    }
+
+    /**
+     * This student's copy of a sanitized paper, in the order its shuffle flags
+     * ask for. Nodes that do not move are shared with the cached paper, not copied.
+     */
+    public static ObjectNode apply(ObjectNode paper, long seed) {
+        boolean questions = paper.path("shuffleQuestions").asBoolean();
+        boolean options = paper.path("shuffleOptions").asBoolean();
+        JsonNode source = paper.get("questions");
+        if (!(questions || options) || source == null || !source.isArray()) {
+            return paper;
+        }
+
+        int n = source.size();
+        int[] order = questions ? order(seed, n) : null;
+        ArrayNode shuffled = paper.arrayNode(n);
+        for (int p = 0; p < n; p++) {
+            int i = order != null ? order[p] : p;
+            JsonNode question = source.get(i);
+            JsonNode opts = question.get("options");
+            if (options && question.isObject() && opts != null && opts.isArray() && opts.size() > 1) {
+                ArrayNode reordered = paper.arrayNode(opts.size());
+                for (int o : optionOrder(seed, i, opts.size())) {
+                    reordered.add(opts.get(o));
+                }
+                ObjectNode copy = paper.objectNode();
+                copy.setAll((ObjectNode) question);
+                copy.set("options", reordered);
+                question = copy;
+            }
+            shuffled.add(question);
+        }
+
+        ObjectNode copy = paper.objectNode();
+        copy.setAll(paper);
+        copy.set("questions", shuffled);
+        return copy;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
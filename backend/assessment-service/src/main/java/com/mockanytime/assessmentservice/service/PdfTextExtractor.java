@@ -0,0 +1,143 @@
+package com.mockanytime.assessmentservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts PDF text page range by page range on a shared worker pool. The
+ * upload is spooled to a temp file that every worker memory-maps, and each
+ * worker opens its own PDDocument since PDFBox documents are not thread-safe.
+ * Small files are read on the calling thread.
+ */
+@Service
+public class PdfTextExtractor {
+
+    private final boolean parallel;
+    private final int parallelism;
+    private final int minPagesForParallel;
+    private final ExecutorService executor;
+    private final Timer pageTimer;
+    private final Timer documentTimer;
+
+    public PdfTextExtractor(MeterRegistry meterRegistry,
+            @Value("${pdf-extraction.parallel:true}") boolean parallel,
+            @Value("${pdf-extraction.parallelism:0}") int parallelism,
+            @Value("${pdf-extraction.parallel-min-pages:16}") int minPagesForParallel) {
+        this.parallel = parallel;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.minPagesForParallel = minPagesForParallel;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread t = new Thread(r, "pdf-extract-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.pageTimer = Timer.builder("pdf.extract.page")
+                .description("Time to extract the text of one PDF page")
+                .register(meterRegistry);
+        this.documentTimer = Timer.builder("pdf.extract.document")
+                .description("Time to extract the text of a whole PDF")
+                .register(meterRegistry);
+    }
+
+    public String extract(MultipartFile file) throws IOException {
+        Path spooled = Files.createTempFile("pdf_upload_", ".pdf");
+        try {
+            file.transferTo(spooled);
+            return extract(spooled);
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    public String extract(Path pdf) throws IOException {
+        long start = System.nanoTime();
+        String text = extractPages(pdf);
+        documentTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return text;
+    }
+
+    private String extractPages(Path pdf) throws IOException {
+        try (PDDocument document = open(pdf)) {
+            int pages = document.getNumberOfPages();
+            if (!parallel || parallelism < 2 || pages < minPagesForParallel) {
+                return stripPages(document, 1, pages);
+            }
+
+            // Contiguous ranges so the text can be joined back in page order
+            int chunks = Math.min(parallelism, pages);
+            int perChunk = (pages + chunks - 1) / chunks;
+            List<Future<String>> rest = new ArrayList<>();
+            for (int first = 1 + perChunk; first <= pages; first += perChunk) {
+                int from = first;
+                int to = Math.min(first + perChunk - 1, pages);
+                rest.add(executor.submit(() -> {
+                    try (PDDocument own = open(pdf)) {
+                        return stripPages(own, from, to);
+                    }
+                }));
+            }
+
+            try {
+                // The calling thread takes the first range with the document it already opened
+                StringBuilder text = new StringBuilder(stripPages(document, 1, Math.min(perChunk, pages)));
+                for (Future<String> part : rest) {
+                    text.append(part.get());
+                }
+                return text.toString();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while extracting PDF text", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("PDF text extraction failed", e.getCause());
+            } finally {
+                rest.forEach(f -> f.cancel(true));
+            }
+        }
+    }
+
+    private static PDDocument open(Path pdf) throws IOException {
+        // Mapped input plus a temp-file stream cache keeps large PDFs off the heap
+        return Loader.loadPDF(new RandomAccessReadMemoryMappedFile(pdf), IOUtils.createTempFileOnlyStreamCache());
+    }
+
+    private String stripPages(PDDocument document, int from, int to) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        StringBuilder text = new StringBuilder();
+        for (int page = from; page <= to; page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            long start = System.nanoTime();
+            text.append(stripper.getText(document));
+            pageTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return text.toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
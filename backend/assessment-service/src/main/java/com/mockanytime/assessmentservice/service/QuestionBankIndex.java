@@ -0,0 +1,183 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.Question;
+import com.mockanytime.assessmentservice.model.Test;
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * MinHash index over every question in every test, used to spot imported
+ * questions that are already in the bank. Built in the background at startup,
+ * kept current by polling test_change_events, which carries edits made on any
+ * instance, and rebuilt now and then in case an event was lost. Until the
+ * first build finishes, lookups find nothing.
+ */
+@Service
+public class QuestionBankIndex {
+
+    private final MongoTemplate mongoTemplate;
+    private final double threshold;
+    private final long pollIntervalMillis;
+    private final long rebuildIntervalMillis;
+
+    // Guarded by this; rebuilt and updated only on the indexer thread
+    private final MinHashIndex<QuestionRef> index = new MinHashIndex<>();
+    private final Map<String, List<QuestionRef>> byTest = new HashMap<>();
+    private volatile boolean ready;
+    // Indexer thread only; set by the first build
+    private TestChangeCursor cursor;
+
+    private final ScheduledExecutorService indexer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "question-bank-index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private record QuestionRef(String testId, String testTitle, String questionId) {
+    }
+
+    public QuestionBankIndex(MongoTemplate mongoTemplate,
+            @Value("${question-bank.duplicate-threshold:0.8}") double threshold,
+            @Value("${question-bank.poll-interval-ms:2000}") long pollIntervalMillis,
+            @Value("${question-bank.rebuild-interval-hours:6}") long rebuildIntervalHours) {
+        this.mongoTemplate = mongoTemplate;
+        this.threshold = threshold;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.rebuildIntervalMillis = TimeUnit.HOURS.toMillis(rebuildIntervalHours);
+    }
+
+    /** The closest existing question at or above the duplicate threshold, if any. */
+    public Optional<Question.DuplicateOf> findDuplicate(Question question) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        int[] signature = MinHashIndex.signature(question.getText(), question.getOptions());
+        Optional<MinHashIndex.Match<QuestionRef>> match;
+        synchronized (this) {
+            match = index.best(signature, threshold);
+        }
+        return match.map(m -> new Question.DuplicateOf(m.value().testId(), m.value().testTitle(),
+                m.value().questionId(), m.similarity()));
+    }
+
+    /** Threshold for near-duplicates within one import, so both sides agree on what counts. */
+    public double threshold() {
+        return threshold;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        indexer.execute(this::build);
+        indexer.scheduleWithFixedDelay(this::pollChangeEvents, pollIntervalMillis, pollIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        indexer.scheduleWithFixedDelay(this::build, rebuildIntervalMillis, rebuildIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    void build() {
+        long start = System.currentTimeMillis();
+        Query query = new Query();
+        query.fields().include("title", "questions.id", "questions.text", "questions.options");
+        try {
+            // Changes made while the tests are read are replayed from this point afterwards
+            long seq = TestChangeCursor.newestSeq(mongoTemplate);
+            Set<String> seen = new HashSet<>();
+            try (Stream<Test> tests = mongoTemplate.stream(query, Test.class)) {
+                tests.forEach(test -> {
+                    seen.add(test.getId());
+                    reindex(test);
+                });
+            }
+            synchronized (this) {
+                new ArrayList<>(byTest.keySet()).stream().filter(id -> !seen.contains(id)).forEach(this::removeTest);
+            }
+            if (cursor == null) {
+                cursor = new TestChangeCursor(mongoTemplate, seq);
+            }
+            ready = true;
+            System.out.println("Question bank index built: " + index.size() + " questions in "
+                    + (System.currentTimeMillis() - start) + "ms.");
+        } catch (Exception e) {
+            System.err.println("Failed to build question bank index: " + e.getMessage());
+        }
+    }
+
+    void pollChangeEvents() {
+        if (cursor == null) {
+            return;
+        }
+        try {
+            cursor.poll(this::apply);
+        } catch (Exception e) {
+            System.err.println("Failed to poll test change events for the question bank index: " + e.getMessage());
+        }
+    }
+
+    private void apply(TestChangeEvent event) {
+        String testId = event.getTestId();
+        try {
+            Test test = null;
+            if (!TestChangeEvent.DELETED.equals(event.getType())) {
+                Query query = Query.query(Criteria.where("_id").is(testId));
+                query.fields().include("title", "questions.id", "questions.text", "questions.options");
+                test = mongoTemplate.findOne(query, Test.class);
+            }
+            if (test != null) {
+                reindex(test);
+            } else {
+                synchronized (this) {
+                    removeTest(testId);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to reindex questions of test " + testId + ": " + e.getMessage());
+        }
+    }
+
+    private void reindex(Test test) {
+        List<QuestionRef> refs = new ArrayList<>();
+        List<int[]> signatures = new ArrayList<>();
+        if (test.getQuestions() != null) {
+            for (Question q : test.getQuestions()) {
+                if (q.getText() == null || q.getText().isBlank()) {
+                    continue;
+                }
+                refs.add(new QuestionRef(test.getId(), test.getTitle(), q.getId()));
+                signatures.add(MinHashIndex.signature(q.getText(), q.getOptions()));
+            }
+        }
+        // Signatures are computed outside the lock so lookups are only held up by the bucket updates
+        synchronized (this) {
+            removeTest(test.getId());
+            for (int i = 0; i < refs.size(); i++) {
+                index.add(refs.get(i), signatures.get(i));
+            }
+            byTest.put(test.getId(), refs);
+        }
+    }
+
+    private void removeTest(String testId) {
+        List<QuestionRef> refs = byTest.remove(testId);
+        if (refs != null) {
+            refs.forEach(index::remove);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+}
@@ -0,0 +1,92 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Fills the question bank from the questions embedded in existing tests.
+ * Tests are read one at a time from a cursor. Safe to re-run: questions are
+ * upserted by ID.
+ */
+@Service
+public class QuestionBankMigrationJob {
+
+    private final MongoTemplate mongoTemplate;
+    private final QuestionBankService questionBankService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "question-bank-migration");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong indexedTests = new AtomicLong();
+    private final AtomicLong indexedQuestions = new AtomicLong();
+    private volatile Date startedAt;
+    private volatile Date finishedAt;
+    private volatile String lastError;
+
+    public QuestionBankMigrationJob(MongoTemplate mongoTemplate, QuestionBankService questionBankService) {
+        this.mongoTemplate = mongoTemplate;
+        this.questionBankService = questionBankService;
+    }
+
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        indexedTests.set(0);
+        indexedQuestions.set(0);
+        startedAt = new Date();
+        finishedAt = null;
+        lastError = null;
+        executor.execute(() -> {
+            try {
+                run();
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                System.err.println("Question bank migration failed: " + e.getMessage());
+            } finally {
+                finishedAt = new Date();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("indexedTests", indexedTests.get());
+        status.put("indexedQuestions", indexedQuestions.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private void run() {
+        Query query = new Query();
+        query.cursorBatchSize(10); // documents can be megabytes each
+        try (Stream<Test> tests = mongoTemplate.stream(query, Test.class)) {
+            for (Iterator<Test> it = tests.iterator(); it.hasNext();) {
+                indexedQuestions.addAndGet(questionBankService.syncTest(it.next()));
+                indexedTests.incrementAndGet();
+            }
+        }
+        System.out.println("Question bank migration finished: " + indexedQuestions.get() + " questions from "
+                + indexedTests.get() + " tests.");
+    }
+}
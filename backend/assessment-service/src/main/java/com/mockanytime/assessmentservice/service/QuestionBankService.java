@@ -0,0 +1,210 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.BankQuestion;
+import com.mockanytime.assessmentservice.model.Question;
+import com.mockanytime.assessmentservice.model.Test;
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import com.mockanytime.assessmentservice.repository.QuestionRepository;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The standalone question bank. Kept in step with tests by polling
+ * test_change_events, so edits made on any instance reach it: every saved
+ * question is upserted by its ID and records which tests use it. The poll
+ * position is stored in Mongo, so a restart carries on where it stopped.
+ * Lookups by topic, subtopic and difficulty use the compound index, so
+ * building a paper never scans the tests collection.
+ */
+@Service
+public class QuestionBankService {
+
+    private static final String CURSORS = "event_cursors";
+    private static final String CURSOR_ID = "question-bank-sync";
+
+    private final MongoTemplate mongoTemplate;
+    private final QuestionRepository questionRepository;
+    private final long pollIntervalMillis;
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "question-bank-sync");
+        t.setDaemon(true);
+        return t;
+    });
+    // Syncer thread only; loaded from the stored position on the first poll
+    private TestChangeCursor cursor;
+
+    /** One page of bank questions and the number matching the filters. */
+    public record Page(List<Question> questions, long total) {
+    }
+
+    public QuestionBankService(MongoTemplate mongoTemplate, QuestionRepository questionRepository,
+            @Value("${question-bank.sync-interval-ms:2000}") long pollIntervalMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.questionRepository = questionRepository;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public Optional<Question> getQuestion(String id) {
+        return questionRepository.findById(id).map(BankQuestion::toQuestion);
+    }
+
+    public Page getPage(String topicId, String subtopicId, String difficulty, int page, int size) {
+        Query query = Query.query(filter(topicId, subtopicId, difficulty));
+        long total = mongoTemplate.count(query, BankQuestion.class);
+        query.with(Sort.by("_id")).skip((long) Math.max(page, 0) * size).limit(size);
+        List<Question> questions = mongoTemplate.find(query, BankQuestion.class).stream()
+                .map(BankQuestion::toQuestion)
+                .toList();
+        return new Page(questions, total);
+    }
+
+    /** Up to {@code count} distinct random questions matching the filters. */
+    public List<Question> sample(String topicId, String subtopicId, String difficulty, int count) {
+        // $match on the index first, so $sample only shuffles the matching questions
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(filter(topicId, subtopicId, difficulty)),
+                Aggregation.sample(count));
+        return mongoTemplate.aggregate(aggregation, BankQuestion.class, BankQuestion.class).getMappedResults()
+                .stream()
+                .map(BankQuestion::toQuestion)
+                .toList();
+    }
+
+    /** Upserts the test's questions and detaches the ones it no longer has. Returns how many were written. */
+    public int syncTest(Test test) {
+        List<Question> questions = test.getQuestions() != null ? test.getQuestions() : List.of();
+        Date now = new Date();
+        List<String> ids = new ArrayList<>();
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BankQuestion.class);
+        for (Question q : questions) {
+            if (q.getId() == null || q.getText() == null || q.getText().isBlank()) {
+                continue;
+            }
+            ids.add(q.getId());
+            ops.upsert(Query.query(Criteria.where("_id").is(q.getId())), new Update()
+                    .set("text", q.getText())
+                    .set("type", q.getType())
+                    .set("options", q.getOptions())
+                    .set("correctAnswer", q.getCorrectAnswer())
+                    .set("explanation", q.getExplanation())
+                    .set("points", q.getPoints())
+                    .set("topicId", q.getTopicId() != null ? q.getTopicId() : test.getTopicId())
+                    .set("subtopicId", q.getSubtopicId() != null ? q.getSubtopicId() : test.getSubtopicId())
+                    // A generated or mixed paper says nothing about how hard each of its questions is
+                    .setOnInsert("difficulty", test.getDifficulty())
+                    .set("imageUrl", q.getImageUrl())
+                    .set("imageHash", q.getImageHash())
+                    .setOnInsert("createdBy", test.getCreatedBy())
+                    .addToSet("testIds", test.getId())
+                    .set("updatedAt", now));
+        }
+        if (!ids.isEmpty()) {
+            ops.execute();
+        }
+        detach(test.getId(), ids);
+        return ids.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        syncer.scheduleWithFixedDelay(this::pollChangeEvents, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Every instance polls; syncing a test twice is harmless, and the stored position only moves forward
+    void pollChangeEvents() {
+        try {
+            if (cursor == null) {
+                cursor = new TestChangeCursor(mongoTemplate, storedPosition());
+            }
+            long before = cursor.lastSeq();
+            cursor.poll(this::apply);
+            if (cursor.lastSeq() > before) {
+                mongoTemplate.upsert(Query.query(Criteria.where("_id").is(CURSOR_ID)),
+                        new Update().max("value", cursor.lastSeq()), CURSORS);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to poll test change events for the question bank: " + e.getMessage());
+        }
+    }
+
+    private long storedPosition() {
+        Document stored = mongoTemplate.findById(CURSOR_ID, Document.class, CURSORS);
+        if (stored == null) {
+            // First run: existing tests are brought in by the migration job
+            return TestChangeCursor.newestSeq(mongoTemplate);
+        }
+        long position = ((Number) stored.get("value")).longValue();
+        TestChangeEvent oldest = mongoTemplate.findOne(new Query()
+                .with(Sort.by(Sort.Direction.ASC, "seq")).limit(1), TestChangeEvent.class);
+        if (oldest != null && oldest.getSeq() > position + 1) {
+            // Events after the stored position have expired; only a full pass can catch up
+            System.err.println("Question bank missed test change events " + (position + 1) + " to "
+                    + (oldest.getSeq() - 1) + "; resyncing every test.");
+            long newest = TestChangeCursor.newestSeq(mongoTemplate);
+            try (Stream<Test> tests = mongoTemplate.stream(new Query(), Test.class)) {
+                tests.forEach(this::syncTest);
+            }
+            return newest;
+        }
+        return position;
+    }
+
+    private void apply(TestChangeEvent event) {
+        String testId = event.getTestId();
+        try {
+            Test test = TestChangeEvent.DELETED.equals(event.getType()) ? null
+                    : mongoTemplate.findById(testId, Test.class);
+            if (test != null) {
+                syncTest(test);
+            } else {
+                // Questions stay in the bank for other papers; only the link goes
+                detach(testId, List.of());
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to sync question bank for test " + testId + ": " + e.getMessage());
+        }
+    }
+
+    private void detach(String testId, List<String> keepIds) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("testIds").is(testId).and("_id").nin(keepIds)),
+                new Update().pull("testIds", testId), BankQuestion.class);
+    }
+
+    private static Criteria filter(String topicId, String subtopicId, String difficulty) {
+        Criteria criteria = new Criteria();
+        if (topicId != null && !topicId.isBlank()) {
+            criteria.and("topicId").is(topicId);
+        }
+        if (subtopicId != null && !subtopicId.isBlank()) {
+            criteria.and("subtopicId").is(subtopicId);
+        }
+        if (difficulty != null && !difficulty.isBlank()) {
+            criteria.and("difficulty").is(difficulty);
+        }
+        return criteria;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncer.shutdownNow();
+    }
+}
@@ -1,30 +1,131 @@
 package com.mockanytime.assessmentservice.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mockanytime.assessmentservice.model.Question;
-import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.ChatClient;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.parser.BeanOutputParser;
 import org.springframework.stereotype.Service;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 public class QuestionExtractionService {
 
+    private static final String PROMPT = """
+            Extract all multiple choice questions from the provided text.
+            The text may contain OCR noise or fragments labeled "[Image Text Content]:".
+            Synthesize coherent questions from these fragments if they appear to belong together.
+
+            EXTRACT:
+            - Question text (clear and concise)
+            - Options (exactly four: a, b, c, d)
+            - Correct Answer (one of the options)
+
+            RULES:
+            1. JSON ONLY. No explanation text outside the JSON.
+            2. "correctAnswer" must match one of the "options" exactly.
+            3. Clean OCR noise (random symbols, broken words).
+            4. If a question is incomplete, skip it rather than guessing.
+
+            FORMAT:
+            {
+              "questions": [
+                {
+                  "text": "...",
+                  "options": ["...", "...", "...", "..."],
+                  "correctAnswer": "...",
+                  "type": "mcq",
+                  "points": 1
+                }
+              ]
+            }
+
+            Text to analyze:
+            {text}
+            """;
+
+    // Bump when PROMPT or the parsing of its output changes, so cached extractions are not reused
+    private static final String PROMPT_VERSION = "1";
+    private static final String CACHE_NAMESPACE = "llm";
+
+    private static final int MAX_ATTEMPTS = 3;
+
     @org.springframework.beans.factory.annotation.Autowired(required = false)
     private ChatClient chatClient;
 
+    @Autowired
+    private ExtractionCache extractionCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
+
+    // Otherwise questions already in the bank are kept but flagged with duplicateOf
+    @Value("${question-bank.drop-duplicates:false}")
+    private boolean dropBankDuplicates;
+
+    @Value("${spring.ai.openai.chat.options.model:}")
+    private String model;
+
     @Value("${spring.ai.openai.api-key:}")
     private String apiKey;
 
     @Value("${spring.ai.openai.base-url:}")
     private String baseUrl;
 
+    @Value("${question-extraction.chunk-chars:12000}")
+    private int chunkChars;
+
+    @Value("${question-extraction.overlap-chars:1000}")
+    private int overlapChars;
+
+    @Value("${question-extraction.questions-per-chunk:20}")
+    private int questionsPerChunk;
+
+    @Value("${question-extraction.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${question-extraction.requests-per-minute:30}")
+    private int requestsPerMinute;
+
+    // Shared by every upload, so the limits hold for the API key as a whole
+    private ExecutorService executor;
+    private long callIntervalNanos;
+    private long nextCallAt = System.nanoTime();
+
     @PostConstruct
     public void init() {
+        overlapChars = Math.min(overlapChars, chunkChars / 2);
+        callIntervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(requestsPerMinute, 1);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(maxConcurrent, 1), r -> {
+            Thread t = new Thread(r, "question-extract-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
         System.out.println("=== AI SUPER DIAGNOSTICS ===");
         System.out.println("Base URL: " + baseUrl);
 
@@ -68,104 +169,221 @@ public class QuestionExtractionService {
         System.out.println("============================");
     }
 
-    public List<Question> extractQuestions(String text, String topicId, String subtopicId) {
-        String promptString = """
-                Extract all multiple choice questions from the provided text.
-                The text may contain OCR noise or fragments labeled "[Image Text Content]:".
-                Synthesize coherent questions from these fragments if they appear to belong together.
+    /** Questions in paper order; {@code failedChunks} counts chunks the model could not answer, even on retry. */
+    public record Extraction(List<Question> questions, int chunks, int failedChunks) {
+        public boolean complete() {
+            return failedChunks == 0;
+        }
 
-                EXTRACT:
-                - Question text (clear and concise)
-                - Options (exactly four: a, b, c, d)
-                - Correct Answer (one of the options)
+        public String failureMessage() {
+            return complete() ? null : failedChunks + " of " + chunks
+                    + " parts of the document could not be read; some questions may be missing";
+        }
+    }
 
-                RULES:
-                1. JSON ONLY. No explanation text outside the JSON.
-                2. "correctAnswer" must match one of the "options" exactly.
-                3. Clean OCR noise (random symbols, broken words).
-                4. If a question is incomplete, skip it rather than guessing.
+    public Extraction extractQuestions(String text, String topicId, String subtopicId) {
+        try {
+            return extractQuestions(text, topicId, subtopicId, batch -> {
+            }).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
 
-                FORMAT:
-                {
-                  "questions": [
-                    {
-                      "text": "...",
-                      "options": ["...", "...", "...", "..."],
-                      "correctAnswer": "...",
-                      "type": "mcq",
-                      "points": 1
-                    }
-                  ]
+    /**
+     * Extracts questions chunk by chunk, handing each chunk's new questions to
+     * {@code onBatch} as soon as they are parsed. Calls to {@code onBatch} are
+     * never concurrent. Cancelling the returned future skips chunks not yet sent.
+     * Fails only if every chunk failed; otherwise the result says how many did.
+     */
+    public CompletableFuture<Extraction> extractQuestions(String text, String topicId, String subtopicId,
+            Consumer<List<Question>> onBatch) {
+        List<String> chunks = QuestionTextChunker.split(text, chunkChars, overlapChars, questionsPerChunk);
+        System.out.println("Extracting questions from " + (text != null ? text.length() : 0) + " chars in "
+                + chunks.size() + " chunk(s).");
+
+        CompletableFuture<Extraction> result = new CompletableFuture<>();
+        // Chunks overlap, so the same question can come back twice; guarded by itself
+        MinHashIndex<Question> seen = new MinHashIndex<>();
+        Set<String> exact = new HashSet<>();
+        // Kept per chunk so the full list comes back in paper order, whatever order chunks finish in
+        List<List<Question>> byChunk = new ArrayList<>(Collections.nCopies(chunks.size(), List.<Question>of()));
+        AtomicInteger failed = new AtomicInteger();
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[chunks.size()];
+        for (int i = 0; i < chunks.size(); i++) {
+            String chunk = chunks.get(i);
+            int index = i;
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                List<Question> questions;
+                try {
+                    questions = extractChunk(chunk, index, chunks.size());
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    System.err.println("Chunk " + (index + 1) + "/" + chunks.size() + " failed: " + e.getMessage());
+                    return;
                 }
 
-                Text to analyze:
-                {text}
-                """;
-
-        BeanOutputParser<QuestionList> parser = new BeanOutputParser<>(QuestionList.class);
-
-        Prompt prompt = new Prompt(promptString.replace("{text}", text));
-        long startTime = System.currentTimeMillis();
-        System.out.println("Sending extraction prompt to Groq (Doc Length: " + text.length() + " chars)...");
+                // Compare against the bank outside the lock; it has its own
+                for (Question q : questions) {
+                    questionBankIndex.findDuplicate(q).ifPresent(q::setDuplicateOf);
+                }
 
-        String response;
-        try {
-            response = chatClient.call(prompt).getResult().getOutput().getContent();
-            long duration = System.currentTimeMillis() - startTime;
-            System.out.println("AI Response received in " + duration + "ms. Response Length: " + response.length());
-        } catch (Exception e) {
-            System.err.println(
-                    "API Call failed after " + (System.currentTimeMillis() - startTime) + "ms: " + e.getMessage());
-            throw e;
+                synchronized (seen) {
+                    List<Question> fresh = new ArrayList<>();
+                    for (Question q : questions) {
+                        String normalized = MinHashIndex.normalize(q.getText(), q.getOptions());
+                        if ((dropBankDuplicates && q.getDuplicateOf() != null) || !exact.add(normalized)) {
+                            continue;
+                        }
+                        // Only exact repeats are dropped: "is" and "is NOT" versions of a question look alike
+                        int[] signature = MinHashIndex.signature(normalized);
+                        if (q.getDuplicateOf() == null) {
+                            seen.best(signature, questionBankIndex.threshold()).ifPresent(m -> q.setDuplicateOf(
+                                    new Question.DuplicateOf(null, null, m.value().getId(), m.similarity())));
+                        }
+                        seen.add(q, signature);
+                        q.setTopicId(topicId);
+                        q.setSubtopicId(subtopicId);
+                        fresh.add(q);
+                    }
+                    byChunk.set(index, fresh);
+                    if (!fresh.isEmpty() && !result.isDone()) {
+                        try {
+                            onBatch.accept(fresh);
+                        } catch (RuntimeException e) {
+                            result.completeExceptionally(e);
+                        }
+                    }
+                }
+            }, executor);
         }
 
-        // Basic cleanup of response in case AI adds markdown
-        if (response.contains("```json")) {
-            response = response.substring(response.indexOf("```json") + 7);
-            if (response.contains("```")) {
-                response = response.substring(0, response.indexOf("```"));
+        CompletableFuture.allOf(tasks).whenComplete((v, e) -> {
+            if (!chunks.isEmpty() && failed.get() == chunks.size()) {
+                result.completeExceptionally(new IllegalStateException("Question extraction failed for every chunk"));
+                return;
             }
-        } else if (response.contains("```")) {
-            response = response.substring(response.indexOf("```") + 3);
-            if (response.contains("```")) {
-                response = response.substring(0, response.indexOf("```"));
+            List<Question> extracted = new ArrayList<>();
+            synchronized (seen) {
+                byChunk.forEach(extracted::addAll);
             }
-        }
+            System.out.println("Successfully extracted " + extracted.size() + " valid questions"
+                    + (failed.get() > 0 ? " (" + failed.get() + " chunk(s) failed)." : "."));
+            result.complete(new Extraction(extracted, chunks.size(), failed.get()));
+        });
+        return result;
+    }
 
-        response = response.trim();
+    private List<Question> extractChunk(String chunk, int index, int total) throws InterruptedException {
+        // Same questions under the same prompt and model, so a repeat import does not go back to the model
+        String cacheKey = ExtractionCache.sha256((PROMPT_VERSION + ":" + model + ":"
+                + QuestionTextChunker.normalize(chunk)).getBytes(StandardCharsets.UTF_8));
+        List<Question> cached = readCached(cacheKey);
+        if (cached != null) {
+            System.out.println("Chunk " + (index + 1) + "/" + total + " served from extraction cache ("
+                    + cached.size() + " questions).");
+            return cached;
+        }
 
-        try {
-            // Using simple structure for the output parser or manual mapping if needed.
-            QuestionList parsed = parser.parse(response);
-            List<Question> questions = parsed.getQuestions();
-            if (questions != null) {
-                // Remove invalid questions (must have text, 4 options, and correct answer)
-                questions.removeIf(q -> !isValidQuestion(q));
-
-                questions.forEach(q -> {
-                    q.setTopicId(topicId);
-                    q.setSubtopicId(subtopicId);
-                    if (q.getType() == null)
-                        q.setType("mcq");
-                    if (q.getPoints() == 0)
-                        q.setPoints(1);
-                });
-                System.out.println("Successfully extracted " + questions.size() + " valid questions.");
+        Prompt prompt = new Prompt(PROMPT.replace("{text}", chunk));
+
+        for (int attempt = 1;; attempt++) {
+            awaitRateLimit();
+            long startTime = System.currentTimeMillis();
+            System.out.println("Sending extraction prompt to Groq (chunk " + (index + 1) + "/" + total + ", "
+                    + chunk.length() + " chars)...");
+            try {
+                String response = chatClient.call(prompt).getResult().getOutput().getContent();
+                System.out.println("AI Response for chunk " + (index + 1) + " received in "
+                        + (System.currentTimeMillis() - startTime) + "ms. Response Length: " + response.length());
+                List<Question> questions = parseResponse(response);
+                if (questions == null) {
+                    return List.of();
+                }
+                writeCached(cacheKey, questions);
                 return questions;
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to parse AI response as JSON: " + e.getMessage());
-            // Fallback: try to find a JSON array manually if parser fails
-            if (response.contains("[") && response.contains("]")) {
-                try {
-                    System.out.println("Attempting fallback parsing for potential array.");
-                    // In a real scenario, we'd use Jackson to parse this if BeanOutputParser fails
-                } catch (Exception e2) {
-                    System.err.println("Fallback parsing also failed.");
+            } catch (RuntimeException e) {
+                System.err.println(
+                        "API Call failed after " + (System.currentTimeMillis() - startTime) + "ms: " + e.getMessage());
+                if (attempt >= MAX_ATTEMPTS || !isRateLimited(e)) {
+                    throw e;
                 }
+                // The provider's per-minute window has to roll over before a retry can succeed
+                TimeUnit.SECONDS.sleep(5L * attempt);
             }
         }
-        return List.of();
+    }
+
+    // Spaces calls evenly so all uploads together stay under the provider's requests-per-minute limit
+    private void awaitRateLimit() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextCallAt);
+            nextCallAt = slot + callIntervalNanos;
+            wait = slot - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private static boolean isRateLimited(Exception e) {
+        String message = String.valueOf(e.getMessage()).toLowerCase();
+        return message.contains("429") || message.contains("rate limit");
+    }
+
+    private List<Question> readCached(String cacheKey) {
+        Optional<String> json = extractionCache.get(CACHE_NAMESPACE, cacheKey);
+        if (json.isEmpty()) {
+            return null;
+        }
+        try {
+            List<Question> questions = objectMapper.readValue(json.get(), new TypeReference<List<Question>>() {
+            });
+            // Every import gets questions of its own
+            questions.forEach(q -> q.setId(UUID.randomUUID().toString()));
+            return questions;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private void writeCached(String cacheKey, List<Question> questions) {
+        try {
+            extractionCache.put(CACHE_NAMESPACE, cacheKey, objectMapper.writeValueAsString(questions));
+        } catch (JsonProcessingException e) {
+            System.err.println("Failed to cache extracted questions: " + e.getMessage());
+        }
+    }
+
+    /** Valid questions in the response, or null if it held no question list at all. */
+    private List<Question> parseResponse(String response) {
+        List<Question> questions = QuestionJsonReader.read(response, objectMapper);
+        if (questions == null) {
+            System.err.println("Failed to parse AI response as JSON: no question list found");
+            return null;
+        }
+
+        // Remove invalid questions (must have text, 4 options, and correct answer)
+        questions.removeIf(q -> !isValidQuestion(q));
+
+        questions.forEach(q -> {
+            if (q.getType() == null)
+                q.setType("mcq");
+            if (q.getPoints() == 0)
+                q.setPoints(1);
+        });
+        return questions;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
     }
 
     private boolean isValidQuestion(Question q) {
@@ -187,16 +405,4 @@ public class QuestionExtractionService {
 
         return answerInOptions;
     }
-
-    public static class QuestionList {
-        private List<Question> questions;
-
-        public List<Question> getQuestions() {
-            return questions;
-        }
-
-        public void setQuestions(List<Question> questions) {
-            this.questions = questions;
-        }
-    }
 }
@@ -0,0 +1,92 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mockanytime.assessmentservice.model.Question;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the questions array out of a model response one element at a time.
+ * Text around the JSON (markdown fences, commentary) is ignored. An element
+ * that does not map to a question is skipped; after a syntax error reading
+ * resumes at the next object; a response cut off mid-way yields the
+ * questions completed before the cut.
+ */
+final class QuestionJsonReader {
+
+    private static final Pattern QUESTIONS_ARRAY = Pattern.compile("\"questions\"\\s*:\\s*\\[");
+    private static final Pattern OBJECT_START = Pattern.compile("\\{\\s*\"");
+
+    private QuestionJsonReader() {
+    }
+
+    /** Questions read from the response, or null if it has no JSON array at all. */
+    static List<Question> read(String response, ObjectMapper mapper) {
+        if (response == null) {
+            return null;
+        }
+        int arrayStart;
+        Matcher matcher = QUESTIONS_ARRAY.matcher(response);
+        if (matcher.find()) {
+            arrayStart = matcher.end() - 1;
+        } else {
+            arrayStart = response.indexOf('[');
+            if (arrayStart < 0) {
+                return null;
+            }
+        }
+
+        List<Question> questions = new ArrayList<>();
+        String input = response.substring(arrayStart);
+        while (true) {
+            int resumeFrom;
+            try {
+                readArray(input, mapper, questions);
+                return questions;
+            } catch (JsonEOFException e) {
+                return questions;
+            } catch (JsonProcessingException e) {
+                // Past the opening "[{" at least, so every retry reads a shorter input
+                resumeFrom = e.getLocation() != null ? (int) Math.max(e.getLocation().getCharOffset(), 2)
+                        : input.length();
+            } catch (IOException e) {
+                return questions;
+            }
+
+            // Skip the broken element and read the rest as a new array
+            Matcher next = OBJECT_START.matcher(input);
+            if (resumeFrom >= input.length() || !next.find(resumeFrom)) {
+                return questions;
+            }
+            input = "[" + input.substring(next.start());
+        }
+    }
+
+    private static void readArray(String input, ObjectMapper mapper, List<Question> questions) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(input)) {
+            parser.nextToken(); // START_ARRAY
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                JsonNode element = mapper.readTree(parser);
+                try {
+                    questions.add(mapper.treeToValue(element, Question.class));
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    // Well-formed JSON of the wrong shape, e.g. options given as one string
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.mockanytime.assessmentservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits document text into prompt-sized chunks made of whole questions, so
+ * each question is usually seen whole by exactly one chunk. Where a chunk
+ * ends is decided by the content of the question that follows, not by how
+ * far into the document it is, so an edit early in a paper leaves the
+ * chunks after it unchanged and their cached extractions are reused.
+ * Neighbouring chunks overlap by up to a few questions to catch ones whose
+ * numbering the boundary pattern missed; the duplicates this produces are
+ * removed after extraction.
+ */
+final class QuestionTextChunker {
+
+    // "1.", "12)", "Q3.", "Q.3", "Question 4:" at the start of a line, or a block of OCR'd image text
+    private static final Pattern BOUNDARY = Pattern.compile(
+            "(?m)^[ \\t]*(?:(?:Q(?:uestion)?[ \\t.]*)?\\d{1,4}[ \\t]*[.):]|\\[Image Text Content]:)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern NUMBER_LABEL = Pattern.compile(
+            "(?m)^[ \\t]*(?:Q(?:uestion)?[ \\t.]*)?\\d{1,4}[ \\t]*[.):]", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private QuestionTextChunker() {
+    }
+
+    /**
+     * Chunks of at most {@code maxChars}, averaging about
+     * {@code questionsPerChunk} questions each plus the overlap.
+     */
+    static List<String> split(String text, int maxChars, int overlapChars, int questionsPerChunk) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return chunks;
+        }
+        if (text.length() <= maxChars) {
+            chunks.add(text);
+            return chunks;
+        }
+
+        // Room left for a chunk's own questions once the overlap is in
+        int budget = Math.max(maxChars - overlapChars, 1);
+        StringBuilder chunk = new StringBuilder();
+        List<String> own = new ArrayList<>();
+        for (String segment : segments(text, budget)) {
+            if (!own.isEmpty() && (chunk.length() + segment.length() > maxChars
+                    || startsChunk(segment, questionsPerChunk))) {
+                chunks.add(chunk.toString());
+                chunk = new StringBuilder(tail(own, overlapChars));
+                own.clear();
+            }
+            chunk.append(segment);
+            own.add(segment);
+        }
+        chunks.add(chunk.toString());
+        return chunks;
+    }
+
+    /**
+     * The chunk as the model reads it: question numbers dropped and
+     * whitespace collapsed, so renumbering after an inserted question does
+     * not change it.
+     */
+    static String normalize(String chunk) {
+        return WHITESPACE.matcher(NUMBER_LABEL.matcher(chunk).replaceAll(" ")).replaceAll(" ").trim();
+    }
+
+    // One segment per question (plus any preamble), with ones too long for a chunk cut at line breaks
+    private static List<String> segments(String text, int budget) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        Matcher matcher = BOUNDARY.matcher(text);
+        while (matcher.find()) {
+            if (matcher.start() > 0) {
+                starts.add(matcher.start());
+            }
+        }
+        starts.add(text.length());
+
+        List<String> segments = new ArrayList<>();
+        for (int i = 0; i + 1 < starts.size(); i++) {
+            String segment = text.substring(starts.get(i), starts.get(i + 1));
+            while (segment.length() > budget) {
+                int end = lastBreakBefore(segment, 1, budget);
+                segments.add(segment.substring(0, end));
+                segment = segment.substring(end);
+            }
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    // Roughly one question in questionsPerChunk starts a new chunk, chosen by a hash of its text
+    private static boolean startsChunk(String segment, int questionsPerChunk) {
+        if (questionsPerChunk <= 1) {
+            return true;
+        }
+        int h = normalize(segment).hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return Math.floorMod(h, questionsPerChunk) == 0;
+    }
+
+    // The last whole questions that fit in overlapChars, else the end of the last segment from a line break
+    private static String tail(List<String> segments, int overlapChars) {
+        int from = segments.size();
+        int length = 0;
+        while (from > 0 && length + segments.get(from - 1).length() <= overlapChars) {
+            length += segments.get(--from).length();
+        }
+        // Start the overlap at a question, not at the preamble or the middle of a long one
+        while (from < segments.size() && !BOUNDARY.matcher(segments.get(from)).lookingAt()) {
+            from++;
+        }
+        if (from < segments.size()) {
+            return String.join("", segments.subList(from, segments.size()));
+        }
+
+        String last = segments.get(segments.size() - 1);
+        int start = Math.max(last.length() - overlapChars, 0);
+        int newline = last.indexOf('\n', Math.max(start - 1, 0));
+        if (newline >= 0 && newline + 1 < last.length()) {
+            return last.substring(newline + 1);
+        }
+        int space = last.indexOf(' ', Math.max(start - 1, 0));
+        return last.substring(space >= 0 && space + 1 < last.length() ? space + 1 : start);
+    }
+
+    private static int lastBreakBefore(String text, int from, int to) {
+        int newline = text.lastIndexOf('\n', to - 1);
+        if (newline >= from) {
+            return newline + 1;
+        }
+        int space = text.lastIndexOf(' ', to - 1);
+        return space >= from ? space + 1 : to;
+    }
+}
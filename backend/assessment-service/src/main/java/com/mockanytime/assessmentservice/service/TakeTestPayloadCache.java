@@ -0,0 +1,170 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mockanytime.assessmentservice.model.Test;
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import com.mockanytime.assessmentservice.repository.TestRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The "take test" response for each test, with correct answers removed,
+ * serialized and gzipped once per test version. When an exam opens, every
+ * student after the first is served these bytes without a Mongo read or any
+ * serialization. Tests that shuffle per student also keep the parsed paper,
+ * so each student's order is a rearrangement of shared nodes rather than a
+ * fresh read. Bounded by total size, least recently used first.
+ */
+@Service
+public class TakeTestPayloadCache {
+
+    private final TestRepository testRepository;
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+
+    // Access-ordered for LRU eviction; guarded by this
+    private final LinkedHashMap<String, Payload> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+
+    private final Map<String, Long> announcedVersions = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Payload>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Gzipped JSON of the sanitized test; etag changes with the test version.
+     * {@code paper} is the same JSON as a tree, kept only if the test shuffles.
+     */
+    public record Payload(byte[] gzipped, String etag, long version, long builtAt, ObjectNode paper, long weight) {
+    }
+
+    public TakeTestPayloadCache(TestRepository testRepository, ObjectMapper objectMapper,
+            @Value("${take-test-cache.max-bytes:33554432}") long maxBytes,
+            @Value("${take-test-cache.max-age-seconds:30}") long maxAgeSeconds) {
+        this.testRepository = testRepository;
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeSeconds * 1000;
+    }
+
+    /** Returns null if the test does not exist. */
+    public Payload get(String testId) {
+        Payload cached = lookup(testId);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Only one build per test is in flight; the rest of the exam-start burst waits for it
+        CompletableFuture<Payload> mine = new CompletableFuture<>();
+        CompletableFuture<Payload> existing = inFlight.putIfAbsent(testId, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        try {
+            Payload payload = testRepository.findById(testId).map(this::render).orElse(null);
+            if (payload != null) {
+                store(testId, payload);
+            }
+            mine.complete(payload);
+            return payload;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(testId, mine);
+        }
+    }
+
+    @EventListener
+    public synchronized void onTestChanged(TestChangeEvent event) {
+        announcedVersions.merge(event.getTestId(), event.getVersion(), Math::max);
+        Payload removed = entries.remove(event.getTestId());
+        if (removed != null) {
+            currentBytes -= removed.weight();
+        }
+    }
+
+    /** JSON of the paper in the order {@code seed} gives; the payload must have a paper. */
+    public byte[] shuffled(Payload payload, long seed) {
+        try {
+            return objectMapper.writeValueAsBytes(PaperShuffle.apply(payload.paper(), seed));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Payload render(Test test) {
+        // A freshly loaded entity, so clearing answers here affects nothing else
+        test.getQuestions().forEach(q -> q.setCorrectAnswer(null));
+        ObjectNode paper = test.isShuffleQuestions() || test.isShuffleOptions()
+                ? objectMapper.valueToTree(test)
+                : null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long treeWeight = 0;
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            if (paper != null) {
+                byte[] json = objectMapper.writeValueAsBytes(paper);
+                gzip.write(json);
+                treeWeight = 2L * json.length; // A tree takes roughly twice its JSON size
+            } else {
+                objectMapper.writeValue(gzip, test);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] gzipped = bytes.toByteArray();
+        return new Payload(gzipped, "\"" + test.getId() + "-" + test.getVersion() + "\"",
+                test.getVersion(), System.currentTimeMillis(), paper, gzipped.length + treeWeight);
+    }
+
+    private synchronized Payload lookup(String testId) {
+        Payload cached = entries.get(testId);
+        // Edits on another instance only reach us through the age limit
+        if (cached != null && System.currentTimeMillis() - cached.builtAt() > maxAgeMillis) {
+            entries.remove(testId);
+            currentBytes -= cached.weight();
+            return null;
+        }
+        return cached;
+    }
+
+    private synchronized void store(String testId, Payload payload) {
+        // A build that raced with an edit may have read the old version
+        Long announced = announcedVersions.get(testId);
+        if (announced != null && payload.version() < announced) {
+            return;
+        }
+        long weight = payload.weight();
+        if (weight > maxBytes) {
+            return;
+        }
+        Payload previous = entries.put(testId, payload);
+        if (previous != null) {
+            currentBytes -= previous.weight();
+        }
+        currentBytes += weight;
+
+        Iterator<Map.Entry<String, Payload>> it = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            currentBytes -= it.next().getValue().weight();
+            it.remove();
+        }
+    }
+}
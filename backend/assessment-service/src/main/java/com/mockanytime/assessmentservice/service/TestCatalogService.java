@@ -0,0 +1,183 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.dto.TestCardDto;
+import com.mockanytime.assessmentservice.model.Test;
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read model behind the test catalogue: card metadata for every test, built
+ * with one projection that leaves questions in the database. Rebuilt after any
+ * local create, edit or delete, and at most max-age-seconds after an edit made
+ * on another instance.
+ */
+@Service
+public class TestCatalogService {
+
+    private final MongoTemplate mongoTemplate;
+    private final long maxAgeMillis;
+    private volatile Catalog catalog;
+
+    // Changes announced since the last build, for spotting builds that raced with them
+    private final Map<String, Announced> announced = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    // generation orders an announcement against the start of a build
+    private record Announced(long version, boolean deleted, long generation) {
+    }
+
+    /** An immutable copy of the catalogue with a tag that changes whenever any card does. */
+    public record Catalog(List<TestCardDto> cards, String etag, long builtAt, Map<String, Long> versions) {
+    }
+
+    /** One page of cards; etag identifies exactly this page of this catalogue. */
+    public record Page(List<TestCardDto> cards, long total, String etag) {
+    }
+
+    public TestCatalogService(MongoTemplate mongoTemplate,
+            @Value("${catalog.max-age-seconds:60}") long maxAgeSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxAgeMillis = maxAgeSeconds * 1000;
+    }
+
+    public Page getPage(String topicId, String category, Integer page, Integer size) {
+        Catalog current = current();
+
+        List<TestCardDto> filtered = current.cards();
+        if (hasText(topicId) || hasText(category)) {
+            filtered = filtered.stream()
+                    .filter(c -> !hasText(topicId) || topicId.equals(c.topicId()))
+                    .filter(c -> !hasText(category) || category.equalsIgnoreCase(c.category()))
+                    .toList();
+        }
+
+        List<TestCardDto> cards = filtered;
+        if (size != null && size > 0) {
+            int from = (int) Math.min((long) Math.max(page != null ? page : 0, 0) * size, filtered.size());
+            cards = filtered.subList(from, Math.min(from + size, filtered.size()));
+        }
+
+        String etag = "\"" + sha256(current.etag() + "|" + topicId + "|" + category + "|" + page + "|" + size)
+                .substring(0, 32) + "\"";
+        return new Page(cards, filtered.size(), etag);
+    }
+
+    @EventListener
+    public void onTestChanged(TestChangeEvent event) {
+        Announced change = new Announced(event.getVersion(), TestChangeEvent.DELETED.equals(event.getType()),
+                generation.incrementAndGet());
+        announced.merge(event.getTestId(), change, (old, next) -> next.deleted() || next.version() >= old.version()
+                ? next
+                : new Announced(old.version(), old.deleted(), next.generation()));
+        catalog = null;
+    }
+
+    private Catalog current() {
+        Catalog current = catalog;
+        if (current == null || System.currentTimeMillis() - current.builtAt() > maxAgeMillis) {
+            synchronized (this) {
+                current = catalog;
+                if (current == null || System.currentTimeMillis() - current.builtAt() > maxAgeMillis) {
+                    long startedAt = generation.get();
+                    current = build();
+                    // A build that raced with an edit may have read old cards; the next request rebuilds
+                    boolean raced = settle(current, startedAt);
+                    if (!raced) {
+                        catalog = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    private Catalog build() {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.project("title", "description", "category", "difficulty", "durationMinutes",
+                        "isPremium", "price", "topicId", "subtopicId", "tags", "createdAt", "version")
+                        .and(ArrayOperators.Size.lengthOfArray(
+                                ConditionalOperators.ifNull("questions").then(List.of())))
+                        .as("questionCount"),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        List<TestCardDto> cards = new ArrayList<>();
+        Map<String, Long> versions = new HashMap<>();
+        StringBuilder tag = new StringBuilder();
+        for (Document d : mongoTemplate.aggregate(agg, Test.class, Document.class)) {
+            String id = String.valueOf(d.get("_id"));
+            cards.add(new TestCardDto(
+                    id,
+                    d.getString("title"),
+                    d.getString("description"),
+                    d.getString("category"),
+                    d.getString("difficulty"),
+                    number(d.get("durationMinutes")).intValue(),
+                    Boolean.TRUE.equals(d.getBoolean("isPremium")),
+                    number(d.get("price")).doubleValue(),
+                    number(d.get("questionCount")).intValue(),
+                    d.getString("topicId"),
+                    d.getString("subtopicId"),
+                    d.getList("tags", String.class, List.of()),
+                    d.getDate("createdAt")));
+            long version = number(d.get("version")).longValue();
+            versions.put(id, version);
+            tag.append(id).append(':').append(version).append(';');
+        }
+        // Card fields only change through TestService, which bumps the version
+        return new Catalog(List.copyOf(cards), sha256(tag.toString()), System.currentTimeMillis(),
+                Map.copyOf(versions));
+    }
+
+    /**
+     * Forgets announcements the build reflects, and ones made before it started:
+     * those changes were already saved, so a test missing from the build was
+     * deleted, possibly on another instance. Returns whether a change announced
+     * during the build is missing from it.
+     */
+    private boolean settle(Catalog built, long startedAt) {
+        boolean stale = false;
+        for (Map.Entry<String, Announced> entry : announced.entrySet()) {
+            Announced change = entry.getValue();
+            Long version = built.versions().get(entry.getKey());
+            boolean reflected = change.deleted() ? version == null : version != null && version >= change.version();
+            if (reflected || change.generation() <= startedAt) {
+                announced.remove(entry.getKey(), change);
+            } else {
+                stale = true;
+            }
+        }
+        return stale;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number n ? n : 0;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Position in test_change_events for one consumer. Unlike the in-process
+ * event, the collection carries changes made on every assessment instance.
+ * Not thread-safe; each consumer polls from its own thread.
+ */
+final class TestChangeCursor {
+
+    // Sequence numbers are allocated before the insert, so a later event can become
+    // visible first. The cursor waits at a gap this long for the missing event, which
+    // may never come if its insert failed.
+    static final long GAP_WAIT_MILLIS = 60_000;
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private long lastSeq;
+    private long gapSeenAt;
+
+    TestChangeCursor(MongoTemplate mongoTemplate, long lastSeq) {
+        this.mongoTemplate = mongoTemplate;
+        this.lastSeq = lastSeq;
+    }
+
+    /** Seq of the newest event, or 0 if there is none; a cursor started here skips all history. */
+    static long newestSeq(MongoTemplate mongoTemplate) {
+        TestChangeEvent newest = mongoTemplate.findOne(new Query()
+                .with(Sort.by(Sort.Direction.DESC, "seq")).limit(1), TestChangeEvent.class);
+        return newest != null ? newest.getSeq() : 0;
+    }
+
+    /** Hands every event after the cursor to {@code apply} in seq order, then moves the cursor. */
+    void poll(Consumer<TestChangeEvent> apply) {
+        Query query = Query.query(Criteria.where("seq").gt(lastSeq))
+                .with(Sort.by(Sort.Direction.ASC, "seq"))
+                .limit(BATCH_SIZE);
+        List<TestChangeEvent> events = mongoTemplate.find(query, TestChangeEvent.class);
+        events.forEach(apply);
+        advance(events, System.currentTimeMillis());
+    }
+
+    // Moves only past contiguous events; events behind a gap are read again
+    // next time, so consumers must be fine applying an event twice
+    void advance(List<TestChangeEvent> events, long now) {
+        for (TestChangeEvent event : events) {
+            if (event.getSeq() == lastSeq + 1) {
+                lastSeq = event.getSeq();
+            } else if (gapSeenAt != 0 && now - gapSeenAt >= GAP_WAIT_MILLIS) {
+                System.err.println("Skipping test change events " + (lastSeq + 1) + " to " + (event.getSeq() - 1)
+                        + " that never appeared");
+                lastSeq = event.getSeq();
+                gapSeenAt = 0;
+            } else {
+                if (gapSeenAt == 0) {
+                    gapSeenAt = now;
+                }
+                return;
+            }
+        }
+        gapSeenAt = 0;
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+}
@@ -0,0 +1,47 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+
+@Service
+@RequiredArgsConstructor
+public class TestChangePublisher {
+
+    private static final String SEQUENCES = "sequences";
+    private static final String EVENT_SEQUENCE = "test_change_events";
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public void publish(String testId, long version, String type) {
+        TestChangeEvent event = new TestChangeEvent(null, 0, testId, version, type, new Date());
+        try {
+            event.setSeq(nextSeq());
+            mongoTemplate.insert(event);
+        } catch (Exception e) {
+            System.err.println("Failed to persist test change event for " + testId + ": " + e.getMessage());
+        }
+        // Local caches listen for the same event in-process
+        eventPublisher.publishEvent(event);
+    }
+
+    // Shared across assessment instances, so consumers see one ordered stream
+    private long nextSeq() {
+        Document counter = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(EVENT_SEQUENCE)),
+                new Update().inc("value", 1L),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, SEQUENCES);
+        return ((Number) counter.get("value")).longValue();
+    }
+}
@@ -1,9 +1,20 @@
 package com.mockanytime.assessmentservice.service;
 
+import com.mockanytime.assessmentservice.dto.GenerateTestRequest;
+import com.mockanytime.assessmentservice.model.Question;
 import com.mockanytime.assessmentservice.model.Test;
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import com.mockanytime.assessmentservice.model.TestVersion;
 import com.mockanytime.assessmentservice.repository.TestRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,17 +22,54 @@ import java.util.Optional;
 public class TestService {
 
     private final TestRepository testRepository;
+    private final TestChangePublisher testChangePublisher;
+    private final ImageStore imageStore;
+    private final QuestionBankService questionBankService;
+    private final MongoTemplate mongoTemplate;
 
-    public TestService(TestRepository testRepository) {
+    public TestService(TestRepository testRepository, TestChangePublisher testChangePublisher,
+            ImageStore imageStore, QuestionBankService questionBankService, MongoTemplate mongoTemplate) {
         this.testRepository = testRepository;
+        this.testChangePublisher = testChangePublisher;
+        this.imageStore = imageStore;
+        this.questionBankService = questionBankService;
+        this.mongoTemplate = mongoTemplate;
     }
 
     public Test createTest(Test test) {
-        return testRepository.save(test);
+        clearImportHints(test.getQuestions());
+        moveImagesToStore(test.getQuestions());
+        Test saved = testRepository.save(test);
+        testChangePublisher.publish(saved.getId(), saved.getVersion(), TestChangeEvent.CREATED);
+        return saved;
     }
 
-    public List<Test> getAllTests() {
-        return testRepository.findAll();
+    /**
+     * Creates a test from random bank questions. The test embeds copies that
+     * keep the bank IDs. Throws if the bank has fewer matching questions than asked for.
+     */
+    public Test generateTest(GenerateTestRequest request, String userId) {
+        if (request.questionCount() <= 0) {
+            throw new IllegalArgumentException("questionCount must be positive");
+        }
+        List<Question> questions = questionBankService.sample(request.topicId(), request.subtopicId(),
+                request.difficulty(), request.questionCount());
+        if (questions.size() < request.questionCount()) {
+            throw new IllegalArgumentException("Only " + questions.size()
+                    + " questions in the bank match; " + request.questionCount() + " requested");
+        }
+
+        Test test = new Test();
+        test.setTitle(request.title());
+        test.setDescription(request.description());
+        test.setCategory(request.category());
+        test.setDifficulty(request.difficulty());
+        test.setTopicId(request.topicId());
+        test.setSubtopicId(request.subtopicId());
+        test.setDurationMinutes(request.durationMinutes());
+        test.setCreatedBy(userId);
+        test.setQuestions(new ArrayList<>(questions));
+        return createTest(test);
     }
 
     public List<Test> getTestsByTeacher(String teacherId) {
@@ -32,9 +80,15 @@ public class TestService {
         return testRepository.findById(id);
     }
 
+    /**
+     * Saves an edit as the next version. Throws OptimisticLockingFailureException
+     * if another edit was saved since this one read the test, so a version
+     * number never names two different contents.
+     */
     public Test updateTest(String id, Test updates) {
         Test existing = testRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Test not found"));
+        long previousVersion = existing.getVersion();
 
         existing.setTitle(updates.getTitle());
         existing.setDescription(updates.getDescription());
@@ -42,14 +96,99 @@ public class TestService {
         existing.setCategory(updates.getCategory());
         existing.setDifficulty(updates.getDifficulty());
         existing.setQuestions(updates.getQuestions());
+        clearImportHints(existing.getQuestions());
+        moveImagesToStore(existing.getQuestions());
         existing.setPremium(updates.isPremium());
         existing.setPrice(updates.getPrice());
         existing.setTags(updates.getTags());
+        existing.setShuffleQuestions(updates.isShuffleQuestions());
+        existing.setShuffleOptions(updates.isShuffleOptions());
+        existing.setVersion(previousVersion + 1);
+
+        Test replaced = mongoTemplate.findAndReplace(
+                Query.query(new Criteria().andOperator(Criteria.where("_id").is(id), versionIs(previousVersion))),
+                existing);
+        if (replaced == null) {
+            throw new OptimisticLockingFailureException("Test " + id + " was changed by another edit");
+        }
+        archive(replaced, previousVersion);
+        testChangePublisher.publish(existing.getId(), existing.getVersion(), TestChangeEvent.UPDATED);
+        return existing;
+    }
 
-        return testRepository.save(existing);
+    /** The test as it was at {@code version}: the current one, or an archived copy kept for a week after an edit. */
+    public Optional<Test> getTestVersion(String id, long version) {
+        Optional<Test> current = testRepository.findById(id);
+        if (current.isPresent() && current.get().getVersion() == version) {
+            return current;
+        }
+        return Optional.ofNullable(mongoTemplate.findById(TestVersion.idFor(id, version), TestVersion.class))
+                .map(TestVersion::getTest);
+    }
+
+    // Papers already handed out were shuffled and numbered against the old questions
+    private void archive(Test replaced, long version) {
+        try {
+            mongoTemplate.save(new TestVersion(TestVersion.idFor(replaced.getId(), version), replaced.getId(),
+                    version, replaced, new Date()));
+        } catch (Exception e) {
+            // The edit itself is saved; submissions of older papers fall back to the current version
+            System.err.println("Failed to archive version " + version + " of test " + replaced.getId() + ": "
+                    + e.getMessage());
+        }
+    }
+
+    // Tests saved before versioning have no version field, which reads as 0
+    static Criteria versionIs(long version) {
+        return version == 0
+                ? new Criteria().orOperator(Criteria.where("version").is(0L), Criteria.where("version").exists(false))
+                : Criteria.where("version").is(version);
     }
 
     public void deleteTest(String id) {
+        long version = testRepository.findById(id).map(Test::getVersion).orElse(0L);
         testRepository.deleteById(id);
+        testChangePublisher.publish(id, version + 1, TestChangeEvent.DELETED);
+    }
+
+    // Duplicate flags describe the bank at import time and are not kept
+    private static void clearImportHints(List<Question> questions) {
+        if (questions != null) {
+            questions.forEach(q -> q.setDuplicateOf(null));
+        }
+    }
+
+    /**
+     * Replaces base64 data URLs in imageUrl with a reference to the image
+     * store, so tests stay small. Returns whether any question changed.
+     */
+    boolean moveImagesToStore(List<Question> questions) {
+        boolean changed = false;
+        if (questions == null) {
+            return false;
+        }
+        for (Question q : questions) {
+            String url = q.getImageUrl();
+            if (url == null || !url.startsWith("data:")) {
+                continue;
+            }
+            int comma = url.indexOf(',');
+            String header = comma > 0 ? url.substring(5, comma) : "";
+            if (!header.endsWith(";base64")) {
+                continue;
+            }
+            byte[] data;
+            try {
+                data = Base64.getMimeDecoder().decode(url.substring(comma + 1));
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            String contentType = header.substring(0, header.length() - ";base64".length());
+            q.setImageHash(imageStore.store(data,
+                    contentType.startsWith("image/") ? contentType : "application/octet-stream"));
+            q.setImageUrl(null);
+            changed = true;
+        }
+        return changed;
     }
 }
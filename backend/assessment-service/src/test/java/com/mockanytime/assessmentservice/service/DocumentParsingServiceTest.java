@@ -0,0 +1,81 @@
+package com.mockanytime.assessmentservice.service;
+
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DocumentParsingServiceTest {
+
+    @Mock
+    private PdfTextExtractor pdfTextExtractor;
+
+    @Mock
+    private OcrEnginePool ocrEnginePool;
+
+    @Mock
+    private ExtractionCache extractionCache;
+
+    private DocumentParsingService documentParsingService;
+    private Path docx;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(extractionCache.get(anyString(), anyString())).thenReturn(Optional.empty());
+        documentParsingService = new DocumentParsingService(pdfTextExtractor, ocrEnginePool, extractionCache);
+        docx = wordFileWithPicture();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(docx);
+    }
+
+    @Test
+    void testWordText_IsCachedWhenEveryPictureWasOcred() throws IOException {
+        when(ocrEnginePool.ocrAll(anyList())).thenReturn(new OcrEnginePool.Batch(List.of("Picture text"), 0));
+
+        String text = documentParsingService.extractText(docx, "paper.docx");
+
+        assertTrue(text.contains("Picture text"));
+        verify(extractionCache).put(eq("document"), anyString(), eq(text));
+    }
+
+    @Test
+    void testWordText_IsNotCachedWhenAPictureFailedOcr() throws IOException {
+        when(ocrEnginePool.ocrAll(anyList())).thenReturn(new OcrEnginePool.Batch(List.of(""), 1));
+
+        String text = documentParsingService.extractText(docx, "paper.docx");
+
+        assertTrue(text.contains("Question 1"));
+        verify(extractionCache, never()).put(anyString(), anyString(), any());
+    }
+
+    private static Path wordFileWithPicture() throws Exception {
+        Path file = Files.createTempFile("paper", ".docx");
+        try (XWPFDocument doc = new XWPFDocument(); OutputStream out = Files.newOutputStream(file)) {
+            doc.createParagraph().createRun().setText("Question 1: What is shown below?");
+            doc.addPictureData(new byte[] { (byte) 0x89, 'P', 'N', 'G', 1, 2, 3 }, Document.PICTURE_TYPE_PNG);
+            doc.write(out);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,230 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.ImportJob;
+import com.mockanytime.assessmentservice.model.Question;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ImportJobServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private DocumentParsingService documentParsingService;
+
+    @Mock
+    private QuestionExtractionService questionExtractionService;
+
+    private ImportJobService importJobService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.insert(any(ImportJob.class))).thenAnswer(invocation -> {
+            ImportJob job = invocation.getArgument(0);
+            job.setId("job-" + System.nanoTime());
+            return job;
+        });
+        importJobService = new ImportJobService(mongoTemplate, documentParsingService, questionExtractionService,
+                1, 1, 300);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importJobService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSubmit_PushesEachBatchAndCompletes() throws Exception {
+        when(documentParsingService.extractText(any(Path.class), eq("paper.pdf"))).thenReturn("Q1. Text");
+        Question question = new Question();
+        question.setText("Q1");
+        when(questionExtractionService.extractQuestions(eq("Q1. Text"), eq("topic"), eq("sub"), any()))
+                .thenAnswer(invocation -> {
+                    ((Consumer<List<Question>>) invocation.getArgument(3)).accept(List.of(question));
+                    return CompletableFuture.completedFuture(
+                            new QuestionExtractionService.Extraction(List.of(question), 1, 0));
+                });
+
+        ImportJob job = importJobService.submit(upload(), "topic", "sub", "u1");
+
+        assertEquals(ImportJob.QUEUED, job.getStatus());
+        List<Document> updates = updatesUntil(ImportJob.COMPLETED);
+        assertEquals(ImportJob.PARSING, set(updates.get(0)).get("status"));
+        assertEquals(ImportJob.EXTRACTING, set(updates.get(1)).get("status"));
+        assertEquals(1, updates.get(2).get("$inc", Document.class).get("questionCount"));
+        assertNotNull(set(updates.get(3)).get("finishedAt"));
+        assertEquals(0, set(updates.get(3)).get("failedChunks"));
+        assertNull(set(updates.get(3)).get("error"));
+    }
+
+    @Test
+    void testSubmit_FailedChunksAreRecordedOnTheCompletedJob() throws Exception {
+        when(documentParsingService.extractText(any(Path.class), anyString())).thenReturn("Q1. Text");
+        when(questionExtractionService.extractQuestions(anyString(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(
+                        new QuestionExtractionService.Extraction(List.of(new Question()), 3, 2)));
+
+        importJobService.submit(upload(), null, null, "u1");
+
+        List<Document> updates = updatesUntil(ImportJob.COMPLETED);
+        Document finished = set(updates.get(updates.size() - 1));
+        assertEquals(2, finished.get("failedChunks"));
+        assertEquals("2 of 3 parts of the document could not be read; some questions may be missing",
+                finished.get("error"));
+    }
+
+    @Test
+    void testSubmit_FailedParseMarksTheJobFailed() throws Exception {
+        when(documentParsingService.extractText(any(Path.class), anyString()))
+                .thenThrow(new IllegalArgumentException("Unsupported file format"));
+
+        importJobService.submit(upload(), null, null, "u1");
+
+        List<Document> updates = updatesUntil(ImportJob.FAILED);
+        assertEquals("Unsupported file format", set(updates.get(updates.size() - 1)).get("error"));
+        verifyNoInteractions(questionExtractionService);
+    }
+
+    @Test
+    void testSubmit_RefusedOnceTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(documentParsingService.extractText(any(Path.class), anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "";
+        });
+        when(questionExtractionService.extractQuestions(anyString(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(
+                        new QuestionExtractionService.Extraction(List.of(), 0, 0)));
+
+        assertNotNull(importJobService.submit(upload(), null, null, "u1"));
+        started.await();
+        assertNotNull(importJobService.submit(upload(), null, null, "u1"));
+        assertNull(importJobService.submit(upload(), null, null, "u1"));
+
+        release.countDown();
+        verify(mongoTemplate, times(2)).insert(any(ImportJob.class));
+    }
+
+    @Test
+    void testGet_JobOfADeadInstanceIsReportedFailed() {
+        ImportJob stale = new ImportJob();
+        stale.setId("j1");
+        stale.setStatus(ImportJob.EXTRACTING);
+        stale.setUpdatedAt(new Date(System.currentTimeMillis() - 600_000));
+        ImportJob failed = new ImportJob();
+        failed.setId("j1");
+        failed.setStatus(ImportJob.FAILED);
+        when(mongoTemplate.findOne(any(Query.class), eq(ImportJob.class))).thenReturn(stale, failed);
+
+        assertEquals(ImportJob.FAILED, importJobService.get("j1", 0).getStatus());
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(ImportJob.class));
+        assertEquals(ImportJob.FAILED, set(update.getValue().getUpdateObject()).get("status"));
+    }
+
+    @Test
+    void testGet_LiveJobIsLeftAlone() {
+        ImportJob live = new ImportJob();
+        live.setId("j1");
+        live.setStatus(ImportJob.EXTRACTING);
+        live.setUpdatedAt(new Date());
+        when(mongoTemplate.findOne(any(Query.class), eq(ImportJob.class))).thenReturn(live);
+
+        assertSame(live, importJobService.get("j1", 0));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(ImportJob.class));
+    }
+
+    @Test
+    void testFollow_HandsOverEachNewPageThenStops() throws Exception {
+        ImportJob first = job(ImportJob.EXTRACTING, 1, List.of(new Question()));
+        ImportJob idle = job(ImportJob.EXTRACTING, 1, List.of());
+        ImportJob last = job(ImportJob.COMPLETED, 3, List.of(new Question(), new Question()));
+        when(mongoTemplate.findOne(any(Query.class), eq(ImportJob.class))).thenReturn(first, idle, last);
+        List<ImportJob> updates = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        importJobService.follow("j1", 0, job -> {
+            updates.add(job);
+            if (job.isFinished()) {
+                finished.countDown();
+            }
+            return true;
+        });
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        Thread.sleep(1500);
+        assertEquals(List.of(first, last), updates);
+        verify(mongoTemplate, times(3)).findOne(any(Query.class), eq(ImportJob.class));
+    }
+
+    @Test
+    void testFollow_MissingJobIsReportedOnce() throws Exception {
+        CountDownLatch reported = new CountDownLatch(1);
+
+        importJobService.follow("j1", 0, job -> {
+            assertNull(job);
+            reported.countDown();
+            return true;
+        });
+
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        Thread.sleep(1500);
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(ImportJob.class));
+    }
+
+    private static ImportJob job(String status, int questionCount, List<Question> questions) {
+        ImportJob job = new ImportJob();
+        job.setId("j1");
+        job.setStatus(status);
+        job.setQuestionCount(questionCount);
+        job.setQuestions(questions);
+        job.setUpdatedAt(new Date());
+        return job;
+    }
+
+    private List<Document> updatesUntil(String status) {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, timeout(5000)).updateFirst(any(Query.class),
+                argThat(u -> status.equals(set(((Update) u).getUpdateObject()).get("status"))), eq(ImportJob.class));
+        verify(mongoTemplate, atLeastOnce()).updateFirst(any(Query.class), update.capture(), eq(ImportJob.class));
+        return update.getAllValues().stream().map(Update::getUpdateObject).toList();
+    }
+
+    private static Document set(Document update) {
+        return update.get("$set", Document.class);
+    }
+
+    private static MockMultipartFile upload() {
+        return new MockMultipartFile("file", "paper.pdf", "application/pdf", new byte[] { 1, 2, 3 });
+    }
+}
@@ -0,0 +1,63 @@
+package com.mockanytime.assessmentservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHashIndexTest {
+
+    private static final List<String> OPTIONS = List.of("Rs. 5", "Rs. 10", "Rs. 20", "Rs. 50");
+
+    @Test
+    void testRewordedQuestion_IsFound() {
+        MinHashIndex<String> index = new MinHashIndex<>();
+        index.add("q1", MinHashIndex.signature(
+                "What is the commission charged on a money order of Rs. 500?", OPTIONS));
+        index.add("q2", MinHashIndex.signature(
+                "Which form is used to open a Savings Bank account at a post office?",
+                List.of("SB-3", "SB-7", "SB-103", "SB-28")));
+
+        Optional<MinHashIndex.Match<String>> match = index.best(MinHashIndex.signature(
+                "What is the commission charged on a money-order of Rs 500 ?", List.of("Rs. 50", "Rs. 20", "Rs. 10",
+                        "Rs. 5")), 0.8);
+
+        assertTrue(match.isPresent());
+        assertEquals("q1", match.get().value());
+        assertTrue(match.get().similarity() >= 0.8);
+    }
+
+    @Test
+    void testDifferentQuestion_IsNotFound() {
+        MinHashIndex<String> index = new MinHashIndex<>();
+        index.add("q1", MinHashIndex.signature(
+                "What is the commission charged on a money order of Rs. 500?", OPTIONS));
+
+        assertTrue(index.best(MinHashIndex.signature(
+                "What is the maximum amount that can be sent by a single money order?", OPTIONS), 0.8).isEmpty());
+    }
+
+    @Test
+    void testSameStemWithDifferentOptions_IsNotADuplicate() {
+        MinHashIndex<String> index = new MinHashIndex<>();
+        index.add("q1", MinHashIndex.signature("Which of the following is correct?",
+                List.of("Speed post is insured", "Registered post is free", "Parcels have no limit", "None")));
+
+        assertTrue(index.best(MinHashIndex.signature("Which of the following is correct?",
+                List.of("PLI covers all citizens", "RPLI is urban only", "NSC is monthly", "All of these")), 0.8)
+                .isEmpty());
+    }
+
+    @Test
+    void testRemovedEntry_IsNotFound() {
+        MinHashIndex<String> index = new MinHashIndex<>();
+        int[] signature = MinHashIndex.signature("What is the commission charged on a money order?", OPTIONS);
+        index.add("q1", signature);
+        index.remove("q1");
+
+        assertEquals(0, index.size());
+        assertTrue(index.best(signature, 0.5).isEmpty());
+    }
+}
@@ -0,0 +1,82 @@
+package com.mockanytime.assessmentservice.service;
+
+import net.sourceforge.tess4j.util.ImageIOHelper;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class OcrEnginePoolTest {
+
+    @Test
+    void testSixteenBitPng_IsPassedAsTheEightBitGrayItIsConvertedTo() throws IOException {
+        BufferedImage image = readPng(new BufferedImage(37, 11, BufferedImage.TYPE_USHORT_GRAY));
+        assertEquals(16, image.getColorModel().getPixelSize());
+
+        int bitsPerPixel = OcrEnginePool.Engine.bitsPerPixel(image);
+
+        assertEquals(8, bitsPerPixel);
+        // What Tesseract will read must fit in what was handed over
+        int bytesPerLine = (int) Math.ceil(image.getWidth() * bitsPerPixel / 8.0);
+        assertTrue(ImageIOHelper.convertImageData(image).capacity() >= bytesPerLine * image.getHeight());
+    }
+
+    @Test
+    void testByteRaster_KeepsItsOwnPixelSize() throws IOException {
+        BufferedImage image = readPng(new BufferedImage(37, 11, BufferedImage.TYPE_3BYTE_BGR));
+
+        int bitsPerPixel = OcrEnginePool.Engine.bitsPerPixel(image);
+
+        assertEquals(image.getColorModel().getPixelSize(), bitsPerPixel);
+        int bytesPerLine = (int) Math.ceil(image.getWidth() * bitsPerPixel / 8.0);
+        assertTrue(ImageIOHelper.convertImageData(image).capacity() >= bytesPerLine * image.getHeight());
+    }
+
+    @Test
+    void testEngineThatFailedToStart_IsRetriedOnTheNextImage() throws Exception {
+        ExtractionCache cache = mock(ExtractionCache.class);
+        when(cache.get(anyString(), anyString())).thenReturn(Optional.empty());
+        OcrEnginePool.Engine engine = mock(OcrEnginePool.Engine.class);
+        when(engine.recognize(any(BufferedImage.class))).thenReturn("Picture text");
+        AtomicInteger starts = new AtomicInteger();
+        OcrEnginePool pool = new OcrEnginePool(cache, 1, () -> {
+            if (starts.incrementAndGet() == 1) {
+                throw new IllegalStateException("tessdata busy");
+            }
+            return engine;
+        });
+
+        try {
+            OcrEnginePool.Batch batch = pool.ocrAll(List.of(png(), png()));
+
+            assertTrue(batch.complete());
+            assertEquals(List.of("Picture text", "Picture text"), batch.texts());
+            assertEquals(2, starts.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static byte[] png() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_3BYTE_BGR), "png", png));
+        return png.toByteArray();
+    }
+
+    private static BufferedImage readPng(BufferedImage source) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(source, "png", png));
+        return ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+    }
+}
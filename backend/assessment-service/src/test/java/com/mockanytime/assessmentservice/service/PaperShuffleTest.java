@@ -0,0 +1,81 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaperShuffleTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Same vectors as the scoring service's PaperShuffleTest; both must change together
+    @Test
+    void testSeedAndOrder_MatchScoringService() {
+        long seed = PaperShuffle.seed("t1", "u1", 7);
+
+        assertEquals(0x194b037fd74fb3d9L, seed);
+        assertArrayEquals(new int[] { 2, 7, 0, 1, 8, 5, 6, 4, 9, 3 }, PaperShuffle.order(seed, 10));
+        assertArrayEquals(new int[] { 0, 1, 3, 2 }, PaperShuffle.optionOrder(seed, 2, 4));
+    }
+
+    @Test
+    void testApply_MovesQuestionsWithTheirOwnOptions() throws Exception {
+        ObjectNode paper = paper(true, true, 10);
+        long seed = PaperShuffle.seed("t1", "u1", 7);
+
+        ObjectNode shuffled = PaperShuffle.apply(paper, seed);
+
+        int[] order = PaperShuffle.order(seed, 10);
+        JsonNode questions = shuffled.get("questions");
+        for (int p = 0; p < order.length; p++) {
+            JsonNode q = questions.get(p);
+            assertEquals("Q" + order[p], q.get("text").asText());
+            List<String> options = new ArrayList<>();
+            q.get("options").forEach(o -> options.add(o.asText()));
+            int[] optionOrder = PaperShuffle.optionOrder(seed, order[p], 4);
+            for (int o = 0; o < 4; o++) {
+                assertEquals("Q" + order[p] + "-" + optionOrder[o], options.get(o));
+            }
+        }
+        // The cached paper is left as it was
+        assertEquals("Q0", paper.get("questions").get(0).get("text").asText());
+        assertEquals("Q0-0", paper.get("questions").get(0).get("options").get(0).asText());
+    }
+
+    @Test
+    void testApply_OptionsOnlyKeepsQuestionOrder() throws Exception {
+        ObjectNode shuffled = PaperShuffle.apply(paper(false, true, 5), PaperShuffle.seed("t1", "u1", 7));
+
+        for (int p = 0; p < 5; p++) {
+            assertEquals("Q" + p, shuffled.get("questions").get(p).get("text").asText());
+        }
+    }
+
+    @Test
+    void testApply_WithoutShuffleFlagsReturnsThePaper() throws Exception {
+        ObjectNode paper = paper(false, false, 5);
+
+        assertSame(paper, PaperShuffle.apply(paper, 42));
+    }
+
+    private ObjectNode paper(boolean shuffleQuestions, boolean shuffleOptions, int n) {
+        ObjectNode paper = mapper.createObjectNode();
+        paper.put("id", "t1");
+        paper.put("shuffleQuestions", shuffleQuestions);
+        paper.put("shuffleOptions", shuffleOptions);
+        for (int i = 0; i < n; i++) {
+            ObjectNode q = paper.withArray("questions").addObject();
+            q.put("text", "Q" + i);
+            for (int o = 0; o < 4; o++) {
+                q.withArray("options").add("Q" + i + "-" + o);
+            }
+        }
+        return paper;
+    }
+}
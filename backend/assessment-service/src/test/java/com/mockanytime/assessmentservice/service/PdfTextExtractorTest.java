@@ -0,0 +1,56 @@
+package com.mockanytime.assessmentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfTextExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParallelExtraction_MatchesSequentialPageOrder() throws Exception {
+        Path pdf = tempDir.resolve("bank.pdf");
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 1; i <= 23; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 12);
+                    content.newLineAtOffset(50, 700);
+                    content.showText("Question " + i + ": Which form is used for a money order?");
+                    content.endText();
+                }
+            }
+            document.save(pdf.toFile());
+        }
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PdfTextExtractor sequential = new PdfTextExtractor(registry, false, 1, 16);
+        PdfTextExtractor parallel = new PdfTextExtractor(registry, true, 4, 16);
+        try {
+            String expected = sequential.extract(pdf);
+            String actual = parallel.extract(pdf);
+
+            assertEquals(expected, actual);
+            assertTrue(actual.indexOf("Question 9:") < actual.indexOf("Question 10:"));
+            assertTrue(actual.contains("Question 23:"));
+            assertEquals(46, registry.get("pdf.extract.page").timer().count());
+        } finally {
+            sequential.shutdown();
+            parallel.shutdown();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.Question;
+import com.mockanytime.assessmentservice.model.Test;
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class QuestionBankIndexTest {
+
+    private static final List<String> OPTIONS = List.of("NSC", "KVP", "PPF", "None of these");
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private QuestionBankIndex questionBankIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        questionBankIndex = new QuestionBankIndex(mongoTemplate, 0.8, 2000, 6);
+    }
+
+    @AfterEach
+    void tearDown() {
+        questionBankIndex.shutdown();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testChangeMadeOnAnotherInstance_IsPickedUpFromTheEventLog() {
+        when(mongoTemplate.findOne(any(Query.class), eq(TestChangeEvent.class))).thenReturn(event(5, "t1", "CREATED"));
+        when(mongoTemplate.stream(any(Query.class), eq(Test.class))).thenReturn(Stream.of());
+        questionBankIndex.build();
+        assertTrue(questionBankIndex.findDuplicate(question("Which is a small savings scheme?")).isEmpty());
+
+        when(mongoTemplate.find(any(Query.class), eq(TestChangeEvent.class)))
+                .thenReturn(List.of(event(6, "t1", TestChangeEvent.UPDATED)));
+        when(mongoTemplate.findOne(any(Query.class), eq(Test.class)))
+                .thenReturn(test("t1", "Which is a small savings scheme?"));
+        questionBankIndex.pollChangeEvents();
+
+        assertEquals("t1", questionBankIndex.findDuplicate(question("Which is a small savings scheme?"))
+                .orElseThrow().testId());
+
+        when(mongoTemplate.find(any(Query.class), eq(TestChangeEvent.class)))
+                .thenReturn(List.of(event(7, "t1", TestChangeEvent.DELETED)));
+        questionBankIndex.pollChangeEvents();
+
+        assertTrue(questionBankIndex.findDuplicate(question("Which is a small savings scheme?")).isEmpty());
+    }
+
+    @org.junit.jupiter.api.Test
+    void testRebuild_DropsTestsThatAreGone() {
+        when(mongoTemplate.stream(any(Query.class), eq(Test.class)))
+                .thenReturn(Stream.of(test("t1", "Which is a small savings scheme?")), Stream.of());
+
+        questionBankIndex.build();
+        assertTrue(questionBankIndex.findDuplicate(question("Which is a small savings scheme?")).isPresent());
+
+        questionBankIndex.build();
+        assertTrue(questionBankIndex.findDuplicate(question("Which is a small savings scheme?")).isEmpty());
+    }
+
+    private static TestChangeEvent event(long seq, String testId, String type) {
+        return new TestChangeEvent(null, seq, testId, seq, type, new Date());
+    }
+
+    private static Test test(String id, String text) {
+        Question question = question(text);
+        question.setId("q1");
+        Test test = new Test();
+        test.setId(id);
+        test.setTitle("Mock 1");
+        test.setQuestions(List.of(question));
+        return test;
+    }
+
+    private static Question question(String text) {
+        return new Question(text, "mcq", OPTIONS, "PPF", null, 1);
+    }
+}
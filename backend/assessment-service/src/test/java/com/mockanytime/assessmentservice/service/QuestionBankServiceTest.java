@@ -0,0 +1,163 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.BankQuestion;
+import com.mockanytime.assessmentservice.model.Question;
+import com.mockanytime.assessmentservice.model.Test;
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import com.mockanytime.assessmentservice.repository.QuestionRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class QuestionBankServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @Mock
+    private BulkOperations bulkOps;
+
+    private QuestionBankService questionBankService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BankQuestion.class)).thenReturn(bulkOps);
+        questionBankService = new QuestionBankService(mongoTemplate, questionRepository, 2000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        questionBankService.shutdown();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testSyncTest_DoesNotOverwriteABankQuestionsDifficulty() {
+        Test test = test("t1", null, question("q1", "What is a PO?"));
+
+        assertEquals(1, questionBankService.syncTest(test));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOps).upsert(any(Query.class), update.capture());
+        Document updateObject = update.getValue().getUpdateObject();
+        assertFalse(updateObject.get("$set", Document.class).containsKey("difficulty"));
+        assertTrue(updateObject.get("$setOnInsert", Document.class).containsKey("difficulty"));
+        assertEquals("What is a PO?", updateObject.get("$set", Document.class).get("text"));
+        verify(bulkOps).execute();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testSyncTest_SkipsBlankQuestionsAndDetachesTheOnesItDropped() {
+        Test test = test("t1", "easy", question("q1", "What is a PO?"), question("q2", " "));
+
+        assertEquals(1, questionBankService.syncTest(test));
+
+        verify(bulkOps, times(1)).upsert(any(Query.class), any(Update.class));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(BankQuestion.class));
+        assertEquals("t1", query.getValue().getQueryObject().get("testIds"));
+        assertEquals(new Document("$nin", List.of("q1")), query.getValue().getQueryObject().get("_id"));
+        assertEquals(new Document("testIds", "t1"), update.getValue().getUpdateObject().get("$pull"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testSyncTest_WithNoQuestionsOnlyDetaches() {
+        assertEquals(0, questionBankService.syncTest(test("t1", "easy")));
+
+        verify(bulkOps, never()).execute();
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(BankQuestion.class));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testDeletedTest_IsDetachedFromEveryQuestion() {
+        storedPosition(0);
+        events(event(1, TestChangeEvent.DELETED));
+
+        questionBankService.pollChangeEvents();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateMulti(query.capture(), any(Update.class), eq(BankQuestion.class));
+        assertEquals(new Document("$nin", List.of()), query.getValue().getQueryObject().get("_id"));
+        verify(mongoTemplate, never()).findById(any(), eq(Test.class));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testUpdatedTest_IsResyncedAndThePositionStored() {
+        storedPosition(4);
+        when(mongoTemplate.findById("t1", Test.class)).thenReturn(test("t1", "hard", question("q1", "What is a PO?")));
+        events(event(5, TestChangeEvent.UPDATED));
+
+        questionBankService.pollChangeEvents();
+
+        verify(bulkOps).execute();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(TestChangeEvent.class));
+        assertEquals(new Document("$gt", 4L), query.getValue().getQueryObject().get("seq"));
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq("event_cursors"));
+        assertEquals(new Document("value", 5L), update.getValue().getUpdateObject().get("$max"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testExpiredEvents_ResyncEveryTest() {
+        storedPosition(4);
+        when(mongoTemplate.findOne(any(Query.class), eq(TestChangeEvent.class))).thenReturn(event(9, "UPDATED"));
+        when(mongoTemplate.stream(any(Query.class), eq(Test.class)))
+                .thenReturn(Stream.of(test("t1", "hard", question("q1", "What is a PO?"))));
+        events();
+
+        questionBankService.pollChangeEvents();
+
+        verify(bulkOps).execute();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(TestChangeEvent.class));
+        assertEquals(new Document("$gt", 9L), query.getValue().getQueryObject().get("seq"));
+    }
+
+    private void storedPosition(long seq) {
+        when(mongoTemplate.findById("question-bank-sync", Document.class, "event_cursors"))
+                .thenReturn(new Document("value", seq));
+    }
+
+    private void events(TestChangeEvent... events) {
+        when(mongoTemplate.find(any(Query.class), eq(TestChangeEvent.class))).thenReturn(List.of(events));
+    }
+
+    private static TestChangeEvent event(long seq, String type) {
+        return new TestChangeEvent(null, seq, "t1", seq, type, new Date());
+    }
+
+    private static Test test(String id, String difficulty, Question... questions) {
+        Test test = new Test();
+        test.setId(id);
+        test.setDifficulty(difficulty);
+        test.setQuestions(List.of(questions));
+        return test;
+    }
+
+    private static Question question(String id, String text) {
+        Question question = new Question(text, "mcq", List.of("a", "b", "c", "d"), "a", null, 1);
+        question.setId(id);
+        return question;
+    }
+}
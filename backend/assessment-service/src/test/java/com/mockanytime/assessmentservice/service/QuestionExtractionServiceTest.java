@@ -0,0 +1,100 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mockanytime.assessmentservice.model.Question;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class QuestionExtractionServiceTest {
+
+    private static final List<String> OPTIONS = List.of("NSC", "KVP", "PPF", "None of these");
+
+    @Mock
+    private ExtractionCache extractionCache;
+
+    @Mock
+    private QuestionBankIndex questionBankIndex;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private QuestionExtractionService extractionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(questionBankIndex.findDuplicate(any())).thenReturn(Optional.empty());
+        when(questionBankIndex.threshold()).thenReturn(0.8);
+
+        extractionService = new QuestionExtractionService();
+        ReflectionTestUtils.setField(extractionService, "extractionCache", extractionCache);
+        ReflectionTestUtils.setField(extractionService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(extractionService, "questionBankIndex", questionBankIndex);
+        ReflectionTestUtils.setField(extractionService, "model", "test-model");
+        ReflectionTestUtils.setField(extractionService, "baseUrl", "");
+        ReflectionTestUtils.setField(extractionService, "chunkChars", 12_000);
+        ReflectionTestUtils.setField(extractionService, "overlapChars", 1_000);
+        ReflectionTestUtils.setField(extractionService, "questionsPerChunk", 20);
+        ReflectionTestUtils.setField(extractionService, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(extractionService, "requestsPerMinute", 30);
+        extractionService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        extractionService.shutdown();
+    }
+
+    @Test
+    void testExactRepeat_IsDroppedAndNearDuplicateIsFlagged() throws Exception {
+        Question scheme = question("Which of the following is a small savings scheme?");
+        Question repeat = question("which of the following is a small savings scheme");
+        Question negated = question("Which of the following is NOT a small savings scheme?");
+        cached(List.of(scheme, repeat, negated));
+
+        List<Question> questions = extractionService.extractQuestions("1. Paper text", "topic", "sub").questions();
+
+        assertEquals(2, questions.size());
+        assertEquals(scheme.getText(), questions.get(0).getText());
+        assertNull(questions.get(0).getDuplicateOf());
+        Question.DuplicateOf duplicateOf = questions.get(1).getDuplicateOf();
+        assertNotNull(duplicateOf);
+        assertNull(duplicateOf.testId());
+        assertEquals(questions.get(0).getId(), duplicateOf.questionId());
+        assertEquals("topic", questions.get(1).getTopicId());
+    }
+
+    @Test
+    void testBankMatch_IsKeptOverAnImportMatch() throws Exception {
+        Question.DuplicateOf inBank = new Question.DuplicateOf("t1", "Mock 1", "q9", 0.9);
+        when(questionBankIndex.findDuplicate(argThat(q -> q != null && q.getText().contains("NOT"))))
+                .thenReturn(Optional.of(inBank));
+        cached(List.of(question("Which of the following is a small savings scheme?"),
+                question("Which of the following is NOT a small savings scheme?")));
+
+        List<Question> questions = extractionService.extractQuestions("1. Paper text", null, null).questions();
+
+        assertEquals(2, questions.size());
+        assertEquals(inBank, questions.get(1).getDuplicateOf());
+    }
+
+    private void cached(List<Question> questions) throws Exception {
+        when(extractionCache.get(eq("llm"), anyString()))
+                .thenReturn(Optional.of(objectMapper.writeValueAsString(questions)));
+    }
+
+    private static Question question(String text) {
+        return new Question(text, "mcq", OPTIONS, "PPF", null, 1);
+    }
+}
@@ -0,0 +1,68 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mockanytime.assessmentservice.model.Question;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionJsonReaderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static String question(String text) {
+        return "{\"text\": \"" + text + "\", \"options\": [\"A\", \"B\", \"C\", \"D\"], \"correctAnswer\": \"A\","
+                + " \"type\": \"mcq\", \"points\": 1}";
+    }
+
+    private static List<String> texts(List<Question> questions) {
+        return questions.stream().map(Question::getText).toList();
+    }
+
+    @Test
+    void testFencedResponseWithCommentary() {
+        String response = "Here are the questions:\n```json\n{\"questions\": [" + question("Q1") + ", "
+                + question("Q2") + "]}\n```\nLet me know if you need more.";
+
+        assertEquals(List.of("Q1", "Q2"), texts(QuestionJsonReader.read(response, mapper)));
+    }
+
+    @Test
+    void testElementOfWrongShape_IsSkipped() {
+        String response = "{\"questions\": [" + question("Q1") + ", {\"text\": \"Q2\", \"options\": {\"a\": 1}}, "
+                + "\"stray\", " + question("Q3") + "]}";
+
+        assertEquals(List.of("Q1", "Q3"), texts(QuestionJsonReader.read(response, mapper)));
+    }
+
+    @Test
+    void testSyntaxError_ResumesAtNextElement() {
+        String broken = "{\"text\": \"Q2\" \"options\": [\"A\", \"B\"]}";
+        String response = "{\"questions\": [" + question("Q1") + ", " + broken + ", " + question("Q3") + ", "
+                + question("Q4") + "]}";
+
+        assertEquals(List.of("Q1", "Q3", "Q4"), texts(QuestionJsonReader.read(response, mapper)));
+    }
+
+    @Test
+    void testTruncatedResponse_KeepsCompletedElements() {
+        String full = "{\"questions\": [" + question("Q1") + ", " + question("Q2") + ", " + question("Q3") + "]}";
+        String truncated = full.substring(0, full.indexOf("Q3") + 10);
+
+        assertEquals(List.of("Q1", "Q2"), texts(QuestionJsonReader.read(truncated, mapper)));
+    }
+
+    @Test
+    void testBareArray() {
+        assertEquals(List.of("Q1"), texts(QuestionJsonReader.read("[" + question("Q1") + "]", mapper)));
+    }
+
+    @Test
+    void testNoJson_ReturnsNull() {
+        assertNull(QuestionJsonReader.read("I could not find any questions in this text.", mapper));
+    }
+}
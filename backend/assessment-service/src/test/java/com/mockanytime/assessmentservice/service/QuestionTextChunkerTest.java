@@ -0,0 +1,100 @@
+package com.mockanytime.assessmentservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionTextChunkerTest {
+
+    private static String questionBank(int count) {
+        List<String> orders = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            orders.add(String.valueOf(i));
+        }
+        return questionBank(orders);
+    }
+
+    // One question per money order, numbered in paper order
+    private static String questionBank(List<String> orders) {
+        StringBuilder text = new StringBuilder("Postal Assistant Mock Paper\n");
+        for (int i = 0; i < orders.size(); i++) {
+            text.append(i + 1).append(". Which register records the receipt of money order number ")
+                    .append(orders.get(i))
+                    .append("?\n(a) Option A\n(b) Option B\n(c) Option C\n(d) Option D\nAnswer: (a)\n");
+        }
+        return text.toString();
+    }
+
+    @Test
+    void testShortText_IsOneChunk() {
+        String text = questionBank(3);
+        assertEquals(List.of(text), QuestionTextChunker.split(text, 10_000, 500, 4));
+    }
+
+    @Test
+    void testChunks_StartAtQuestionBoundariesAndCoverEveryQuestion() {
+        String text = questionBank(60);
+        List<String> chunks = QuestionTextChunker.split(text, 1_500, 300, 4);
+
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 1_500);
+        }
+        for (String chunk : chunks.subList(1, chunks.size())) {
+            assertTrue(chunk.matches("(?s)\\d+\\. Which.*"), "chunk should start at a question: " + chunk);
+        }
+        for (int i = 1; i <= 60; i++) {
+            String question = "\n" + i + ". Which register records the receipt of money order number " + i
+                    + "?\n(a) Option A\n(b) Option B\n(c) Option C\n(d) Option D\nAnswer: (a)\n";
+            assertTrue(chunks.stream().anyMatch(c -> ("\n" + c).contains(question)),
+                    "question " + i + " should appear whole in some chunk");
+        }
+    }
+
+    @Test
+    void testNeighbouringChunks_Overlap() {
+        List<String> chunks = QuestionTextChunker.split(questionBank(60), 1_500, 300, 4);
+        for (int i = 1; i < chunks.size(); i++) {
+            String next = chunks.get(i);
+            String firstLine = next.substring(0, next.indexOf('\n'));
+            assertTrue(chunks.get(i - 1).contains(firstLine), "chunk " + i + " should repeat the previous tail");
+        }
+    }
+
+    @Test
+    void testQuestionInsertedEarly_LeavesLaterChunksUnchanged() {
+        List<String> orders = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            orders.add(String.valueOf(i));
+        }
+        List<String> before = QuestionTextChunker.split(questionBank(orders), 1_500, 300, 4);
+        orders.add(3, "new");
+        List<String> after = QuestionTextChunker.split(questionBank(orders), 1_500, 300, 4);
+
+        Set<String> unchanged = after.stream().map(QuestionTextChunker::normalize).collect(Collectors.toSet());
+        long missed = before.stream().map(QuestionTextChunker::normalize).filter(c -> !unchanged.contains(c)).count();
+        assertTrue(before.size() > 20);
+        assertTrue(missed <= 2, missed + " of " + before.size() + " chunks changed");
+    }
+
+    @Test
+    void testNormalize_IgnoresQuestionNumbersAndSpacing() {
+        assertEquals(QuestionTextChunker.normalize("4. What is a PO?\n(a) Post  Office\n"),
+                QuestionTextChunker.normalize("Q.5) What is a PO?\n(a) Post Office"));
+    }
+
+    @Test
+    void testTextWithoutBoundaries_IsStillSplit() {
+        String text = "word ".repeat(2_000);
+        List<String> chunks = QuestionTextChunker.split(text, 1_000, 100, 4);
+
+        assertTrue(chunks.size() >= 10);
+        chunks.forEach(c -> assertTrue(c.length() <= 1_000));
+        assertTrue(text.endsWith(chunks.get(chunks.size() - 1)));
+    }
+}
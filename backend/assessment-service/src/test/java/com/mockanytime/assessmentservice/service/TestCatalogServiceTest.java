@@ -0,0 +1,93 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TestCatalogServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private TestCatalogService catalogService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        catalogService = new TestCatalogService(mongoTemplate, 60);
+    }
+
+    @Test
+    void testBuildThatRacedWithAnEdit_IsNotCached() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), any(Class.class), eq(Document.class)))
+                .thenAnswer(invocation -> {
+                    // The edit lands after the build read version 1
+                    catalogService.onTestChanged(event("t1", 2, TestChangeEvent.UPDATED));
+                    return rows(card("t1", "Old title", 1));
+                })
+                .thenReturn(rows(card("t1", "New title", 2)));
+
+        assertEquals("Old title", catalogService.getPage(null, null, null, null).cards().get(0).title());
+        assertEquals("New title", catalogService.getPage(null, null, null, null).cards().get(0).title());
+        assertEquals("New title", catalogService.getPage(null, null, null, null).cards().get(0).title());
+
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), any(Class.class), eq(Document.class));
+    }
+
+    @Test
+    void testBuildThatStillShowsADeletedTest_IsNotCached() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), any(Class.class), eq(Document.class)))
+                .thenAnswer(invocation -> {
+                    // The delete lands after the build read the test
+                    catalogService.onTestChanged(event("t1", 2, TestChangeEvent.DELETED));
+                    return rows(card("t1", "Gone", 1));
+                })
+                .thenReturn(rows());
+
+        assertEquals(1, catalogService.getPage(null, null, null, null).total());
+        assertEquals(0, catalogService.getPage(null, null, null, null).total());
+        assertEquals(0, catalogService.getPage(null, null, null, null).total());
+
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), any(Class.class), eq(Document.class));
+    }
+
+    @Test
+    void testTestDeletedOnAnotherInstance_DoesNotStopCaching() {
+        // Announced here, then deleted elsewhere, so no delete event ever arrives
+        catalogService.onTestChanged(event("t2", 1, TestChangeEvent.CREATED));
+        when(mongoTemplate.aggregate(any(Aggregation.class), any(Class.class), eq(Document.class)))
+                .thenReturn(rows(card("t1", "Kept", 1)));
+
+        assertEquals(1, catalogService.getPage(null, null, null, null).total());
+        assertEquals(1, catalogService.getPage(null, null, null, null).total());
+
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), any(Class.class), eq(Document.class));
+    }
+
+    private static TestChangeEvent event(String testId, long version, String type) {
+        return new TestChangeEvent(null, 0, testId, version, type, new Date());
+    }
+
+    private static Document card(String id, String title, long version) {
+        return new Document("_id", id).append("title", title).append("version", version)
+                .append("questionCount", 10);
+    }
+
+    private static AggregationResults<Document> rows(Document... rows) {
+        return new AggregationResults<>(List.of(rows), new Document());
+    }
+}
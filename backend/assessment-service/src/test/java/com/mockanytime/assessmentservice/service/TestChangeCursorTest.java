@@ -0,0 +1,75 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.TestChangeEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TestChangeCursorTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testNewestSeq_IsZeroWithNoEvents() {
+        assertEquals(0, TestChangeCursor.newestSeq(mongoTemplate));
+
+        when(mongoTemplate.findOne(any(Query.class), eq(TestChangeEvent.class))).thenReturn(event(41));
+        assertEquals(41, TestChangeCursor.newestSeq(mongoTemplate));
+    }
+
+    @Test
+    void testPoll_AppliesEventsInOrderAndMovesPastThem() {
+        when(mongoTemplate.find(any(Query.class), eq(TestChangeEvent.class))).thenReturn(List.of(event(11), event(12)));
+        TestChangeCursor cursor = new TestChangeCursor(mongoTemplate, 10);
+        List<Long> applied = new ArrayList<>();
+
+        cursor.poll(event -> applied.add(event.getSeq()));
+
+        assertEquals(List.of(11L, 12L), applied);
+        assertEquals(12, cursor.lastSeq());
+    }
+
+    @Test
+    void testAdvance_WaitsAtAGapUntilTheMissingEventAppears() {
+        TestChangeCursor cursor = new TestChangeCursor(mongoTemplate, 10);
+
+        cursor.advance(List.of(event(11), event(13)), 1_000);
+        assertEquals(11, cursor.lastSeq());
+
+        cursor.advance(List.of(event(12), event(13)), 2_000);
+        assertEquals(13, cursor.lastSeq());
+    }
+
+    @Test
+    void testAdvance_SkipsAGapThatNeverFills() {
+        TestChangeCursor cursor = new TestChangeCursor(mongoTemplate, 10);
+
+        cursor.advance(List.of(event(12)), 1_000);
+        assertEquals(10, cursor.lastSeq());
+
+        cursor.advance(List.of(event(12)), 1_000 + TestChangeCursor.GAP_WAIT_MILLIS);
+        assertEquals(12, cursor.lastSeq());
+    }
+
+    private static TestChangeEvent event(long seq) {
+        return new TestChangeEvent(null, seq, "t1", seq, TestChangeEvent.UPDATED, new Date());
+    }
+}
@@ -0,0 +1,94 @@
+package com.mockanytime.assessmentservice.service;
+
+import com.mockanytime.assessmentservice.model.Test;
+import com.mockanytime.assessmentservice.model.TestVersion;
+import com.mockanytime.assessmentservice.repository.TestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TestServiceTest {
+
+    @Mock
+    private TestRepository testRepository;
+
+    @Mock
+    private TestChangePublisher testChangePublisher;
+
+    @Mock
+    private ImageStore imageStore;
+
+    @Mock
+    private QuestionBankService questionBankService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private TestService testService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        testService = new TestService(testRepository, testChangePublisher, imageStore, questionBankService,
+                mongoTemplate);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testUpdate_ArchivesTheVersionItReplaced() {
+        when(testRepository.findById("t1")).thenReturn(Optional.of(test("Old", 2)));
+        when(mongoTemplate.findAndReplace(any(Query.class), any(Test.class))).thenReturn(test("Old", 2));
+
+        Test updated = testService.updateTest("t1", test("New", 0));
+
+        assertEquals(3, updated.getVersion());
+        ArgumentCaptor<TestVersion> archived = ArgumentCaptor.forClass(TestVersion.class);
+        verify(mongoTemplate).save(archived.capture());
+        assertEquals("t1:2", archived.getValue().getId());
+        assertEquals("Old", archived.getValue().getTest().getTitle());
+        verify(testChangePublisher).publish("t1", 3, "UPDATED");
+    }
+
+    @org.junit.jupiter.api.Test
+    void testLostUpdate_ArchivesNothing() {
+        when(testRepository.findById("t1")).thenReturn(Optional.of(test("Old", 2)));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> testService.updateTest("t1", test("New", 0)));
+
+        verify(mongoTemplate, never()).save(any(TestVersion.class));
+        verify(testChangePublisher, never()).publish(anyString(), anyLong(), anyString());
+    }
+
+    @org.junit.jupiter.api.Test
+    void testGetTestVersion_ReadsTheCurrentTestOrTheArchive() {
+        when(testRepository.findById("t1")).thenReturn(Optional.of(test("New", 3)));
+        Test old = test("Old", 2);
+        when(mongoTemplate.findById("t1:2", TestVersion.class))
+                .thenReturn(new TestVersion("t1:2", "t1", 2, old, null));
+
+        assertEquals("New", testService.getTestVersion("t1", 3).orElseThrow().getTitle());
+        assertEquals("Old", testService.getTestVersion("t1", 2).orElseThrow().getTitle());
+        assertTrue(testService.getTestVersion("t1", 1).isEmpty());
+        verify(mongoTemplate, never()).findById(eq("t1:3"), eq(TestVersion.class));
+    }
+
+    private static Test test(String title, long version) {
+        Test test = new Test();
+        test.setId("t1");
+        test.setTitle(title);
+        test.setVersion(version);
+        return test;
+    }
+}
@@ -9,4 +9,8 @@ import org.springframework.web.bind.annotation.PathVariable;
 public interface AssessmentClient {
     @GetMapping("/tests/{id}")
     TestDto getTestById(@PathVariable("id") String id);
+
+    // 404 once the version has expired from assessment's archive
+    @GetMapping("/tests/{id}/versions/{version}")
+    TestDto getTestVersion(@PathVariable("id") String id, @PathVariable("version") long version);
 }
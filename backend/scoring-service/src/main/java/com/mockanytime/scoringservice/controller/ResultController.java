@@ -1,10 +1,26 @@
 package com.mockanytime.scoringservice.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mockanytime.scoringservice.dto.BatchOutcomeDto;
+import com.mockanytime.scoringservice.dto.BatchSubmissionDto;
+import com.mockanytime.scoringservice.dto.ReportPointDto;
+import com.mockanytime.scoringservice.dto.ResultSummaryDto;
 import com.mockanytime.scoringservice.model.Result;
+import com.mockanytime.scoringservice.service.LeaderboardService;
+import com.mockanytime.scoringservice.service.ReportService;
+import com.mockanytime.scoringservice.service.ResultCompactionJob;
+import com.mockanytime.scoringservice.service.ResultExportService;
 import com.mockanytime.scoringservice.service.ResultService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -12,12 +28,28 @@ import java.util.Map;
 public class ResultController {
 
     private final ResultService resultService;
+    private final LeaderboardService leaderboardService;
+    private final ObjectMapper objectMapper;
+    private final ResultCompactionJob resultCompactionJob;
+    private final ReportService reportService;
+    private final ResultExportService resultExportService;
 
-    public ResultController(ResultService resultService) {
+    private static final int BATCH_CHUNK_SIZE = 500;
+
+    public ResultController(ResultService resultService, LeaderboardService leaderboardService,
+            ObjectMapper objectMapper, ResultCompactionJob resultCompactionJob, ReportService reportService,
+            ResultExportService resultExportService) {
         this.resultService = resultService;
+        this.leaderboardService = leaderboardService;
+        this.objectMapper = objectMapper;
+        this.resultCompactionJob = resultCompactionJob;
+        this.reportService = reportService;
+        this.resultExportService = resultExportService;
     }
 
-    record SubmitRequest(String test_id, Map<String, String> answers) {
+    // attempt is the nonce the paper was served with, needed to undo its shuffle;
+    // version is the test version the paper showed, which it is graded against
+    record SubmitRequest(String test_id, Map<String, String> answers, Long attempt, Long version) {
     } // snake_case to match frontend
 
     @PostMapping("/submit")
@@ -27,7 +59,38 @@ public class ResultController {
             // For dev/testing without Gateway headers
             userId = "guest";
         }
-        return ResponseEntity.ok(resultService.submitTest(request.test_id(), userId, request.answers()));
+        return ResponseEntity.ok(resultService.submitTest(request.test_id(), userId, request.answers(), 0,
+                request.attempt(), request.version()));
+    }
+
+    // Body is a JSON array of answer sheets, read incrementally so large uploads
+    // are graded in chunks instead of being buffered whole
+    @PostMapping("/submit-batch")
+    public ResponseEntity<Map<String, Object>> submitBatch(HttpServletRequest request) throws IOException {
+        List<BatchOutcomeDto> outcomes = new ArrayList<>();
+        List<BatchSubmissionDto> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Expected a JSON array of submissions"));
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                chunk.add(objectMapper.readValue(parser, BatchSubmissionDto.class));
+                if (chunk.size() >= BATCH_CHUNK_SIZE) {
+                    outcomes.addAll(resultService.submitBatch(chunk));
+                    chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            outcomes.addAll(resultService.submitBatch(chunk));
+        }
+
+        long accepted = outcomes.stream().filter(o -> o.error() == null).count();
+        return ResponseEntity.ok(Map.of(
+                "accepted", accepted,
+                "failed", outcomes.size() - accepted,
+                "results", outcomes));
     }
 
     @GetMapping("/{id}")
@@ -45,14 +108,39 @@ public class ResultController {
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Iterable<Result>> getResultsByUser(@PathVariable String userId) {
-        return ResponseEntity.ok(resultService.getResultsByUserId(userId));
+    public ResponseEntity<List<ResultSummaryDto>> getResultsByUser(@PathVariable String userId) {
+        return ResponseEntity.ok(resultService.getResultSummaries(userId));
+    }
+
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<?> getResultHistory(@PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(
+                    resultService.getResultSummaryPage(userId, cursor, Math.max(1, Math.min(limit, 100))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/leaderboard")
-    public ResponseEntity<Iterable<ResultService.LeaderboardEntry>> getLeaderboard(
-            @RequestParam(value = "period", defaultValue = "weekly") String period) {
-        return ResponseEntity.ok(resultService.getLeaderboard(period));
+    public ResponseEntity<Iterable<LeaderboardService.LeaderboardEntry>> getLeaderboard(
+            @RequestParam(value = "period", defaultValue = "weekly") String period,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return ResponseEntity.ok(leaderboardService.getLeaderboard(period, Math.max(1, Math.min(limit, 500))));
+    }
+
+    @GetMapping("/leaderboard/me")
+    public ResponseEntity<LeaderboardService.LeaderboardEntry> getMyLeaderboardPosition(
+            @RequestParam(value = "period", defaultValue = "weekly") String period,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        if (userId == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return leaderboardService.getPosition(period, userId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/admin/summary")
@@ -61,6 +149,69 @@ public class ResultController {
             @RequestParam(required = false) String division,
             @RequestParam(required = false) String cadre,
             @RequestParam(required = false) String examType) {
-        return ResponseEntity.ok(resultService.getSummaryReport(circle, division, cadre, examType));
+        return ResponseEntity.ok(reportService.getSummaryReport(circle, division, cadre, examType));
+    }
+
+    @GetMapping("/admin/report/drilldown")
+    public ResponseEntity<?> getReportDrillDown(
+            @RequestParam String dimension,
+            @RequestParam(required = false) String circle,
+            @RequestParam(required = false) String division,
+            @RequestParam(required = false) String cadre,
+            @RequestParam(required = false) String examType,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            return ResponseEntity.ok(reportService.drillDown(dimension, circle, division, cadre, examType, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/admin/report/timeseries")
+    public ResponseEntity<List<ReportPointDto>> getReportTimeSeries(
+            @RequestParam(required = false) String circle,
+            @RequestParam(required = false) String division,
+            @RequestParam(required = false) String cadre,
+            @RequestParam(required = false) String examType,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        return ResponseEntity.ok(reportService.timeSeries(circle, division, cadre, examType, from, to));
+    }
+
+    // Written straight to the response so exports of any size use a fixed amount of memory
+    @GetMapping("/admin/export")
+    public void exportResults(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String circle,
+            @RequestParam(required = false) String division,
+            @RequestParam(required = false) String cadre,
+            @RequestParam(required = false) String examType,
+            HttpServletResponse response) throws IOException {
+        if ("xlsx".equalsIgnoreCase(format)) {
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setHeader("Content-Disposition", "attachment; filename=\"results.xlsx\"");
+            resultExportService.writeXlsx(circle, division, cadre, examType, response.getOutputStream());
+        } else if ("csv".equalsIgnoreCase(format)) {
+            response.setContentType("text/csv; charset=UTF-8");
+            response.setHeader("Content-Disposition", "attachment; filename=\"results.csv\"");
+            resultExportService.writeCsv(circle, division, cadre, examType, response.getOutputStream());
+        } else {
+            response.sendError(400, "Unsupported format: " + format);
+        }
+    }
+
+    @PostMapping("/admin/compact-migration")
+    public ResponseEntity<Map<String, Object>> startCompactMigration(
+            @RequestParam(defaultValue = "500") int batchSize) {
+        if (!resultCompactionJob.start(Math.max(1, Math.min(batchSize, 5000)))) {
+            return ResponseEntity.status(409).body(resultCompactionJob.status());
+        }
+        return ResponseEntity.accepted().body(resultCompactionJob.status());
+    }
+
+    @GetMapping("/admin/compact-migration")
+    public ResponseEntity<Map<String, Object>> getCompactMigrationStatus() {
+        return ResponseEntity.ok(resultCompactionJob.status());
     }
 }
@@ -0,0 +1,16 @@
+package com.mockanytime.scoringservice.dto;
+
+public record BatchOutcomeDto(
+        String sheet_id,
+        String test_id,
+        String user_id,
+        String result_id,
+        Integer score,
+        Integer rank,
+        String error) {
+
+    public static BatchOutcomeDto failed(BatchSubmissionDto submission, String error) {
+        return new BatchOutcomeDto(submission.sheet_id(), submission.test_id(), submission.user_id(), null, null,
+                null, error);
+    }
+}
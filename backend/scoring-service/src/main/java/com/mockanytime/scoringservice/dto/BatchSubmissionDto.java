@@ -0,0 +1,13 @@
+package com.mockanytime.scoringservice.dto;
+
+import java.util.Map;
+
+// One answer sheet in a bulk upload; snake_case to match the single submit request.
+// sheet_id is the client's own ID for the sheet: re-sending it returns the stored result.
+public record BatchSubmissionDto(
+        String sheet_id,
+        String test_id,
+        String user_id,
+        Map<String, String> answers,
+        long time_taken_seconds) {
+}
@@ -0,0 +1,9 @@
+package com.mockanytime.scoringservice.dto;
+
+// Totals for one day of a report time series
+public record ReportPointDto(
+        String day,
+        long totalTests,
+        double averageScore,
+        double averageAccuracy) {
+}
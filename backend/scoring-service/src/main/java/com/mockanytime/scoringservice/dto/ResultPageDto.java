@@ -0,0 +1,9 @@
+package com.mockanytime.scoringservice.dto;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record ResultPageDto(
+        List<ResultSummaryDto> items,
+        String nextCursor) {
+}
@@ -0,0 +1,17 @@
+package com.mockanytime.scoringservice.dto;
+
+import java.util.Date;
+
+// One row of a student's attempt history; the full result loads from /results/{id}
+public record ResultSummaryDto(
+        String id,
+        String testId,
+        String testTitle,
+        int score,
+        int totalPoints,
+        double percentage,
+        double accuracy,
+        Integer rank,
+        long timeTakenSeconds,
+        Date createdAt) {
+}
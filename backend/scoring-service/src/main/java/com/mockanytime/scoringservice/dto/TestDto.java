@@ -5,5 +5,7 @@ import java.util.List;
 public record TestDto(
                 String id,
                 String title,
-                List<QuestionDto> questions) {
+                List<QuestionDto> questions,
+                long version,
+                boolean shuffleQuestions) {
 }
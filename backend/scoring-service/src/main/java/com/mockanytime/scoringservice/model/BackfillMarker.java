@@ -0,0 +1,57 @@
+package com.mockanytime.scoringservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// One-time migration state for a read model built from existing results.
+// Results created before the cutoff belong to the backfill, later ones to the
+// post-submit pipeline, so each result is counted by exactly one of them.
+@Document(collection = "backfill_markers")
+public class BackfillMarker {
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+
+    @Id
+    private String id; // Name of the read model, e.g. "leaderboard"
+    private Date cutoff;
+    private String status = PENDING;
+    private Date leaseUntil;
+
+    public BackfillMarker() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Date getCutoff() {
+        return cutoff;
+    }
+
+    public void setCutoff(Date cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Date getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(Date leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+}
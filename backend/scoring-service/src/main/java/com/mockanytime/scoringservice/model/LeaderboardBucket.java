@@ -0,0 +1,110 @@
+package com.mockanytime.scoringservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Running per-user totals, one document per user per day plus one all-time document
+@Document(collection = "leaderboard_buckets")
+@CompoundIndexes({
+        @CompoundIndex(name = "granularity_bucket", def = "{'granularity': 1, 'bucket': 1}"),
+        @CompoundIndex(name = "granularity_score", def = "{'granularity': 1, 'totalScore': -1}")
+})
+public class LeaderboardBucket {
+    public static final String DAY = "day";
+    public static final String ALL_TIME = "all";
+
+    @Id
+    private String id; // userId:bucket
+    private String userId;
+    private String granularity; // day, all
+    private String bucket; // yyyy-MM-dd for daily buckets, "all" otherwise
+    private long totalScore;
+    private int testsTaken;
+    private double accuracySum;
+    private List<String> resultIds = new ArrayList<>(); // Most recent results counted, so a retry is not counted twice
+    private boolean backfilled; // Set once the totals from before the backfill cutoff are in
+
+    public LeaderboardBucket() {
+    }
+
+    public static String idFor(String userId, String bucket) {
+        return userId + ":" + bucket;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(String bucket) {
+        this.bucket = bucket;
+    }
+
+    public long getTotalScore() {
+        return totalScore;
+    }
+
+    public void setTotalScore(long totalScore) {
+        this.totalScore = totalScore;
+    }
+
+    public int getTestsTaken() {
+        return testsTaken;
+    }
+
+    public void setTestsTaken(int testsTaken) {
+        this.testsTaken = testsTaken;
+    }
+
+    public double getAccuracySum() {
+        return accuracySum;
+    }
+
+    public void setAccuracySum(double accuracySum) {
+        this.accuracySum = accuracySum;
+    }
+
+    public List<String> getResultIds() {
+        return resultIds;
+    }
+
+    public void setResultIds(List<String> resultIds) {
+        this.resultIds = resultIds;
+    }
+
+    public boolean isBackfilled() {
+        return backfilled;
+    }
+
+    public void setBackfilled(boolean backfilled) {
+        this.backfilled = backfilled;
+    }
+}
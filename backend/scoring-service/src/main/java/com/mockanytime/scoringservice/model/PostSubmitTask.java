@@ -0,0 +1,150 @@
+package com.mockanytime.scoringservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Outbox entry for the work that follows a durable submission: profile
+// metadata, leaderboard buckets, the report cube and the completion notification
+@Document(collection = "post_submit_tasks")
+@CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class PostSubmitTask {
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+    private String resultId;
+    private String status = PENDING;
+    private int attempts;
+    private Date createdAt = new Date();
+    private Date nextAttemptAt = new Date();
+    private Date leaseUntil;
+    private String leaseToken; // Set by each claim; writes by an earlier holder no longer match
+    private String lastError;
+
+    // Stages already completed, so a retry does not repeat them
+    private boolean metadataDone;
+    private boolean leaderboardDone;
+    private boolean reportDone;
+    private boolean notificationDone;
+
+    public PostSubmitTask() {
+    }
+
+    public PostSubmitTask(String resultId) {
+        this.resultId = resultId;
+    }
+
+    public boolean allStagesDone() {
+        return metadataDone && leaderboardDone && reportDone && notificationDone;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getResultId() {
+        return resultId;
+    }
+
+    public void setResultId(String resultId) {
+        this.resultId = resultId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Date nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Date getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(Date leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public String getLeaseToken() {
+        return leaseToken;
+    }
+
+    public void setLeaseToken(String leaseToken) {
+        this.leaseToken = leaseToken;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public boolean isMetadataDone() {
+        return metadataDone;
+    }
+
+    public void setMetadataDone(boolean metadataDone) {
+        this.metadataDone = metadataDone;
+    }
+
+    public boolean isLeaderboardDone() {
+        return leaderboardDone;
+    }
+
+    public void setLeaderboardDone(boolean leaderboardDone) {
+        this.leaderboardDone = leaderboardDone;
+    }
+
+    public boolean isReportDone() {
+        return reportDone;
+    }
+
+    public void setReportDone(boolean reportDone) {
+        this.reportDone = reportDone;
+    }
+
+    public boolean isNotificationDone() {
+        return notificationDone;
+    }
+
+    public void setNotificationDone(boolean notificationDone) {
+        this.notificationDone = notificationDone;
+    }
+}
@@ -0,0 +1,132 @@
+package com.mockanytime.scoringservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// Running totals for one (circle, division, cadre, examType, day) combination.
+// Admin reports roll these up instead of scanning results.
+@Document(collection = "report_cells")
+@CompoundIndexes({
+        @CompoundIndex(name = "circle_division_day", def = "{'postalCircle': 1, 'division': 1, 'day': 1}"),
+        @CompoundIndex(name = "cadre_day", def = "{'cadre': 1, 'day': 1}"),
+        @CompoundIndex(name = "examType_day", def = "{'examType': 1, 'day': 1}"),
+        @CompoundIndex(name = "day", def = "{'day': 1}")
+})
+public class ReportCell {
+    @Id
+    private String id; // dimensions and day joined by a unit separator
+    private String postalCircle;
+    private String division;
+    private String cadre;
+    private String examType;
+    private String day; // yyyy-MM-dd, UTC
+    private long count;
+    private long scoreSum;
+    private double accuracySum;
+    private List<String> resultIds; // Most recent results counted here, so a retried stage is not counted twice
+    private boolean backfilled;
+
+    public ReportCell() {
+    }
+
+    public static String idFor(String postalCircle, String division, String cadre, String examType, String day) {
+        return Arrays.stream(new String[] { postalCircle, division, cadre, examType, day })
+                .map(v -> Objects.toString(v, ""))
+                .collect(Collectors.joining("\u001f"));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getPostalCircle() {
+        return postalCircle;
+    }
+
+    public void setPostalCircle(String postalCircle) {
+        this.postalCircle = postalCircle;
+    }
+
+    public String getDivision() {
+        return division;
+    }
+
+    public void setDivision(String division) {
+        this.division = division;
+    }
+
+    public String getCadre() {
+        return cadre;
+    }
+
+    public void setCadre(String cadre) {
+        this.cadre = cadre;
+    }
+
+    public String getExamType() {
+        return examType;
+    }
+
+    public void setExamType(String examType) {
+        this.examType = examType;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public void setDay(String day) {
+        this.day = day;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getScoreSum() {
+        return scoreSum;
+    }
+
+    public void setScoreSum(long scoreSum) {
+        this.scoreSum = scoreSum;
+    }
+
+    public double getAccuracySum() {
+        return accuracySum;
+    }
+
+    public void setAccuracySum(double accuracySum) {
+        this.accuracySum = accuracySum;
+    }
+
+    public List<String> getResultIds() {
+        return resultIds;
+    }
+
+    public void setResultIds(List<String> resultIds) {
+        this.resultIds = resultIds;
+    }
+
+    public boolean isBackfilled() {
+        return backfilled;
+    }
+
+    public void setBackfilled(boolean backfilled) {
+        this.backfilled = backfilled;
+    }
+}
@@ -1,12 +1,23 @@
 package com.mockanytime.scoringservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Document(collection = "results")
+@CompoundIndex(name = "testId_userId", def = "{'testId': 1, 'userId': 1}")
+@CompoundIndex(name = "userId_createdAt", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "report_circle", def = "{'postalCircle': 1, 'division': 1, 'cadre': 1, 'examType': 1}")
+@CompoundIndex(name = "report_division", def = "{'division': 1, 'cadre': 1, 'examType': 1}")
+@CompoundIndex(name = "report_cadre", def = "{'cadre': 1, 'examType': 1}")
+@CompoundIndex(name = "report_examType", def = "{'examType': 1, 'postalCircle': 1}")
 public class Result {
     @Id
     private String id;
@@ -26,6 +37,16 @@ public class Result {
     private int wrongAnswers;
     private Map<String, AnswerDetail> detailedAnswers = new HashMap<>();
     private Integer rank; // Leaderboard rank
+    // Client-supplied ID of a batch-uploaded answer sheet, so a re-sent upload is not graded twice
+    @Indexed(unique = true, sparse = true)
+    private String sheetId;
+
+    // Compact format: one entry per question by position, with the question text
+    // kept once per test version in test_snapshots. answers and detailedAnswers
+    // are rebuilt from these when a single result is opened.
+    private String snapshotId;
+    @JsonIgnore
+    private List<CompactAnswer> responses;
 
     // Metadata for reporting
     private String postalCircle;
@@ -36,8 +57,51 @@ public class Result {
     public Result() {
     }
 
+    public static class CompactAnswer {
+        @Field("a")
+        private String answer; // null when not answered
+        @Field("c")
+        private boolean correct;
+        @Field("p")
+        private int points;
+
+        public CompactAnswer() {
+        }
+
+        public CompactAnswer(String answer, boolean correct, int points) {
+            this.answer = answer;
+            this.correct = correct;
+            this.points = points;
+        }
+
+        public String getAnswer() {
+            return answer;
+        }
+
+        public void setAnswer(String answer) {
+            this.answer = answer;
+        }
+
+        public boolean isCorrect() {
+            return correct;
+        }
+
+        public void setCorrect(boolean correct) {
+            this.correct = correct;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public void setPoints(int points) {
+            this.points = points;
+        }
+    }
+
     // Inner class for detailed answer breakdown
     public static class AnswerDetail {
+        private String questionId;
         private String questionText;
         private String userAnswer;
         private String correctAnswer;
@@ -60,6 +124,14 @@ public class Result {
         }
 
         // Getters and setters
+        public String getQuestionId() {
+            return questionId;
+        }
+
+        public void setQuestionId(String questionId) {
+            this.questionId = questionId;
+        }
+
         public String getQuestionText() {
             return questionText;
         }
@@ -229,6 +301,30 @@ public class Result {
         this.rank = rank;
     }
 
+    public String getSheetId() {
+        return sheetId;
+    }
+
+    public void setSheetId(String sheetId) {
+        this.sheetId = sheetId;
+    }
+
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(String snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
+    public List<CompactAnswer> getResponses() {
+        return responses;
+    }
+
+    public void setResponses(List<CompactAnswer> responses) {
+        this.responses = responses;
+    }
+
     public String getPostalCircle() {
         return postalCircle;
     }
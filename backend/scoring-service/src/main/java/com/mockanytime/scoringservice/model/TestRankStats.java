@@ -0,0 +1,59 @@
+package com.mockanytime.scoringservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Per-test score histogram used to rank submissions without loading every result
+@Document(collection = "test_rank_stats")
+public class TestRankStats {
+    @Id
+    private String testId;
+    private Map<String, Long> scoreCounts = new HashMap<>(); // score -> number of results
+    private long totalResults;
+
+    public TestRankStats() {
+    }
+
+    public TestRankStats(String testId) {
+        this.testId = testId;
+    }
+
+    // Rank of a result with the given score that is already counted in the
+    // histogram: ties rank behind earlier submissions, as with the old full scan.
+    public int rankOf(int score) {
+        long atOrAbove = 0;
+        for (Map.Entry<String, Long> entry : scoreCounts.entrySet()) {
+            if (Integer.parseInt(entry.getKey()) >= score) {
+                atOrAbove += entry.getValue();
+            }
+        }
+        return (int) Math.max(atOrAbove, 1);
+    }
+
+    public String getTestId() {
+        return testId;
+    }
+
+    public void setTestId(String testId) {
+        this.testId = testId;
+    }
+
+    public Map<String, Long> getScoreCounts() {
+        return scoreCounts;
+    }
+
+    public void setScoreCounts(Map<String, Long> scoreCounts) {
+        this.scoreCounts = scoreCounts;
+    }
+
+    public long getTotalResults() {
+        return totalResults;
+    }
+
+    public void setTotalResults(long totalResults) {
+        this.totalResults = totalResults;
+    }
+}
@@ -0,0 +1,112 @@
+package com.mockanytime.scoringservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Question text of one test version, shared by every result graded against it.
+// Review screens hydrate compact results from here.
+@Document(collection = "test_snapshots")
+public class TestSnapshot {
+    @Id
+    private String id; // testId:version, or testId:h<content hash> for migrated results
+    private String testId;
+    private String title;
+    private List<SnapshotQuestion> questions = new ArrayList<>();
+    private Date createdAt = new Date();
+
+    public TestSnapshot() {
+    }
+
+    public static class SnapshotQuestion {
+        private String id;
+        private String text;
+        private String correctAnswer;
+        private String explanation;
+
+        public SnapshotQuestion() {
+        }
+
+        public SnapshotQuestion(String id, String text, String correctAnswer, String explanation) {
+            this.id = id;
+            this.text = text;
+            this.correctAnswer = correctAnswer;
+            this.explanation = explanation;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public String getCorrectAnswer() {
+            return correctAnswer;
+        }
+
+        public void setCorrectAnswer(String correctAnswer) {
+            this.correctAnswer = correctAnswer;
+        }
+
+        public String getExplanation() {
+            return explanation;
+        }
+
+        public void setExplanation(String explanation) {
+            this.explanation = explanation;
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTestId() {
+        return testId;
+    }
+
+    public void setTestId(String testId) {
+        this.testId = testId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public List<SnapshotQuestion> getQuestions() {
+        return questions;
+    }
+
+    public void setQuestions(List<SnapshotQuestion> questions) {
+        this.questions = questions;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+}
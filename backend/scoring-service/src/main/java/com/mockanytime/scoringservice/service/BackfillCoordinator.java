@@ -0,0 +1,135 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.model.BackfillMarker;
+import com.mockanytime.scoringservice.util.GuardedUpsert;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs each one-time backfill of a read model once across all instances. The
+ * first caller fixes the cutoff that splits results between the backfill and
+ * live recording. One instance at a time holds the backfill under a lease, and
+ * documents are marked as they are backfilled, so a rerun after a crash skips
+ * the ones already done.
+ */
+@Service
+public class BackfillCoordinator {
+
+    private static final long LEASE_MILLIS = 10 * 60_000;
+    private static final String BACKFILLED = "backfilled";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Date> cutoffs = new ConcurrentHashMap<>();
+    private final Set<String> done = ConcurrentHashMap.newKeySet();
+
+    public BackfillCoordinator(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /** Results created before this belong to the backfill; later ones are recorded live. */
+    public Date cutoff(String name) {
+        Date cutoff = cutoffs.get(name);
+        if (cutoff != null) {
+            return cutoff;
+        }
+        Query query = Query.query(Criteria.where("_id").is(name));
+        Update update = new Update()
+                .setOnInsert("cutoff", new Date())
+                .setOnInsert("status", BackfillMarker.PENDING);
+        BackfillMarker marker;
+        try {
+            marker = mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), BackfillMarker.class);
+        } catch (DuplicateKeyException e) {
+            // Another instance created the marker at the same moment
+            marker = mongoTemplate.findOne(query, BackfillMarker.class);
+        }
+        cutoffs.putIfAbsent(name, marker.getCutoff());
+        return cutoffs.get(name);
+    }
+
+    /** Takes the backfill if it is not done and no live lease is held on it; null otherwise. */
+    public BackfillMarker tryClaim(String name) {
+        cutoff(name);
+        Date now = new Date();
+        Query query = Query.query(Criteria.where("_id").is(name).and("status").ne(BackfillMarker.DONE)
+                .orOperator(Criteria.where("leaseUntil").is(null), Criteria.where("leaseUntil").lt(now)));
+        Update update = new Update()
+                .set("status", BackfillMarker.RUNNING)
+                .set("leaseUntil", new Date(now.getTime() + LEASE_MILLIS));
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                BackfillMarker.class);
+    }
+
+    public void complete(String name) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(name)),
+                new Update().set("status", BackfillMarker.DONE).unset("leaseUntil"), BackfillMarker.class);
+        done.add(name);
+    }
+
+    public boolean isDone(String name) {
+        if (done.contains(name)) {
+            return true;
+        }
+        BackfillMarker marker = mongoTemplate.findById(name, BackfillMarker.class);
+        if (marker != null && BackfillMarker.DONE.equals(marker.getStatus())) {
+            done.add(name);
+            return true;
+        }
+        return false;
+    }
+
+    /** Matches the results a backfill covers: created before the cutoff, or too old to have a date. */
+    public Criteria covered(String name) {
+        return new Criteria().orOperator(
+                Criteria.where("createdAt").lt(cutoff(name)),
+                Criteria.where("createdAt").is(null));
+    }
+
+    /** Upserts a batch of backfilled totals by document ID, skipping documents already backfilled. */
+    public void upsertOnce(Class<?> type, Map<String, Update> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(batch.keySet());
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        for (String id : ids) {
+            ops.upsert(Query.query(Criteria.where("_id").is(id)).addCriteria(notBackfilled()),
+                    batch.get(id).set(BACKFILLED, true));
+        }
+        try {
+            ops.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+            // Duplicate keys are documents already backfilled, or ones a live write created meanwhile
+            for (BulkWriteError error : e.getErrors()) {
+                String id = ids.get(error.getIndex());
+                GuardedUpsert.apply(mongoTemplate, type, id, notBackfilled(), batch.get(id));
+            }
+        }
+    }
+
+    private static Criteria notBackfilled() {
+        return Criteria.where(BACKFILLED).ne(true);
+    }
+}
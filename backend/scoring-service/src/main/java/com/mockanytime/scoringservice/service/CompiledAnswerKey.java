@@ -0,0 +1,105 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.dto.QuestionDto;
+import com.mockanytime.scoringservice.dto.TestDto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answer key of one test version flattened into arrays, built once when the
+ * test is cached. Grading a sheet is then a loop of array reads and in-place
+ * string comparisons with no per-question allocation.
+ */
+public final class CompiledAnswerKey {
+
+    private final long version;
+    private final String[] answerKeys; // "0", "1", ... as used in the submitted answers map
+    private final String[] correctAnswers; // trimmed and interned, null if the question has none
+    private final int[] points;
+    private final int totalPoints;
+
+    private CompiledAnswerKey(long version, String[] answerKeys, String[] correctAnswers, int[] points,
+            int totalPoints) {
+        this.version = version;
+        this.answerKeys = answerKeys;
+        this.correctAnswers = correctAnswers;
+        this.points = points;
+        this.totalPoints = totalPoints;
+    }
+
+    public static CompiledAnswerKey compile(TestDto test) {
+        List<QuestionDto> questions = test.questions() != null ? test.questions() : List.of();
+        int n = questions.size();
+        String[] answerKeys = new String[n];
+        String[] correctAnswers = new String[n];
+        int[] points = new int[n];
+
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            QuestionDto q = questions.get(i);
+            answerKeys[i] = String.valueOf(i).intern();
+            correctAnswers[i] = q.correctAnswer() != null ? q.correctAnswer().trim().intern() : null;
+            points[i] = q.points();
+            total += q.points();
+        }
+        return new CompiledAnswerKey(test.version(), answerKeys, correctAnswers, points, total);
+    }
+
+    public record Grade(int score, int correctCount, int wrongCount, boolean[] correct) {
+    }
+
+    public Grade grade(Map<String, String> answers) {
+        int n = points.length;
+        boolean[] correct = new boolean[n];
+        int score = 0;
+        int correctCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            String expected = correctAnswers[i];
+            if (expected != null && matches(answers.get(answerKeys[i]), expected)) {
+                correct[i] = true;
+                score += points[i];
+                correctCount++;
+            }
+        }
+        return new Grade(score, correctCount, n - correctCount, correct);
+    }
+
+    // Same as userAnswer.trim().equalsIgnoreCase(expected) without creating the trimmed copy
+    static boolean matches(String userAnswer, String expected) {
+        if (userAnswer == null) {
+            return false;
+        }
+        int start = 0;
+        int end = userAnswer.length();
+        while (start < end && userAnswer.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && userAnswer.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end - start == expected.length()
+                && userAnswer.regionMatches(true, start, expected, 0, expected.length());
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int totalPoints() {
+        return totalPoints;
+    }
+
+    public String answerKey(int question) {
+        return answerKeys[question];
+    }
+
+    public int points(int question) {
+        return points[question];
+    }
+}
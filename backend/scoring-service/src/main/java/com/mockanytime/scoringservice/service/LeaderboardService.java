@@ -0,0 +1,294 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.model.LeaderboardBucket;
+import com.mockanytime.scoringservice.model.Result;
+import com.mockanytime.scoringservice.util.GuardedUpsert;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+@Service
+public class LeaderboardService {
+
+    static final String BACKFILL = "leaderboard";
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    // A retried record is recognised as long as fewer than this many later results reached the bucket
+    private static final int RECENT_RESULTS = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final BackfillCoordinator backfillCoordinator;
+    private final long viewTtlMillis;
+    private final Map<String, CompletableFuture<RankedView>> views = new ConcurrentHashMap<>();
+
+    public LeaderboardService(MongoTemplate mongoTemplate, BackfillCoordinator backfillCoordinator,
+            @Value("${leaderboard.view-ttl-seconds:30}") long viewTtlSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.backfillCoordinator = backfillCoordinator;
+        this.viewTtlMillis = viewTtlSeconds * 1000;
+    }
+
+    // Ranks are competition ranks everywhere: tied users share a rank and the next one skips ahead
+    public record LeaderboardEntry(
+            String userId,
+            String name,
+            int totalScore,
+            int testsTaken,
+            double averageAccuracy,
+            int rank) {
+    }
+
+    // Weekly/monthly views are rolled up from daily buckets and reused until they expire
+    private record RankedView(long builtAt, List<LeaderboardEntry> entries, Map<String, LeaderboardEntry> byUser) {
+    }
+
+    /** Adds the result to its user's buckets. Safe to repeat: each bucket counts a result once. */
+    public void record(Result result) {
+        Date createdAt = result.getCreatedAt();
+        if (createdAt == null || createdAt.before(backfillCoordinator.cutoff(BACKFILL))) {
+            return; // Counted by the backfill
+        }
+        String day = createdAt.toInstant().atZone(ZoneOffset.UTC).toLocalDate().toString();
+        recordOnce(result, LeaderboardBucket.DAY, day);
+        recordOnce(result, LeaderboardBucket.ALL_TIME, LeaderboardBucket.ALL_TIME);
+    }
+
+    private void recordOnce(Result result, String granularity, String bucket) {
+        Update update = increment(result.getUserId(), granularity, bucket, result.getScore(), 1,
+                result.getAccuracy());
+        update.push("resultIds").slice(-RECENT_RESULTS).each(result.getId());
+        GuardedUpsert.apply(mongoTemplate, LeaderboardBucket.class,
+                LeaderboardBucket.idFor(result.getUserId(), bucket),
+                Criteria.where("resultIds").ne(result.getId()), update);
+    }
+
+    public List<LeaderboardEntry> getLeaderboard(String period, int limit) {
+        if (isAllTime(period)) {
+            Query query = Query.query(Criteria.where("granularity").is(LeaderboardBucket.ALL_TIME))
+                    .with(Sort.by(Sort.Order.desc("totalScore"), Sort.Order.asc("userId")))
+                    .limit(limit);
+            query.fields().exclude("resultIds");
+            List<LeaderboardBucket> top = mongoTemplate.find(query, LeaderboardBucket.class);
+
+            // The list starts at the top, so its competition ranks are the global ones
+            List<LeaderboardEntry> board = new ArrayList<>();
+            for (LeaderboardBucket b : top) {
+                board.add(toEntry(b.getUserId(), b.getTotalScore(), b.getTestsTaken(), b.getAccuracySum(),
+                        competitionRank(board, b.getTotalScore())));
+            }
+            return board;
+        }
+
+        List<LeaderboardEntry> entries = rankedView(period).entries();
+        return entries.subList(0, Math.min(limit, entries.size()));
+    }
+
+    public Optional<LeaderboardEntry> getPosition(String period, String userId) {
+        if (isAllTime(period)) {
+            LeaderboardBucket mine = mongoTemplate.findById(
+                    LeaderboardBucket.idFor(userId, LeaderboardBucket.ALL_TIME), LeaderboardBucket.class);
+            if (mine == null) {
+                return Optional.empty();
+            }
+            long ahead = mongoTemplate.count(Query.query(Criteria.where("granularity").is(LeaderboardBucket.ALL_TIME)
+                    .and("totalScore").gt(mine.getTotalScore())), LeaderboardBucket.class);
+            return Optional.of(toEntry(userId, mine.getTotalScore(), mine.getTestsTaken(), mine.getAccuracySum(),
+                    (int) ahead + 1));
+        }
+
+        return Optional.ofNullable(rankedView(period).byUser().get(userId));
+    }
+
+    // One build per period at a time, outside any map lock; callers arriving meanwhile wait for it
+    private RankedView rankedView(String period) {
+        String key = period.toLowerCase();
+        while (true) {
+            CompletableFuture<RankedView> current = views.get(key);
+            if (current != null) {
+                if (!current.isDone()) {
+                    return join(current);
+                }
+                RankedView view = current.isCompletedExceptionally() ? null : current.join();
+                if (view != null && System.currentTimeMillis() - view.builtAt() < viewTtlMillis) {
+                    return view;
+                }
+            }
+
+            CompletableFuture<RankedView> mine = new CompletableFuture<>();
+            boolean claimed = current == null
+                    ? views.putIfAbsent(key, mine) == null
+                    : views.replace(key, current, mine);
+            if (!claimed) {
+                continue;
+            }
+            try {
+                RankedView view = buildView(key);
+                mine.complete(view);
+                return view;
+            } catch (RuntimeException e) {
+                views.remove(key, mine);
+                mine.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private static RankedView join(CompletableFuture<RankedView> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    private RankedView buildView(String period) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = "monthly".equals(period) ? today.minusMonths(1) : today.minusDays(6);
+
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("granularity").is(LeaderboardBucket.DAY)
+                        .and("bucket").gte(start.toString())),
+                Aggregation.group("userId")
+                        .sum("totalScore").as("totalScore")
+                        .sum("testsTaken").as("testsTaken")
+                        .sum("accuracySum").as("accuracySum"),
+                Aggregation.sort(Sort.by(Sort.Order.desc("totalScore"), Sort.Order.asc("_id"))));
+
+        List<LeaderboardEntry> entries = new ArrayList<>();
+        Map<String, LeaderboardEntry> byUser = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(agg, LeaderboardBucket.class, Document.class)
+                .getMappedResults()) {
+            long totalScore = number(row.get("totalScore")).longValue();
+            LeaderboardEntry entry = toEntry(
+                    row.getString("_id"),
+                    totalScore,
+                    number(row.get("testsTaken")).intValue(),
+                    number(row.get("accuracySum")).doubleValue(),
+                    competitionRank(entries, totalScore));
+            entries.add(entry);
+            byUser.put(entry.userId(), entry);
+        }
+        return new RankedView(System.currentTimeMillis(), List.copyOf(entries), byUser);
+    }
+
+    /**
+     * Builds buckets for results created before the backfill cutoff. Runs on
+     * one instance at a time; results from the cutoff on are recorded live.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            if (backfillCoordinator.tryClaim(BACKFILL) == null) {
+                return;
+            }
+            System.out.println("Backfilling leaderboard buckets from existing results...");
+            Criteria covered = backfillCoordinator.covered(BACKFILL);
+
+            // Days and all-time totals are grouped separately so each bucket gets exactly one upsert
+            Aggregation byDay = Aggregation.newAggregation(
+                    Aggregation.match(covered),
+                    Aggregation.project("userId", "score", "accuracy")
+                            .and(DateOperators.dateOf("createdAt").toString("%Y-%m-%d")).as("day"),
+                    Aggregation.group("userId", "day")
+                            .sum("score").as("totalScore")
+                            .count().as("testsTaken")
+                            .sum("accuracy").as("accuracySum"));
+            backfillBuckets(byDay, LeaderboardBucket.DAY);
+
+            Aggregation allTime = Aggregation.newAggregation(
+                    Aggregation.match(covered),
+                    Aggregation.group("userId")
+                            .sum("score").as("totalScore")
+                            .count().as("testsTaken")
+                            .sum("accuracy").as("accuracySum"));
+            backfillBuckets(allTime, LeaderboardBucket.ALL_TIME);
+
+            backfillCoordinator.complete(BACKFILL);
+            System.out.println("Leaderboard backfill complete.");
+        } catch (Exception e) {
+            System.err.println("Leaderboard backfill failed: " + e.getMessage());
+        }
+    }
+
+    private void backfillBuckets(Aggregation agg, String granularity) {
+        Map<String, Update> batch = new LinkedHashMap<>();
+        try (Stream<Document> rows = mongoTemplate.aggregateStream(agg, "results", Document.class)) {
+            for (Iterator<Document> it = rows.iterator(); it.hasNext();) {
+                Document row = it.next();
+                Object id = row.get("_id");
+                String userId = id instanceof Document group ? group.getString("userId") : (String) id;
+                String bucket = id instanceof Document group ? group.getString("day") : LeaderboardBucket.ALL_TIME;
+                if (userId == null || bucket == null) {
+                    continue;
+                }
+                batch.put(LeaderboardBucket.idFor(userId, bucket), increment(userId, granularity, bucket,
+                        number(row.get("totalScore")).longValue(),
+                        number(row.get("testsTaken")).intValue(),
+                        number(row.get("accuracySum")).doubleValue()));
+                if (batch.size() >= BACKFILL_BATCH_SIZE) {
+                    backfillCoordinator.upsertOnce(LeaderboardBucket.class, batch);
+                    batch = new LinkedHashMap<>();
+                }
+            }
+        }
+        backfillCoordinator.upsertOnce(LeaderboardBucket.class, batch);
+    }
+
+    private static Update increment(String userId, String granularity, String bucket, long score, int tests,
+            double accuracy) {
+        return new Update()
+                .setOnInsert("userId", userId)
+                .setOnInsert("granularity", granularity)
+                .setOnInsert("bucket", bucket)
+                .inc("totalScore", score)
+                .inc("testsTaken", tests)
+                .inc("accuracySum", accuracy);
+    }
+
+    // Rank of the next entry in a list sorted by score: shared with the previous entry on a tie
+    private static int competitionRank(List<LeaderboardEntry> above, long totalScore) {
+        if (above.isEmpty()) {
+            return 1;
+        }
+        LeaderboardEntry last = above.get(above.size() - 1);
+        return last.totalScore() == totalScore ? last.rank() : above.size() + 1;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number n ? n : 0;
+    }
+
+    private boolean isAllTime(String period) {
+        return !"weekly".equalsIgnoreCase(period) && !"monthly".equalsIgnoreCase(period);
+    }
+
+    private LeaderboardEntry toEntry(String userId, long totalScore, int testsTaken, double accuracySum, int rank) {
+        double avgAcc = testsTaken > 0 ? accuracySum / testsTaken : 0.0;
+        // In a real app, fetch user name from AuthService or User Service
+        String name = "User " + userId.substring(0, Math.min(userId.length(), 6));
+        return new LeaderboardEntry(
+                userId,
+                name,
+                (int) totalScore,
+                testsTaken,
+                Math.round(avgAcc * 100.0) / 100.0,
+                rank);
+    }
+}
@@ -0,0 +1,70 @@
+package com.mockanytime.scoringservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-student question order for tests with shuffling on. The order follows
+ * from (testId, userId, attempt) alone, exactly as the assessment service
+ * derives it when serving the paper, so grading undoes it without anything
+ * stored per attempt. Must stay in step with the assessment service's copy.
+ */
+public final class PaperShuffle {
+
+    private PaperShuffle() {
+    }
+
+    public static long seed(String testId, String userId, long attempt) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(
+                    (testId + '\u001f' + userId + '\u001f' + attempt).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        long seed = 0;
+        for (int i = 0; i < 8; i++) {
+            seed = (seed << 8) | (digest[i] & 0xff);
+        }
+        return seed;
+    }
+
+    /** order[p] is the original index of the question shown at position p. */
+    public static int[] order(long seed, int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        // Fisher-Yates over a SplitMix64 stream, spelled out so both services agree bit for bit
+        long state = seed;
+        for (int i = n - 1; i > 0; i--) {
+            state += 0x9E3779B97F4A7C15L;
+            int j = (int) (((mix(state) >>> 32) * (i + 1)) >>> 32);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    /** Answers keyed by displayed position, rekeyed by original question index. */
+    public static Map<String, String> unshuffle(Map<String, String> answers, int[] order) {
+        Map<String, String> original = new HashMap<>(answers.size() * 2);
+        for (int p = 0; p < order.length; p++) {
+            String answer = answers.get(String.valueOf(p));
+            if (answer != null) {
+                original.put(String.valueOf(order[p]), answer);
+            }
+        }
+        return original;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,343 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.client.AuthClient;
+import com.mockanytime.scoringservice.dto.UserDto;
+import com.mockanytime.scoringservice.model.PostSubmitTask;
+import com.mockanytime.scoringservice.model.Result;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the work that does not affect a student's score after the result is
+ * durable. Each submission gets an outbox task, written before the result, that
+ * is handed straight to a bounded worker pool; a sweeper retries failed stages
+ * with backoff and picks up tasks left behind by a full queue or a crashed node.
+ * A worker records each stage as soon as it completes, and only while it still
+ * holds the task's lease, so a task reclaimed from a slow worker is not
+ * overwritten by it.
+ */
+@Service
+public class PostSubmitPipeline {
+
+    private static final long LEASE_MILLIS = 60_000;
+    // A task waits this long for its result to be saved before the sweeper may take it
+    private static final long SUBMIT_GRACE_MILLIS = 60_000;
+    // A task whose result still doesn't exist after this is for a submission that failed
+    private static final long ORPHAN_MILLIS = 10 * 60_000;
+    private static final long MAX_BACKOFF_MILLIS = 300_000;
+    private static final int SWEEP_BATCH = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final AuthClient authClient;
+    private final LeaderboardService leaderboardService;
+    private final ReportCubeService reportCubeService;
+    private final int maxAttempts;
+    private final ThreadPoolExecutor executor;
+    private final Timer lagTimer;
+    private final AtomicLong outboxBacklog = new AtomicLong();
+
+    public PostSubmitPipeline(MongoTemplate mongoTemplate, AuthClient authClient,
+            LeaderboardService leaderboardService, ReportCubeService reportCubeService, MeterRegistry meterRegistry,
+            @Value("${post-submit.workers:4}") int workers,
+            @Value("${post-submit.queue-capacity:1000}") int queueCapacity,
+            @Value("${post-submit.max-attempts:5}") int maxAttempts) {
+        this.mongoTemplate = mongoTemplate;
+        this.authClient = authClient;
+        this.leaderboardService = leaderboardService;
+        this.reportCubeService = reportCubeService;
+        this.maxAttempts = maxAttempts;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "post-submit-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        Gauge.builder("post_submit.queue.depth", executor, e -> e.getQueue().size())
+                .description("Post-submit tasks waiting for a worker on this node")
+                .register(meterRegistry);
+        Gauge.builder("post_submit.outbox.backlog", outboxBacklog, AtomicLong::get)
+                .description("Post-submit tasks not yet completed across all nodes")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("post_submit.lag")
+                .description("Time from a durable submission to its post-submit work completing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes the outbox task for a result that is about to be saved, assigning
+     * the result its ID. Call before saving the result and let a failure fail
+     * the submission, so no saved result is left without its task.
+     */
+    public PostSubmitTask prepare(Result result) {
+        return prepareAll(List.of(result)).get(0);
+    }
+
+    public List<PostSubmitTask> prepareAll(List<Result> results) {
+        Date notBefore = new Date(System.currentTimeMillis() + SUBMIT_GRACE_MILLIS);
+        List<PostSubmitTask> tasks = new ArrayList<>(results.size());
+        for (Result result : results) {
+            if (result.getId() == null) {
+                result.setId(new ObjectId().toHexString());
+            }
+            PostSubmitTask task = new PostSubmitTask(result.getId());
+            task.setNextAttemptAt(notBefore);
+            tasks.add(task);
+        }
+        return new ArrayList<>(mongoTemplate.insert(tasks, PostSubmitTask.class));
+    }
+
+    /** Drops prepared tasks whose results were not saved after all. */
+    public void discard(List<PostSubmitTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(tasks.stream().map(PostSubmitTask::getId).toList())),
+                PostSubmitTask.class);
+    }
+
+    /** Hands prepared tasks to the workers once their results are saved. */
+    public void start(List<PostSubmitTask> tasks) {
+        for (PostSubmitTask task : tasks) {
+            dispatch(task.getId());
+        }
+    }
+
+    public void start(PostSubmitTask task) {
+        dispatch(task.getId());
+    }
+
+    private void dispatch(String taskId) {
+        try {
+            executor.execute(() -> {
+                PostSubmitTask claimed = claim(Criteria.where("_id").is(taskId), false);
+                if (claimed != null) {
+                    process(claimed);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue is full; the task stays pending for the sweeper
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${post-submit.sweep-interval-ms:5000}")
+    public void sweep() {
+        try {
+            outboxBacklog.set(mongoTemplate.count(
+                    Query.query(Criteria.where("status").in(PostSubmitTask.PENDING, PostSubmitTask.RUNNING)),
+                    PostSubmitTask.class));
+
+            int capacity = Math.min(executor.getQueue().remainingCapacity(), SWEEP_BATCH);
+            for (int i = 0; i < capacity; i++) {
+                PostSubmitTask claimed = claim(new Criteria(), true);
+                if (claimed == null) {
+                    break;
+                }
+                try {
+                    executor.execute(() -> process(claimed));
+                } catch (RejectedExecutionException e) {
+                    release(claimed);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Post-submit sweep failed: " + e.getMessage());
+        }
+    }
+
+    // Atomically takes a pending task (or one whose lease expired) so only one worker runs it.
+    // The submitting node dispatches its own task straight away, before the sweeper's grace ends.
+    private PostSubmitTask claim(Criteria filter, boolean onlyDue) {
+        Date now = new Date();
+        Criteria pending = Criteria.where("status").is(PostSubmitTask.PENDING);
+        if (onlyDue) {
+            pending = pending.and("nextAttemptAt").lte(now);
+        }
+        Criteria claimable = new Criteria().orOperator(pending,
+                Criteria.where("status").is(PostSubmitTask.RUNNING).and("leaseUntil").lt(now));
+        Update update = new Update()
+                .set("status", PostSubmitTask.RUNNING)
+                .set("leaseUntil", new Date(now.getTime() + LEASE_MILLIS))
+                .set("leaseToken", UUID.randomUUID().toString())
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(Query.query(new Criteria().andOperator(filter, claimable)), update,
+                FindAndModifyOptions.options().returnNew(true), PostSubmitTask.class);
+    }
+
+    private void release(PostSubmitTask task) {
+        mongoTemplate.updateFirst(owned(task), new Update()
+                .set("status", PostSubmitTask.PENDING)
+                .inc("attempts", -1)
+                .unset("leaseUntil")
+                .unset("leaseToken"), PostSubmitTask.class);
+    }
+
+    void process(PostSubmitTask task) {
+        Result result = mongoTemplate.findById(task.getResultId(), Result.class);
+        if (result == null) {
+            if (System.currentTimeMillis() - task.getCreatedAt().getTime() > ORPHAN_MILLIS) {
+                mongoTemplate.remove(owned(task), PostSubmitTask.class);
+            } else {
+                // The submission may still be saving its result
+                mongoTemplate.updateFirst(owned(task), new Update()
+                        .set("status", PostSubmitTask.PENDING)
+                        .inc("attempts", -1)
+                        .set("nextAttemptAt", new Date(System.currentTimeMillis() + LEASE_MILLIS))
+                        .unset("leaseUntil")
+                        .unset("leaseToken"), PostSubmitTask.class);
+            }
+            return;
+        }
+
+        StringBuilder errors = new StringBuilder();
+
+        if (!task.isMetadataDone()) {
+            try {
+                enrichMetadata(result);
+                if (!markDone(task, "metadataDone")) {
+                    return;
+                }
+                task.setMetadataDone(true);
+            } catch (Exception e) {
+                errors.append("metadata: ").append(e.getMessage()).append("; ");
+            }
+        }
+
+        if (!task.isLeaderboardDone()) {
+            try {
+                leaderboardService.record(result);
+                if (!markDone(task, "leaderboardDone")) {
+                    return;
+                }
+                task.setLeaderboardDone(true);
+            } catch (Exception e) {
+                errors.append("leaderboard: ").append(e.getMessage()).append("; ");
+            }
+        }
+
+        // Cube cells are keyed by the profile metadata, so wait until it is filled in;
+        // on the last attempt, count the result with whatever dimensions are known
+        if (!task.isReportDone() && (task.isMetadataDone() || task.getAttempts() >= maxAttempts)) {
+            try {
+                reportCubeService.record(result);
+                if (!markDone(task, "reportDone")) {
+                    return;
+                }
+                task.setReportDone(true);
+            } catch (Exception e) {
+                errors.append("report: ").append(e.getMessage()).append("; ");
+            }
+        }
+
+        if (!task.isNotificationDone()) {
+            try {
+                sendNotification(result);
+                if (!markDone(task, "notificationDone")) {
+                    return;
+                }
+                task.setNotificationDone(true);
+            } catch (Exception e) {
+                errors.append("notification: ").append(e.getMessage()).append("; ");
+            }
+        }
+
+        finish(task, errors.toString());
+    }
+
+    // Records a finished stage and extends the lease; false if another worker has taken the task
+    private boolean markDone(PostSubmitTask task, String stage) {
+        boolean held = mongoTemplate.updateFirst(owned(task), new Update()
+                .set(stage, true)
+                .set("leaseUntil", new Date(System.currentTimeMillis() + LEASE_MILLIS)),
+                PostSubmitTask.class).getMatchedCount() > 0;
+        if (!held) {
+            System.err.println("Lost the post-submit lease for result " + task.getResultId() + " after " + stage);
+        }
+        return held;
+    }
+
+    private static Query owned(PostSubmitTask task) {
+        return Query.query(Criteria.where("_id").is(task.getId()).and("leaseToken").is(task.getLeaseToken()));
+    }
+
+    private void finish(PostSubmitTask task, String errors) {
+        if (task.allStagesDone()) {
+            lagTimer.record(Duration.ofMillis(System.currentTimeMillis() - task.getCreatedAt().getTime()));
+            mongoTemplate.remove(owned(task), PostSubmitTask.class);
+            return;
+        }
+
+        Update update = new Update()
+                .set("lastError", errors)
+                .unset("leaseUntil")
+                .unset("leaseToken");
+        if (task.getAttempts() >= maxAttempts) {
+            System.err.println("Giving up on post-submit work for result " + task.getResultId() + ": " + errors);
+            update.set("status", PostSubmitTask.FAILED);
+        } else {
+            long backoff = Math.min(1000L << Math.min(task.getAttempts(), 20), MAX_BACKOFF_MILLIS);
+            update.set("status", PostSubmitTask.PENDING)
+                    .set("nextAttemptAt", new Date(System.currentTimeMillis() + backoff));
+        }
+        mongoTemplate.updateFirst(owned(task), update, PostSubmitTask.class);
+    }
+
+    private void enrichMetadata(Result result) {
+        Map<String, Object> userResponse = authClient.getUserProfile(result.getUserId());
+        UserDto user = UserDto.fromResponse(userResponse);
+
+        result.setPostalCircle(user.postalCircle());
+        result.setDivision(user.division());
+        result.setCadre(user.cadre());
+        result.setExamType(user.examType());
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(result.getId())),
+                new Update()
+                        .set("postalCircle", user.postalCircle())
+                        .set("division", user.division())
+                        .set("cadre", user.cadre())
+                        .set("examType", user.examType()),
+                Result.class);
+    }
+
+    private void sendNotification(Result result) {
+        Map<String, Object> notif = new HashMap<>();
+        notif.put("userId", result.getUserId());
+        notif.put("title", "Exam Completed: " + result.getTestTitle());
+        notif.put("message", "You scored " + result.getScore() + "/" + result.getTotalPoints() + " ("
+                + result.getAccuracy() + "% accuracy).");
+        notif.put("type", "EXAM_COMPLETION");
+        notif.put("link", "/dashboard/result/" + result.getId());
+        authClient.createNotification(notif);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Unfinished tasks keep their lease and are picked up again after it expires
+        executor.shutdown();
+    }
+}
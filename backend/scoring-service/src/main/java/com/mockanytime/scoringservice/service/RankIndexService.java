@@ -0,0 +1,111 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.model.TestRankStats;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class RankIndexService {
+
+    private final MongoTemplate mongoTemplate;
+    private final Set<String> seededTests = ConcurrentHashMap.newKeySet();
+
+    public RankIndexService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Adds a score to the test's histogram and returns its rank. Must be called
+     * before the result itself is saved so the rank can go out in the same write.
+     */
+    public int registerScore(String testId, int score) {
+        return registerScores(testId, new int[] { score })[0];
+    }
+
+    /**
+     * Adds a batch of scores for one test in a single update and returns their
+     * ranks in the same order. Equal scores later in the batch rank behind
+     * earlier ones, as if they had been submitted one by one.
+     */
+    public int[] registerScores(String testId, int[] scores) {
+        ensureSeeded(testId);
+
+        Map<Integer, Integer> batchCounts = new HashMap<>();
+        Update update = new Update().inc("totalResults", scores.length);
+        for (int score : scores) {
+            batchCounts.merge(score, 1, Integer::sum);
+        }
+        batchCounts.forEach((score, count) -> update.inc("scoreCounts." + score, count));
+
+        TestRankStats stats = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(testId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                TestRankStats.class);
+
+        int[] ranks = new int[scores.length];
+        Map<Integer, Integer> remaining = new HashMap<>(batchCounts);
+        for (int i = 0; i < scores.length; i++) {
+            int laterTies = remaining.merge(scores[i], -1, Integer::sum);
+            ranks[i] = stats != null ? Math.max(stats.rankOf(scores[i]) - laterTies, 1) : 1;
+        }
+        return ranks;
+    }
+
+    /** Takes back scores registered for results that were never saved. */
+    public void releaseScores(String testId, int[] scores) {
+        if (scores.length == 0) {
+            return;
+        }
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int score : scores) {
+            counts.merge(score, 1, Integer::sum);
+        }
+        Update update = new Update().inc("totalResults", -scores.length);
+        counts.forEach((score, count) -> update.inc("scoreCounts." + score, -count));
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(testId)), update, TestRankStats.class);
+    }
+
+    // Tests that already had results before the index existed are seeded once
+    // from a server-side group-by on score.
+    private void ensureSeeded(String testId) {
+        if (seededTests.contains(testId)) {
+            return;
+        }
+        if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(testId)), TestRankStats.class)) {
+            seededTests.add(testId);
+            return;
+        }
+
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("testId").is(testId)),
+                Aggregation.group("score").count().as("count"));
+
+        TestRankStats stats = new TestRankStats(testId);
+        long total = 0;
+        for (Map<?, ?> row : mongoTemplate.aggregate(agg, "results", Map.class).getMappedResults()) {
+            long count = ((Number) row.get("count")).longValue();
+            stats.getScoreCounts().put(String.valueOf(row.get("_id")), count);
+            total += count;
+        }
+        stats.setTotalResults(total);
+
+        try {
+            mongoTemplate.insert(stats);
+        } catch (DuplicateKeyException e) {
+            // Another submission seeded it first
+        }
+        seededTests.add(testId);
+    }
+}
@@ -0,0 +1,246 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.dto.ReportPointDto;
+import com.mockanytime.scoringservice.dto.ReportSummaryDto;
+import com.mockanytime.scoringservice.model.ReportCell;
+import com.mockanytime.scoringservice.model.Result;
+import com.mockanytime.scoringservice.util.GuardedUpsert;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Reporting cube over results: one cell of running totals per
+ * (postalCircle, division, cadre, examType, day). Submissions increment their
+ * cell once profile metadata is known, and every report query rolls up the
+ * matching cells, so its cost follows the number of cells, not results.
+ * Results from before the cube existed are added by a one-time backfill.
+ */
+@Service
+public class ReportCubeService {
+
+    static final String BACKFILL = "reportCube";
+
+    public static final List<String> DIMENSIONS = List.of("postalCircle", "division", "cadre", "examType");
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final int RECENT_RESULTS = 500;
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneOffset.UTC);
+
+    private final MongoTemplate mongoTemplate;
+    private final BackfillCoordinator backfillCoordinator;
+
+    public ReportCubeService(MongoTemplate mongoTemplate, BackfillCoordinator backfillCoordinator) {
+        this.mongoTemplate = mongoTemplate;
+        this.backfillCoordinator = backfillCoordinator;
+    }
+
+    /** False until the backfill has finished on some instance; callers fall back to scanning results. */
+    public boolean isReady() {
+        return backfillCoordinator.isDone(BACKFILL);
+    }
+
+    /**
+     * Adds the result to its cell. Safe to repeat: each cell counts a result once.
+     * Missing profile metadata leaves those dimensions unknown.
+     */
+    public void record(Result result) {
+        Date createdAt = result.getCreatedAt();
+        if (createdAt == null || createdAt.before(backfillCoordinator.cutoff(BACKFILL))) {
+            return; // Counted by the backfill
+        }
+        String day = DAY.format(createdAt.toInstant());
+        Update update = increment(result.getPostalCircle(), result.getDivision(), result.getCadre(),
+                result.getExamType(), day, 1, result.getScore(), result.getAccuracy());
+        update.push("resultIds").slice(-RECENT_RESULTS).each(result.getId());
+        GuardedUpsert.apply(mongoTemplate, ReportCell.class,
+                ReportCell.idFor(result.getPostalCircle(), result.getDivision(), result.getCadre(),
+                        result.getExamType(), day),
+                Criteria.where("resultIds").ne(result.getId()), update);
+    }
+
+    public ReportSummaryDto summary(Criteria filter) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(filter),
+                Aggregation.facet(Aggregation.group()
+                        .sum("count").as("count")
+                        .sum("scoreSum").as("scoreSum")
+                        .sum("accuracySum").as("accuracySum")).as("global")
+                        .and(rollUp("postalCircle", 10)).as("postalCircle")
+                        .and(rollUp("division", 10)).as("division")
+                        .and(rollUp("cadre", 10)).as("cadre")
+                        .and(rollUp("examType", 10)).as("examType"));
+
+        Document facets = mongoTemplate.aggregate(agg, ReportCell.class, Document.class).getUniqueMappedResult();
+        List<Document> global = facets != null ? facets.getList("global", Document.class, List.of()) : List.of();
+        if (global.isEmpty()) {
+            return new ReportSummaryDto(0, 0.0, 0.0, List.of(), List.of(), List.of(), List.of());
+        }
+
+        Document totals = global.get(0);
+        long count = number(totals.get("count")).longValue();
+        return new ReportSummaryDto(
+                count,
+                average(number(totals.get("scoreSum")).doubleValue(), count),
+                average(number(totals.get("accuracySum")).doubleValue(), count),
+                countEntries(facets.getList("postalCircle", Document.class, List.of())),
+                countEntries(facets.getList("division", Document.class, List.of())),
+                countEntries(facets.getList("cadre", Document.class, List.of())),
+                countEntries(facets.getList("examType", Document.class, List.of())));
+    }
+
+    /** Every value of one dimension under the filter, e.g. the divisions of a circle. */
+    public List<ReportSummaryDto.CountEntry> drillDown(String dimension, Criteria filter) {
+        if (!DIMENSIONS.contains(dimension)) {
+            throw new IllegalArgumentException("Unknown dimension: " + dimension);
+        }
+        List<AggregationOperation> ops = new ArrayList<>();
+        ops.add(Aggregation.match(filter));
+        ops.addAll(Arrays.asList(rollUp(dimension, 0)));
+        return countEntries(mongoTemplate.aggregate(Aggregation.newAggregation(ops), ReportCell.class,
+                Document.class).getMappedResults());
+    }
+
+    public List<ReportPointDto> timeSeries(Criteria filter) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(filter),
+                Aggregation.group("day")
+                        .sum("count").as("count")
+                        .sum("scoreSum").as("scoreSum")
+                        .sum("accuracySum").as("accuracySum"),
+                Aggregation.sort(Sort.Direction.ASC, "_id"));
+
+        List<ReportPointDto> points = new ArrayList<>();
+        for (Document row : mongoTemplate.aggregate(agg, ReportCell.class, Document.class)) {
+            long count = number(row.get("count")).longValue();
+            points.add(new ReportPointDto(row.getString("_id"), count,
+                    average(number(row.get("scoreSum")).doubleValue(), count),
+                    average(number(row.get("accuracySum")).doubleValue(), count)));
+        }
+        return points;
+    }
+
+    public static Criteria dayRange(Criteria filter, String from, String to) {
+        if ((from == null || from.isEmpty()) && (to == null || to.isEmpty())) {
+            return filter;
+        }
+        Criteria day = Criteria.where("day");
+        if (from != null && !from.isEmpty()) {
+            day = day.gte(from);
+        }
+        if (to != null && !to.isEmpty()) {
+            day = day.lte(to);
+        }
+        return new Criteria().andOperator(filter, day);
+    }
+
+    /**
+     * Builds cells for results created before the backfill cutoff. Runs on one
+     * instance at a time; results from the cutoff on are recorded live.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            if (backfillCoordinator.tryClaim(BACKFILL) == null) {
+                return;
+            }
+            System.out.println("Backfilling report cube from existing results...");
+
+            Aggregation agg = Aggregation.newAggregation(
+                    Aggregation.match(backfillCoordinator.covered(BACKFILL)),
+                    Aggregation.project("postalCircle", "division", "cadre", "examType", "score", "accuracy")
+                            .and(DateOperators.dateOf("createdAt").toString("%Y-%m-%d")).as("day"),
+                    Aggregation.group("postalCircle", "division", "cadre", "examType", "day")
+                            .count().as("count")
+                            .sum("score").as("scoreSum")
+                            .sum("accuracy").as("accuracySum"));
+
+            Map<String, Update> batch = new LinkedHashMap<>();
+            try (Stream<Document> rows = mongoTemplate.aggregateStream(agg, "results", Document.class)) {
+                for (Iterator<Document> it = rows.iterator(); it.hasNext();) {
+                    Document row = it.next();
+                    Document id = row.get("_id", Document.class);
+                    String circle = id.getString("postalCircle");
+                    String division = id.getString("division");
+                    String cadre = id.getString("cadre");
+                    String examType = id.getString("examType");
+                    String day = id.getString("day");
+
+                    batch.put(ReportCell.idFor(circle, division, cadre, examType, day),
+                            increment(circle, division, cadre, examType, day, number(row.get("count")).longValue(),
+                                    number(row.get("scoreSum")).longValue(),
+                                    number(row.get("accuracySum")).doubleValue()));
+                    if (batch.size() >= BACKFILL_BATCH_SIZE) {
+                        backfillCoordinator.upsertOnce(ReportCell.class, batch);
+                        batch = new LinkedHashMap<>();
+                    }
+                }
+            }
+            backfillCoordinator.upsertOnce(ReportCell.class, batch);
+
+            backfillCoordinator.complete(BACKFILL);
+            System.out.println("Report cube backfill complete.");
+        } catch (Exception e) {
+            System.err.println("Report cube backfill failed: " + e.getMessage());
+        }
+    }
+
+    private static Update increment(String circle, String division, String cadre, String examType, String day,
+            long count, long score, double accuracy) {
+        return new Update()
+                .setOnInsert("postalCircle", circle)
+                .setOnInsert("division", division)
+                .setOnInsert("cadre", cadre)
+                .setOnInsert("examType", examType)
+                .setOnInsert("day", day)
+                .inc("count", count)
+                .inc("scoreSum", score)
+                .inc("accuracySum", accuracy);
+    }
+
+    // limit 0 returns every group
+    private static AggregationOperation[] rollUp(String dimension, int limit) {
+        List<AggregationOperation> ops = new ArrayList<>(List.of(
+                Aggregation.match(Criteria.where(dimension).ne(null)),
+                Aggregation.group(dimension)
+                        .sum("count").as("count")
+                        .sum("accuracySum").as("accuracySum"),
+                Aggregation.sort(Sort.Direction.DESC, "count")));
+        if (limit > 0) {
+            ops.add(Aggregation.limit(limit));
+        }
+        return ops.toArray(new AggregationOperation[0]);
+    }
+
+    private static List<ReportSummaryDto.CountEntry> countEntries(List<Document> rows) {
+        List<ReportSummaryDto.CountEntry> entries = new ArrayList<>(rows.size());
+        for (Document row : rows) {
+            long count = number(row.get("count")).longValue();
+            entries.add(new ReportSummaryDto.CountEntry(String.valueOf(row.get("_id")), count,
+                    average(number(row.get("accuracySum")).doubleValue(), count)));
+        }
+        return entries;
+    }
+
+    private static double average(double sum, long count) {
+        return count > 0 ? Math.round(sum / count * 100.0) / 100.0 : 0.0;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number n ? n : 0;
+    }
+}
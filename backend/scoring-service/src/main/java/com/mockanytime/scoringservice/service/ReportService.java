@@ -0,0 +1,163 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.dto.ReportPointDto;
+import com.mockanytime.scoringservice.dto.ReportSummaryDto;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class ReportService {
+
+    private static final int MAX_CACHED_REPORTS = 256;
+
+    private final MongoTemplate mongoTemplate;
+    private final ReportCubeService reportCubeService;
+    private final long cacheTtlMillis;
+    private final Map<List<String>, CachedReport> cache = new ConcurrentHashMap<>();
+
+    private record CachedReport(ReportSummaryDto report, long expiresAt) {
+    }
+
+    public ReportService(MongoTemplate mongoTemplate, ReportCubeService reportCubeService,
+            @Value("${report.summary-cache-ttl-seconds:30}") long cacheTtlSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.reportCubeService = reportCubeService;
+        this.cacheTtlMillis = cacheTtlSeconds * 1000;
+    }
+
+    public ReportSummaryDto getSummaryReport(String circle, String division, String cadre, String examType) {
+        if (cacheTtlMillis <= 0) {
+            return buildSummaryReport(circle, division, cadre, examType);
+        }
+
+        List<String> key = Arrays.asList(blankToNull(circle), blankToNull(division), blankToNull(cadre),
+                blankToNull(examType));
+        long now = System.currentTimeMillis();
+        CachedReport cached = cache.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.report();
+        }
+
+        ReportSummaryDto report = buildSummaryReport(circle, division, cadre, examType);
+        if (cache.size() >= MAX_CACHED_REPORTS) {
+            cache.values().removeIf(c -> c.expiresAt() <= now);
+            if (cache.size() >= MAX_CACHED_REPORTS) {
+                cache.clear();
+            }
+        }
+        cache.put(key, new CachedReport(report, now + cacheTtlMillis));
+        return report;
+    }
+
+    public List<ReportSummaryDto.CountEntry> drillDown(String dimension, String circle, String division,
+            String cadre, String examType, String from, String to) {
+        return reportCubeService.drillDown(dimension,
+                ReportCubeService.dayRange(filterCriteria(circle, division, cadre, examType), from, to));
+    }
+
+    public List<ReportPointDto> timeSeries(String circle, String division, String cadre, String examType,
+            String from, String to) {
+        return reportCubeService.timeSeries(
+                ReportCubeService.dayRange(filterCriteria(circle, division, cadre, examType), from, to));
+    }
+
+    static Criteria filterCriteria(String circle, String division, String cadre, String examType) {
+        Criteria criteria = new Criteria();
+        List<Criteria> filters = new ArrayList<>();
+
+        if (circle != null && !circle.isEmpty())
+            filters.add(Criteria.where("postalCircle").is(circle));
+        if (division != null && !division.isEmpty())
+            filters.add(Criteria.where("division").is(division));
+        if (cadre != null && !cadre.isEmpty())
+            filters.add(Criteria.where("cadre").is(cadre));
+        if (examType != null && !examType.isEmpty())
+            filters.add(Criteria.where("examType").is(examType));
+
+        if (!filters.isEmpty()) {
+            criteria.andOperator(filters.toArray(new Criteria[0]));
+        }
+        return criteria;
+    }
+
+    private ReportSummaryDto buildSummaryReport(String circle, String division, String cadre, String examType) {
+        if (reportCubeService.isReady()) {
+            return reportCubeService.summary(filterCriteria(circle, division, cadre, examType));
+        }
+        return scanSummaryReport(circle, division, cadre, examType);
+    }
+
+    // One scan of the matched results feeds the totals and all four breakdowns
+    private ReportSummaryDto scanSummaryReport(String circle, String division, String cadre, String examType) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(filterCriteria(circle, division, cadre, examType)),
+                Aggregation.project("score", "accuracy", "postalCircle", "division", "cadre", "examType"),
+                Aggregation.facet(Aggregation.group()
+                        .count().as("totalTests")
+                        .avg("score").as("averageScore")
+                        .avg("accuracy").as("averageAccuracy")).as("global")
+                        .and(groupedStats("postalCircle")).as("postalCircle")
+                        .and(groupedStats("division")).as("division")
+                        .and(groupedStats("cadre")).as("cadre")
+                        .and(groupedStats("examType")).as("examType"));
+
+        Document facets = mongoTemplate.aggregate(agg, "results", Document.class).getUniqueMappedResult();
+        if (facets == null) {
+            return new ReportSummaryDto(0, 0.0, 0.0, List.of(), List.of(), List.of(), List.of());
+        }
+
+        List<Document> global = facets.getList("global", Document.class, List.of());
+        Document stats = global.isEmpty() ? null : global.get(0);
+        long totalTests = stats != null ? number(stats.get("totalTests")).longValue() : 0;
+        double avgScore = stats != null ? number(stats.get("averageScore")).doubleValue() : 0.0;
+        double avgAccuracy = stats != null ? number(stats.get("averageAccuracy")).doubleValue() : 0.0;
+
+        return new ReportSummaryDto(
+                totalTests,
+                Math.round(avgScore * 100.0) / 100.0,
+                Math.round(avgAccuracy * 100.0) / 100.0,
+                countEntries(facets, "postalCircle"),
+                countEntries(facets, "division"),
+                countEntries(facets, "cadre"),
+                countEntries(facets, "examType"));
+    }
+
+    private static AggregationOperation[] groupedStats(String field) {
+        return new AggregationOperation[] {
+                Aggregation.match(Criteria.where(field).ne(null)),
+                Aggregation.group(field)
+                        .count().as("count")
+                        .avg("accuracy").as("averageAccuracy"),
+                Aggregation.sort(Sort.Direction.DESC, "count"),
+                Aggregation.limit(10)
+        };
+    }
+
+    private static List<ReportSummaryDto.CountEntry> countEntries(Document facets, String field) {
+        List<ReportSummaryDto.CountEntry> entries = new ArrayList<>();
+        for (Document doc : facets.getList(field, Document.class, List.of())) {
+            entries.add(new ReportSummaryDto.CountEntry(
+                    String.valueOf(doc.get("_id")),
+                    number(doc.get("count")).longValue(),
+                    number(doc.get("averageAccuracy")).doubleValue()));
+        }
+        return entries;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number n ? n : 0;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
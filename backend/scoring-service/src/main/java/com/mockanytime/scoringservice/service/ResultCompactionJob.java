@@ -0,0 +1,189 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.model.Result;
+import com.mockanytime.scoringservice.model.TestSnapshot;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Converts results with embedded answer details into the compact format. Walks
+ * the collection with a cursor and writes in bulk batches, so memory stays flat
+ * however many results exist. Safe to re-run: converted documents no longer match.
+ */
+@Service
+public class ResultCompactionJob {
+
+    private static final int MAX_QUESTIONS = 10_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final TestSnapshotService testSnapshotService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "result-compaction");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong converted = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong badKeys = new AtomicLong();
+    private volatile Date startedAt;
+    private volatile Date finishedAt;
+    private volatile String lastError;
+
+    public ResultCompactionJob(MongoTemplate mongoTemplate, TestSnapshotService testSnapshotService) {
+        this.mongoTemplate = mongoTemplate;
+        this.testSnapshotService = testSnapshotService;
+    }
+
+    public boolean start(int batchSize) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        converted.set(0);
+        skipped.set(0);
+        badKeys.set(0);
+        startedAt = new Date();
+        finishedAt = null;
+        lastError = null;
+        executor.execute(() -> {
+            try {
+                run(batchSize);
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                System.err.println("Result compaction failed: " + e.getMessage());
+            } finally {
+                finishedAt = new Date();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("converted", converted.get());
+        status.put("skipped", skipped.get());
+        status.put("badKeys", badKeys.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private void run(int batchSize) {
+        Query query = Query.query(Criteria.where("responses").exists(false).and("detailedAnswers").exists(true));
+        query.cursorBatchSize(batchSize);
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Result.class);
+        int pending = 0;
+        try (Stream<Result> results = mongoTemplate.stream(query, Result.class)) {
+            for (Iterator<Result> it = results.iterator(); it.hasNext();) {
+                Result result = it.next();
+                Update update = compact(result);
+                if (update == null) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                ops.updateOne(Query.query(Criteria.where("_id").is(result.getId())), update);
+                pending++;
+
+                if (pending >= batchSize) {
+                    ops.execute();
+                    converted.addAndGet(pending);
+                    ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Result.class);
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            ops.execute();
+            converted.addAndGet(pending);
+        }
+        System.out.println("Result compaction finished: " + converted.get() + " converted, " + skipped.get()
+                + " skipped, " + badKeys.get() + " answer keys that were not question positions.");
+    }
+
+    Update compact(Result result) {
+        Map<String, Result.AnswerDetail> details = result.getDetailedAnswers();
+        if (details == null || details.isEmpty()) {
+            return null;
+        }
+
+        // Details are keyed by question position; keys that aren't one are dropped and counted
+        Map<Integer, Result.AnswerDetail> byPosition = new HashMap<>();
+        int size = 0;
+        for (Map.Entry<String, Result.AnswerDetail> entry : details.entrySet()) {
+            int position = position(entry.getKey());
+            if (position < 0) {
+                badKeys.incrementAndGet();
+                continue;
+            }
+            byPosition.put(position, entry.getValue());
+            size = Math.max(size, position + 1);
+        }
+        if (byPosition.isEmpty()) {
+            return null;
+        }
+        Result.AnswerDetail[] ordered = new Result.AnswerDetail[size];
+        byPosition.forEach((position, detail) -> ordered[position] = detail);
+
+        String snapshotId = snapshotFor(result, ordered);
+        if (snapshotId == null) {
+            return null;
+        }
+
+        List<Result.CompactAnswer> responses = new ArrayList<>(ordered.length);
+        for (Result.AnswerDetail detail : ordered) {
+            String answer = detail != null ? detail.getUserAnswer() : null;
+            if ("Not Answered".equals(answer)) {
+                answer = null;
+            }
+            responses.add(new Result.CompactAnswer(answer, detail != null && detail.isCorrect(),
+                    detail != null ? detail.getPoints() : 0));
+        }
+
+        return new Update()
+                .set("snapshotId", snapshotId)
+                .set("responses", mongoTemplate.getConverter().convertToMongoType(responses))
+                .unset("detailedAnswers")
+                .unset("answers");
+    }
+
+    // -1 unless the key is a question position within a paper's size
+    private static int position(String key) {
+        try {
+            int position = Integer.parseInt(key);
+            return position >= 0 && position < MAX_QUESTIONS ? position : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Keeps exactly the text the student was graded against
+    private String snapshotFor(Result result, Result.AnswerDetail[] ordered) {
+        if (Arrays.stream(ordered).noneMatch(d -> d != null && d.getQuestionText() != null)) {
+            return null;
+        }
+        List<TestSnapshot.SnapshotQuestion> questions = new ArrayList<>(ordered.length);
+        for (Result.AnswerDetail d : ordered) {
+            questions.add(d != null
+                    ? new TestSnapshot.SnapshotQuestion(d.getQuestionId(), d.getQuestionText(),
+                            d.getCorrectAnswer(), d.getExplanation())
+                    : new TestSnapshot.SnapshotQuestion());
+        }
+        return testSnapshotService.recordContent(result.getTestId(), result.getTestTitle(), questions);
+    }
+}
@@ -0,0 +1,135 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.model.Result;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes filtered results straight from a Mongo cursor to the response. Rows
+ * are never collected in memory: the cursor fetches its next batch only after
+ * the previous one has been written, so a slow client slows the read as well.
+ */
+@Service
+public class ResultExportService {
+
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    private static final int XLSX_WINDOW_ROWS = 200;
+    private static final int XLSX_MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC);
+
+    private static final String[] COLUMNS = {
+            "resultId", "userId", "testId", "testTitle", "score", "totalPoints", "percentage", "accuracy",
+            "correctAnswers", "wrongAnswers", "timeTakenSeconds", "rank", "postalCircle", "division", "cadre",
+            "examType", "createdAt"
+    };
+
+    private final MongoTemplate mongoTemplate;
+
+    public ResultExportService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void writeCsv(String circle, String division, String cadre, String examType, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+
+        try (Stream<Result> results = stream(circle, division, cadre, examType)) {
+            for (Iterator<Result> it = results.iterator(); it.hasNext();) {
+                Object[] values = values(it.next());
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(csvField(values[i]));
+                }
+                writer.write("\r\n");
+            }
+        }
+        writer.flush();
+    }
+
+    public void writeXlsx(String circle, String division, String cadre, String examType, OutputStream out)
+            throws IOException {
+        // Only the last few hundred rows stay on the heap; older ones go to a compressed temp file
+        SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_WINDOW_ROWS);
+        workbook.setCompressTempFiles(true);
+        try (Stream<Result> results = stream(circle, division, cadre, examType)) {
+            SXSSFSheet sheet = null;
+            int rowIndex = XLSX_MAX_ROWS;
+            for (Iterator<Result> it = results.iterator(); it.hasNext();) {
+                // Roll over to a new sheet past Excel's row limit
+                if (rowIndex >= XLSX_MAX_ROWS) {
+                    sheet = workbook.createSheet("Results " + (workbook.getNumberOfSheets() + 1));
+                    writeRow(sheet.createRow(0), COLUMNS);
+                    rowIndex = 1;
+                }
+                writeRow(sheet.createRow(rowIndex++), values(it.next()));
+            }
+            if (sheet == null) {
+                writeRow(workbook.createSheet("Results 1").createRow(0), COLUMNS);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private Stream<Result> stream(String circle, String division, String cadre, String examType) {
+        Query query = Query.query(ReportService.filterCriteria(circle, division, cadre, examType));
+        query.fields().include("userId", "testId", "testTitle", "score", "totalPoints", "percentage", "accuracy",
+                "correctAnswers", "wrongAnswers", "timeTakenSeconds", "rank", "postalCircle", "division", "cadre",
+                "examType", "createdAt");
+        query.cursorBatchSize(CURSOR_BATCH_SIZE);
+        return mongoTemplate.stream(query, Result.class);
+    }
+
+    private static Object[] values(Result r) {
+        return new Object[] {
+                r.getId(), r.getUserId(), r.getTestId(), r.getTestTitle(), r.getScore(), r.getTotalPoints(),
+                r.getPercentage(), r.getAccuracy(), r.getCorrectAnswers(), r.getWrongAnswers(),
+                r.getTimeTakenSeconds(), r.getRank(), r.getPostalCircle(), r.getDivision(), r.getCadre(),
+                r.getExamType(), r.getCreatedAt() != null ? TIMESTAMP.format(r.getCreatedAt().toInstant()) : null
+        };
+    }
+
+    private static void writeRow(Row row, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof Number n) {
+                row.createCell(i).setCellValue(n.doubleValue());
+            } else if (value != null) {
+                row.createCell(i).setCellValue(value.toString());
+            }
+        }
+    }
+
+    static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String s = value.toString();
+        if (!(value instanceof Number) && !s.isEmpty() && "=+-@".indexOf(s.charAt(0)) >= 0) {
+            // Stop spreadsheet apps from evaluating titles as formulas
+            s = "'" + s;
+        }
+        if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+            return '"' + s.replace("\"", "\"\"") + '"';
+        }
+        return s;
+    }
+}
@@ -1,14 +1,24 @@
 package com.mockanytime.scoringservice.service;
 
-import com.mockanytime.scoringservice.client.AssessmentClient;
-import com.mockanytime.scoringservice.dto.ReportSummaryDto;
-import com.mockanytime.scoringservice.dto.TestDto;
+import com.mockanytime.scoringservice.dto.BatchOutcomeDto;
+import com.mockanytime.scoringservice.dto.BatchSubmissionDto;
+import com.mockanytime.scoringservice.dto.ResultPageDto;
+import com.mockanytime.scoringservice.dto.ResultSummaryDto;
+import com.mockanytime.scoringservice.model.PostSubmitTask;
 import com.mockanytime.scoringservice.model.Result;
+import com.mockanytime.scoringservice.model.TestSnapshot;
 import com.mockanytime.scoringservice.repository.ResultRepository;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.AggregationResults;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -16,17 +26,24 @@ import java.util.*;
 @Service
 public class ResultService {
 
+    private static final int DUPLICATE_KEY = 11000;
+
     private final ResultRepository resultRepository;
-    private final AssessmentClient assessmentClient;
-    private final com.mockanytime.scoringservice.client.AuthClient authClient;
+    private final TestCache testCache;
     private final MongoTemplate mongoTemplate;
+    private final RankIndexService rankIndexService;
+    private final PostSubmitPipeline postSubmitPipeline;
+    private final TestSnapshotService testSnapshotService;
 
-    public ResultService(ResultRepository resultRepository, AssessmentClient assessmentClient,
-            com.mockanytime.scoringservice.client.AuthClient authClient, MongoTemplate mongoTemplate) {
+    public ResultService(ResultRepository resultRepository, TestCache testCache, MongoTemplate mongoTemplate,
+            RankIndexService rankIndexService, PostSubmitPipeline postSubmitPipeline,
+            TestSnapshotService testSnapshotService) {
         this.resultRepository = resultRepository;
-        this.assessmentClient = assessmentClient;
-        this.authClient = authClient;
+        this.testCache = testCache;
         this.mongoTemplate = mongoTemplate;
+        this.rankIndexService = rankIndexService;
+        this.postSubmitPipeline = postSubmitPipeline;
+        this.testSnapshotService = testSnapshotService;
     }
 
     public Result submitTest(String testId, String userId, Map<String, String> answers) {
@@ -34,270 +51,360 @@ public class ResultService {
     }
 
     public Result submitTest(String testId, String userId, Map<String, String> answers, long timeTakenSeconds) {
-        TestDto test = assessmentClient.getTestById(testId);
+        return submitTest(testId, userId, answers, timeTakenSeconds, null, null);
+    }
 
-        // Fetch User profile for metadata
-        com.mockanytime.scoringservice.dto.UserDto user = null;
-        try {
-            Map<String, Object> userResponse = authClient.getUserProfile(userId);
-            user = com.mockanytime.scoringservice.dto.UserDto.fromResponse(userResponse);
-        } catch (Exception e) {
-            System.err.println("Failed to fetch user profile for metadata: " + e.getMessage());
+    /**
+     * {@code attempt} is the nonce the paper was served with; shuffled answers are mapped back before grading.
+     * {@code version} is the test version the paper showed, so an edit made meanwhile doesn't shift answers.
+     */
+    public Result submitTest(String testId, String userId, Map<String, String> answers, long timeTakenSeconds,
+            Long attempt, Long version) {
+        TestCache.Snapshot test = version != null ? testCache.getSnapshot(testId, version)
+                : testCache.getSnapshot(testId);
+        if (test.test().shuffleQuestions() && answers != null) {
+            long seed = PaperShuffle.seed(testId, userId, attempt != null ? attempt : 0);
+            answers = PaperShuffle.unshuffle(answers, PaperShuffle.order(seed, test.answerKey().size()));
         }
+        Result result = grade(test, testId, userId, answers, timeTakenSeconds);
 
-        int score = 0;
-        int totalPoints = 0;
-        int correctCount = 0;
-        int wrongCount = 0;
-        Map<String, Result.AnswerDetail> detailedAnswers = new HashMap<>();
-
-        // Calculate scores and build detailed answer breakdown
-        for (int i = 0; i < test.questions().size(); i++) {
-            var q = test.questions().get(i);
-            totalPoints += q.points();
-
-            String userAnswer = answers.get(String.valueOf(i));
-            String correctAnswer = q.correctAnswer();
-            boolean isCorrect = userAnswer != null && correctAnswer != null &&
-                    userAnswer.trim().equalsIgnoreCase(correctAnswer.trim());
-
-            if (isCorrect) {
-                score += q.points();
-                correctCount++;
-            } else {
-                wrongCount++;
-            }
+        // Profile metadata, leaderboard and notification don't change the score,
+        // so they run off the request thread from a retried outbox task. The task
+        // is written first; if that fails, the submission fails with nothing saved.
+        PostSubmitTask task = postSubmitPipeline.prepare(result);
 
-            // Build detailed answer for review
-            Result.AnswerDetail detail = new Result.AnswerDetail(
-                    q.text(),
-                    userAnswer != null ? userAnswer : "Not Answered",
-                    correctAnswer,
-                    q.explanation(),
-                    isCorrect,
-                    isCorrect ? q.points() : 0);
-            detailedAnswers.put(String.valueOf(i), detail);
+        // Rank (leaderboard position for this test) comes from the score histogram,
+        // so the result is written once with its rank already set
+        result.setRank(rankIndexService.registerScore(testId, result.getScore()));
+
+        Result savedResult;
+        try {
+            savedResult = resultRepository.save(result);
+        } catch (RuntimeException e) {
+            // Nothing was stored: take the score back out of the histogram and drop the task
+            try {
+                rankIndexService.releaseScores(testId, new int[] { result.getScore() });
+                postSubmitPipeline.discard(List.of(task));
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
         }
+        postSubmitPipeline.start(task);
 
-        double percentage = totalPoints > 0 ? ((double) score / totalPoints) * 100 : 0;
-        double accuracy = !test.questions().isEmpty() ? ((double) correctCount / test.questions().size()) * 100 : 0;
+        return hydrateDetails(savedResult);
+    }
 
-        Result result = new Result();
-        result.setTestId(testId);
-        result.setTestTitle(test.title());
-        result.setUserId(userId);
-        result.setScore(score);
-        result.setTotalPoints(totalPoints);
-        result.setPercentage(Math.round(percentage * 100.0) / 100.0);
-        result.setAccuracy(Math.round(accuracy * 100.0) / 100.0);
-        result.setAnswers(answers);
-        result.setTimeTakenSeconds(timeTakenSeconds);
-        result.setCorrectAnswers(correctCount);
-        result.setWrongAnswers(wrongCount);
-        result.setDetailedAnswers(detailedAnswers);
-
-        // Set metadata from user profile
-        if (user != null) {
-            result.setPostalCircle(user.postalCircle());
-            result.setDivision(user.division());
-            result.setCadre(user.cadre());
-            result.setExamType(user.examType());
+    /**
+     * Grades answer sheets uploaded together (e.g. from an offline exam centre).
+     * Sheets are grouped by test so each test is fetched once, ranked with one
+     * histogram update and written with one bulk write. A sheet with a
+     * sheet_id is stored at most once: re-sending it returns the stored result.
+     */
+    public List<BatchOutcomeDto> submitBatch(List<BatchSubmissionDto> submissions) {
+        Map<String, Result> stored = findBySheetId(submissions);
+        BatchOutcomeDto[] outcomes = new BatchOutcomeDto[submissions.size()];
+
+        // Sheets already stored, or repeated within this upload, are answered from the stored result
+        Map<String, List<Integer>> byTest = new LinkedHashMap<>();
+        Set<String> queued = new HashSet<>();
+        for (int i = 0; i < submissions.size(); i++) {
+            String sheetId = submissions.get(i).sheet_id();
+            if (sheetId != null && (stored.containsKey(sheetId) || !queued.add(sheetId))) {
+                continue;
+            }
+            byTest.computeIfAbsent(submissions.get(i).test_id(), k -> new ArrayList<>()).add(i);
         }
 
-        Result savedResult = resultRepository.save(result);
+        for (Map.Entry<String, List<Integer>> group : byTest.entrySet()) {
+            String testId = group.getKey();
+            List<BatchSubmissionDto> sheets = new ArrayList<>(group.getValue().size());
+            group.getValue().forEach(i -> sheets.add(submissions.get(i)));
+
+            TestCache.Snapshot test;
+            try {
+                test = testId != null ? testCache.getSnapshot(testId) : null;
+            } catch (Exception e) {
+                test = null;
+            }
+            if (test == null) {
+                group.getValue().forEach(i -> outcomes[i] = BatchOutcomeDto.failed(submissions.get(i),
+                        "Test not found"));
+                continue;
+            }
 
-        // Calculate rank (leaderboard position for this test)
-        calculateRank(savedResult);
+            List<Result> graded = new ArrayList<>(sheets.size());
+            for (BatchSubmissionDto sheet : sheets) {
+                String userId = sheet.user_id() != null ? sheet.user_id() : "guest";
+                Map<String, String> answers = sheet.answers() != null ? sheet.answers() : Map.of();
+                Result result = grade(test, testId, userId, answers, sheet.time_taken_seconds());
+                result.setSheetId(sheet.sheet_id());
+                graded.add(result);
+            }
 
-        // Trigger Notification
-        try {
-            Map<String, Object> notif = new HashMap<>();
-            notif.put("userId", userId);
-            notif.put("title", "Exam Completed: " + test.title());
-            notif.put("message",
-                    "You scored " + score + "/" + totalPoints + " (" + savedResult.getAccuracy() + "% accuracy).");
-            notif.put("type", "EXAM_COMPLETION");
-            notif.put("link", "/dashboard/result/" + savedResult.getId());
-            authClient.createNotification(notif);
-        } catch (Exception e) {
-            System.err.println("Failed to trigger notification: " + e.getMessage());
-        }
+            List<PostSubmitTask> tasks = postSubmitPipeline.prepareAll(graded);
 
-        return savedResult;
-    }
+            int[] scores = new int[graded.size()];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = graded.get(i).getScore();
+            }
+            int[] ranks = rankIndexService.registerScores(testId, scores);
+            for (int i = 0; i < ranks.length; i++) {
+                graded.get(i).setRank(ranks[i]);
+            }
 
-    private void calculateRank(Result result) {
-        // Get all results for this test, sorted by score descending
-        java.util.List<Result> allResults = resultRepository.findByTestIdOrderByScoreDesc(result.getTestId());
+            Set<Integer> replayed = insertOnce(graded);
+            List<PostSubmitTask> started = new ArrayList<>(graded.size());
+            List<PostSubmitTask> discarded = new ArrayList<>(replayed.size());
+            int[] releasedScores = new int[replayed.size()];
+            for (int i = 0; i < graded.size(); i++) {
+                if (replayed.contains(i)) {
+                    releasedScores[discarded.size()] = scores[i];
+                    discarded.add(tasks.get(i));
+                } else {
+                    started.add(tasks.get(i));
+                    outcomes[group.getValue().get(i)] = outcome(graded.get(i));
+                }
+            }
+            postSubmitPipeline.start(started);
 
-        int rank = 1;
-        for (Result r : allResults) {
-            if (r.getId().equals(result.getId())) {
-                result.setRank(rank);
-                resultRepository.save(result);
-                break;
+            if (!replayed.isEmpty()) {
+                // A concurrent upload of the same sheets stored them first; keep its results
+                rankIndexService.releaseScores(testId, releasedScores);
+                postSubmitPipeline.discard(discarded);
+                stored.putAll(findBySheetId(sheets));
             }
-            rank++;
+            graded.stream().filter(r -> r.getSheetId() != null).forEach(r -> stored.putIfAbsent(r.getSheetId(), r));
         }
-    }
 
-    public long countUniqueStudentsForTests(java.util.List<String> testIds) {
-        // In a real MongoDB environment, we would use an aggregation or
-        // distinct query. For simplicity with the current repository:
-        Map<String, Boolean> uniqueUsers = new HashMap<>();
-        for (String testId : testIds) {
-            java.util.List<Result> results = resultRepository.findByTestId(testId);
-            for (Result r : results) {
-                uniqueUsers.put(r.getUserId(), true);
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == null) {
+                BatchSubmissionDto sheet = submissions.get(i);
+                Result result = sheet.sheet_id() != null ? stored.get(sheet.sheet_id()) : null;
+                outcomes[i] = result != null ? outcome(result) : BatchOutcomeDto.failed(sheet, "Sheet not stored");
             }
         }
-        return uniqueUsers.size();
+        return Arrays.asList(outcomes);
     }
 
-    public Optional<Result> getResult(String id) {
-        return resultRepository.findById(id);
+    private Map<String, Result> findBySheetId(List<BatchSubmissionDto> sheets) {
+        Set<String> sheetIds = new HashSet<>();
+        for (BatchSubmissionDto sheet : sheets) {
+            if (sheet.sheet_id() != null) {
+                sheetIds.add(sheet.sheet_id());
+            }
+        }
+        Map<String, Result> bySheetId = new HashMap<>();
+        if (sheetIds.isEmpty()) {
+            return bySheetId;
+        }
+        Query query = Query.query(Criteria.where("sheetId").in(sheetIds));
+        query.fields().include("sheetId", "testId", "userId", "score", "rank");
+        for (Result result : mongoTemplate.find(query, Result.class)) {
+            bySheetId.put(result.getSheetId(), result);
+        }
+        return bySheetId;
     }
 
-    public Iterable<Result> getResultsByUserId(String userId) {
-        return resultRepository.findByUserId(userId);
-    }
+    // Sheets with an ID are upserted on it, inserting only if no result has it yet. Returns the
+    // positions of the ones another upload stored first.
+    private Set<Integer> insertOnce(List<Result> results) {
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Result.class);
+        Set<Integer> upserts = new HashSet<>();
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            if (result.getSheetId() == null) {
+                ops.insert(result);
+                continue;
+            }
+            Document doc = new Document();
+            mongoTemplate.getConverter().write(result, doc);
+            Update update = new Update();
+            doc.forEach(update::setOnInsert);
+            ops.upsert(Query.query(Criteria.where("sheetId").is(result.getSheetId())), update);
+            upserts.add(i);
+        }
 
-    public Iterable<Result> getResultsByTestId(String testId) {
-        return resultRepository.findByTestIdOrderByScoreDesc(testId);
+        Set<Integer> replayed = new HashSet<>();
+        BulkWriteResult written;
+        try {
+            written = ops.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                // Two uploads upserting the same sheet at once: the unique index lets only one insert
+                if (error.getCode() != DUPLICATE_KEY || !upserts.contains(error.getIndex())) {
+                    throw e;
+                }
+                replayed.add(error.getIndex());
+            }
+            written = e.getResult();
+        }
+        Set<Integer> inserted = new HashSet<>();
+        written.getUpserts().forEach(upsert -> inserted.add(upsert.getIndex()));
+        for (int i : upserts) {
+            if (!inserted.contains(i)) {
+                replayed.add(i);
+            }
+        }
+        return replayed;
     }
 
-    public record LeaderboardEntry(
-            String userId,
-            String name,
-            int totalScore,
-            int testsTaken,
-            double averageAccuracy,
-            int rank) {
+    private static BatchOutcomeDto outcome(Result result) {
+        return new BatchOutcomeDto(result.getSheetId(), result.getTestId(), result.getUserId(), result.getId(),
+                result.getScore(), result.getRank(), null);
     }
 
-    public List<LeaderboardEntry> getLeaderboard(String period) {
-        Date startDate;
-        Calendar cal = Calendar.getInstance();
-
-        if ("weekly".equalsIgnoreCase(period)) {
-            cal.add(Calendar.DAY_OF_YEAR, -7);
-            startDate = cal.getTime();
-        } else if ("monthly".equalsIgnoreCase(period)) {
-            cal.add(Calendar.MONTH, -1);
-            startDate = cal.getTime();
-        } else {
-            // Default to all time or specific logic
-            startDate = new Date(0); // Beginning of time
+    private Result grade(TestCache.Snapshot test, String testId, String userId, Map<String, String> answers,
+            long timeTakenSeconds) {
+        CompiledAnswerKey key = test.answerKey();
+        CompiledAnswerKey.Grade grade = key.grade(answers);
+
+        // Positional per-question outcome; question text lives once per test version
+        List<Result.CompactAnswer> responses = new ArrayList<>(key.size());
+        for (int i = 0; i < key.size(); i++) {
+            boolean isCorrect = grade.correct()[i];
+            responses.add(new Result.CompactAnswer(
+                    answers.get(key.answerKey(i)),
+                    isCorrect,
+                    isCorrect ? key.points(i) : 0));
         }
 
-        List<Result> results = resultRepository.findByCreatedAtAfter(startDate);
+        int totalPoints = key.totalPoints();
+        double percentage = totalPoints > 0 ? ((double) grade.score() / totalPoints) * 100 : 0;
+        double accuracy = key.size() > 0 ? ((double) grade.correctCount() / key.size()) * 100 : 0;
+
+        Result result = new Result();
+        result.setTestId(testId);
+        result.setTestTitle(test.test().title());
+        result.setUserId(userId);
+        result.setScore(grade.score());
+        result.setTotalPoints(totalPoints);
+        result.setPercentage(Math.round(percentage * 100.0) / 100.0);
+        result.setAccuracy(Math.round(accuracy * 100.0) / 100.0);
+        result.setAnswers(null);
+        result.setTimeTakenSeconds(timeTakenSeconds);
+        result.setCorrectAnswers(grade.correctCount());
+        result.setWrongAnswers(grade.wrongCount());
+        result.setDetailedAnswers(null);
+        result.setSnapshotId(testSnapshotService.record(test.test()));
+        result.setResponses(responses);
+
+        return result;
+    }
 
-        // Group by user
-        Map<String, List<Result>> userResults = new HashMap<>();
-        for (Result r : results) {
-            userResults.computeIfAbsent(r.getUserId(), k -> new ArrayList<>()).add(r);
+    public long countUniqueStudentsForTests(java.util.List<String> testIds) {
+        if (testIds == null || testIds.isEmpty()) {
+            return 0;
         }
+        Criteria inTests = Criteria.where("testId").in(testIds);
+
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(inTests),
+                Aggregation.project("userId").andExclude("_id"),
+                Aggregation.group("userId"),
+                Aggregation.count().as("count"));
 
-        List<LeaderboardEntry> leaderboard = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> counted = mongoTemplate.aggregate(agg, "results", Map.class).getUniqueMappedResult();
+        return counted != null ? ((Number) counted.get("count")).longValue() : 0;
+    }
 
-        for (Map.Entry<String, List<Result>> entry : userResults.entrySet()) {
-            String userId = entry.getKey();
-            List<Result> list = entry.getValue();
+    public Optional<Result> getResult(String id) {
+        return resultRepository.findById(id).map(this::hydrateDetails);
+    }
 
-            int totalScore = list.stream().mapToInt(Result::getScore).sum();
-            int testsTaken = list.size();
-            double avgAcc = list.stream().mapToDouble(Result::getAccuracy).average().orElse(0.0);
+    // Rebuilds answers and the review breakdown for compact results; older ones embed them
+    private Result hydrateDetails(Result result) {
+        return result.getResponses() != null ? hydrateCompact(result) : result;
+    }
 
-            // In a real app, fetch user name from AuthService or User Service
-            // For now, use userId or a placeholder
-            String name = "User " + userId.substring(0, Math.min(userId.length(), 6));
+    private Result hydrateCompact(Result result) {
+        TestSnapshot snapshot = result.getSnapshotId() != null ? testSnapshotService.find(result.getSnapshotId())
+                : null;
+        List<TestSnapshot.SnapshotQuestion> questions = snapshot != null ? snapshot.getQuestions() : List.of();
+
+        Map<String, String> answers = new HashMap<>();
+        Map<String, Result.AnswerDetail> details = new HashMap<>();
+        List<Result.CompactAnswer> responses = result.getResponses();
+        for (int i = 0; i < responses.size(); i++) {
+            Result.CompactAnswer response = responses.get(i);
+            TestSnapshot.SnapshotQuestion q = i < questions.size() ? questions.get(i) : null;
+            String key = String.valueOf(i);
+            if (response.getAnswer() != null) {
+                answers.put(key, response.getAnswer());
+            }
 
-            leaderboard.add(new LeaderboardEntry(
-                    userId,
-                    name,
-                    totalScore,
-                    testsTaken,
-                    Math.round(avgAcc * 100.0) / 100.0,
-                    0 // Rank set later
-            ));
+            Result.AnswerDetail detail = new Result.AnswerDetail(
+                    q != null ? q.getText() : null,
+                    response.getAnswer() != null ? response.getAnswer() : "Not Answered",
+                    q != null ? q.getCorrectAnswer() : null,
+                    q != null ? q.getExplanation() : null,
+                    response.isCorrect(),
+                    response.getPoints());
+            detail.setQuestionId(q != null ? q.getId() : null);
+            details.put(key, detail);
         }
 
-        // Sort by total score desc
-        leaderboard.sort(Comparator.comparingInt(LeaderboardEntry::totalScore).reversed());
-
-        // Assign ranks
-        List<LeaderboardEntry> rankedBoard = new ArrayList<>();
-        for (int i = 0; i < leaderboard.size(); i++) {
-            LeaderboardEntry e = leaderboard.get(i);
-            rankedBoard.add(new LeaderboardEntry(
-                    e.userId(),
-                    e.name(),
-                    e.totalScore(),
-                    e.testsTaken(),
-                    e.averageAccuracy(),
-                    i + 1));
-        }
+        result.setAnswers(answers);
+        result.setDetailedAnswers(details);
+        return result;
+    }
 
-        return rankedBoard;
+    /** Every attempt by the user, newest first, with only the fields the history list shows. */
+    public List<ResultSummaryDto> getResultSummaries(String userId) {
+        return findSummaries(Query.query(Criteria.where("userId").is(userId)));
     }
 
-    public ReportSummaryDto getSummaryReport(String circle, String division, String cadre, String examType) {
-        Criteria criteria = new Criteria();
-        List<Criteria> filters = new ArrayList<>();
-
-        if (circle != null && !circle.isEmpty())
-            filters.add(Criteria.where("postalCircle").is(circle));
-        if (division != null && !division.isEmpty())
-            filters.add(Criteria.where("division").is(division));
-        if (cadre != null && !cadre.isEmpty())
-            filters.add(Criteria.where("cadre").is(cadre));
-        if (examType != null && !examType.isEmpty())
-            filters.add(Criteria.where("examType").is(examType));
-
-        if (!filters.isEmpty()) {
-            criteria.andOperator(filters.toArray(new Criteria[0]));
+    /**
+     * One page of the user's history, newest first. The cursor is the createdAt
+     * and ID of the last row of the previous page, so paging stays on the
+     * (userId, createdAt, _id) index however deep the student scrolls.
+     */
+    public ResultPageDto getResultSummaryPage(String userId, String cursor, int limit) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (cursor != null && !cursor.isEmpty()) {
+            int sep = cursor.indexOf('_');
+            if (sep < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Date createdAt;
+            try {
+                createdAt = new Date(Long.parseLong(cursor.substring(0, sep)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String id = cursor.substring(sep + 1);
+            criteria = criteria.orOperator(
+                    Criteria.where("createdAt").lt(createdAt),
+                    Criteria.where("createdAt").is(createdAt).and("_id").lt(id));
         }
 
-        // Global stats
-        Aggregation globalAgg = Aggregation.newAggregation(
-                Aggregation.match(criteria),
-                Aggregation.group()
-                        .count().as("totalTests")
-                        .avg("score").as("averageScore")
-                        .avg("accuracy").as("averageAccuracy"));
+        // Fetch one extra row to know whether another page follows
+        List<ResultSummaryDto> items = findSummaries(Query.query(criteria).limit(limit + 1));
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = new ArrayList<>(items.subList(0, limit));
+            ResultSummaryDto last = items.get(limit - 1);
+            nextCursor = (last.createdAt() != null ? last.createdAt().getTime() : 0) + "_" + last.id();
+        }
+        return new ResultPageDto(items, nextCursor);
+    }
 
-        @SuppressWarnings("unchecked")
-        Map<String, Object> globalStats = mongoTemplate.aggregate(globalAgg, "results", Map.class)
-                .getUniqueMappedResult();
-
-        long totalTests = globalStats != null ? ((Number) globalStats.get("totalTests")).longValue() : 0;
-        double avgScore = globalStats != null ? ((Number) globalStats.get("averageScore")).doubleValue() : 0.0;
-        double avgAccuracy = globalStats != null ? ((Number) globalStats.get("averageAccuracy")).doubleValue() : 0.0;
-
-        return new ReportSummaryDto(
-                totalTests,
-                Math.round(avgScore * 100.0) / 100.0,
-                Math.round(avgAccuracy * 100.0) / 100.0,
-                getGroupedStats("postalCircle", criteria),
-                getGroupedStats("division", criteria),
-                getGroupedStats("cadre", criteria),
-                getGroupedStats("examType", criteria));
+    private List<ResultSummaryDto> findSummaries(Query query) {
+        query.with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"));
+        query.fields().include("testId", "testTitle", "score", "totalPoints", "percentage", "accuracy", "rank",
+                "timeTakenSeconds", "createdAt");
+
+        List<ResultSummaryDto> summaries = new ArrayList<>();
+        for (Result r : mongoTemplate.find(query, Result.class)) {
+            summaries.add(new ResultSummaryDto(r.getId(), r.getTestId(), r.getTestTitle(), r.getScore(),
+                    r.getTotalPoints(), r.getPercentage(), r.getAccuracy(), r.getRank(), r.getTimeTakenSeconds(),
+                    r.getCreatedAt()));
+        }
+        return summaries;
     }
 
-    private List<ReportSummaryDto.CountEntry> getGroupedStats(String field, Criteria criteria) {
-        Aggregation agg = Aggregation.newAggregation(
-                Aggregation.match(criteria),
-                Aggregation.match(Criteria.where(field).ne(null)),
-                Aggregation.group(field)
-                        .count().as("count")
-                        .avg("accuracy").as("averageAccuracy"),
-                Aggregation.project("count", "averageAccuracy").and("_id").as("name"),
-                Aggregation.sort(org.springframework.data.domain.Sort.Direction.DESC, "count"),
-                Aggregation.limit(10));
-
-        AggregationResults<ReportSummaryDto.CountEntry> results = mongoTemplate.aggregate(agg, "results",
-                ReportSummaryDto.CountEntry.class);
-
-        return results.getMappedResults();
+    public Iterable<Result> getResultsByTestId(String testId) {
+        return resultRepository.findByTestIdOrderByScoreDesc(testId);
     }
 }
@@ -0,0 +1,262 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.client.AssessmentClient;
+import com.mockanytime.scoringservice.dto.QuestionDto;
+import com.mockanytime.scoringservice.dto.TestDto;
+import com.mockanytime.scoringservice.model.TestChangeEvent;
+import feign.FeignException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of tests fetched from assessment-service, so a burst of
+ * submissions for the same exam costs one Feign call. Entries are evicted when
+ * assessment-service publishes a newer version to test_change_events.
+ */
+@Service
+public class TestCache {
+
+    // Sequence numbers are allocated before the insert, so a later event can become
+    // visible first. The cursor waits at a gap this long for the missing event, which
+    // may never come if its insert failed.
+    static final long GAP_WAIT_MILLIS = 60_000;
+
+    private final AssessmentClient assessmentClient;
+    private final MongoTemplate mongoTemplate;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+
+    // Access-ordered for LRU eviction; guarded by this
+    private final LinkedHashMap<String, CachedTest> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+
+    private final Map<String, Long> announcedVersions = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Snapshot>> inFlight = new ConcurrentHashMap<>();
+    // Only the scheduled poller moves the cursor
+    private volatile long lastSeq = -1;
+    private long gapSeenAt;
+
+    /** A test together with its answer key compiled for grading. */
+    public record Snapshot(TestDto test, CompiledAnswerKey answerKey) {
+    }
+
+    private record CachedTest(Snapshot snapshot, long weight, long loadedAt) {
+        TestDto test() {
+            return snapshot.test();
+        }
+    }
+
+    public TestCache(AssessmentClient assessmentClient, MongoTemplate mongoTemplate,
+            @Value("${test-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${test-cache.max-age-seconds:600}") long maxAgeSeconds) {
+        this.assessmentClient = assessmentClient;
+        this.mongoTemplate = mongoTemplate;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeSeconds * 1000;
+    }
+
+    public TestDto getTest(String testId) {
+        Snapshot snapshot = getSnapshot(testId);
+        return snapshot != null ? snapshot.test() : null;
+    }
+
+    public Snapshot getSnapshot(String testId) {
+        return load(testId, () -> assessmentClient.getTestById(testId));
+    }
+
+    /**
+     * The test as it was at {@code version}, so a paper served before an edit
+     * is graded against the questions it showed. Falls back to the current
+     * version once assessment-service no longer keeps that one.
+     */
+    public Snapshot getSnapshot(String testId, long version) {
+        Snapshot current = getSnapshot(testId);
+        if (current == null || current.test().version() == version) {
+            return current;
+        }
+
+        // Versions never change, so they are cached under their own key and not evicted by edits
+        Snapshot pinned;
+        try {
+            pinned = load(testId + ":" + version, () -> assessmentClient.getTestVersion(testId, version));
+        } catch (FeignException.NotFound e) {
+            pinned = null;
+        }
+        if (pinned == null) {
+            System.err.println("Version " + version + " of test " + testId + " is no longer available; grading "
+                    + "against version " + current.test().version());
+            return current;
+        }
+        return pinned;
+    }
+
+    private Snapshot load(String key, Supplier<TestDto> fetch) {
+        Snapshot cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Only one fetch per test is in flight; concurrent callers wait for it
+        CompletableFuture<Snapshot> mine = new CompletableFuture<>();
+        CompletableFuture<Snapshot> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        try {
+            TestDto test = fetch.get();
+            Snapshot snapshot = null;
+            if (test != null) {
+                snapshot = new Snapshot(test, CompiledAnswerKey.compile(test));
+                store(key, snapshot);
+            }
+            mine.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public synchronized void evict(String testId) {
+        CachedTest removed = entries.remove(testId);
+        if (removed != null) {
+            currentBytes -= removed.weight();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${test-cache.poll-interval-ms:1000}")
+    public void pollChangeEvents() {
+        try {
+            if (lastSeq < 0) {
+                // Nothing is cached yet, so history before startup doesn't matter
+                TestChangeEvent newest = mongoTemplate.findOne(new Query()
+                        .with(Sort.by(Sort.Direction.DESC, "seq")).limit(1), TestChangeEvent.class);
+                lastSeq = newest != null ? newest.getSeq() : 0;
+            }
+            Query query = Query.query(Criteria.where("seq").gt(lastSeq))
+                    .with(Sort.by(Sort.Direction.ASC, "seq"))
+                    .limit(1000);
+            advance(mongoTemplate.find(query, TestChangeEvent.class), System.currentTimeMillis());
+        } catch (Exception e) {
+            System.err.println("Failed to poll test change events: " + e.getMessage());
+        }
+    }
+
+    // Applies every event read, but moves the cursor only past contiguous ones;
+    // events behind a gap are read again next time, and applying twice is harmless
+    void advance(List<TestChangeEvent> events, long now) {
+        boolean blocked = false;
+        for (TestChangeEvent event : events) {
+            apply(event);
+            if (blocked) {
+                continue;
+            }
+            if (event.getSeq() == lastSeq + 1) {
+                lastSeq = event.getSeq();
+            } else if (gapSeenAt != 0 && now - gapSeenAt >= GAP_WAIT_MILLIS) {
+                System.err.println("Skipping test change events " + (lastSeq + 1) + " to " + (event.getSeq() - 1)
+                        + " that never appeared");
+                lastSeq = event.getSeq();
+                gapSeenAt = 0;
+            } else {
+                if (gapSeenAt == 0) {
+                    gapSeenAt = now;
+                }
+                blocked = true;
+            }
+        }
+        if (!blocked) {
+            gapSeenAt = 0;
+        }
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    void apply(TestChangeEvent event) {
+        announcedVersions.merge(event.getTestId(), event.getVersion(), Math::max);
+        synchronized (this) {
+            CachedTest cached = entries.get(event.getTestId());
+            if (cached != null && (TestChangeEvent.DELETED.equals(event.getType())
+                    || cached.test().version() < event.getVersion())) {
+                evict(event.getTestId());
+            }
+        }
+    }
+
+    private synchronized Snapshot lookup(String testId) {
+        CachedTest cached = entries.get(testId);
+        if (cached == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - cached.loadedAt() > maxAgeMillis || isStale(testId, cached.test())) {
+            evict(testId);
+            return null;
+        }
+        return cached.snapshot();
+    }
+
+    private synchronized void store(String testId, Snapshot snapshot) {
+        // A fetch that raced with an edit may have returned the old version
+        if (isStale(testId, snapshot.test())) {
+            return;
+        }
+        long weight = estimateBytes(snapshot.test());
+        if (weight > maxBytes) {
+            return;
+        }
+        evict(testId);
+        entries.put(testId, new CachedTest(snapshot, weight, System.currentTimeMillis()));
+        currentBytes += weight;
+
+        Iterator<Map.Entry<String, CachedTest>> it = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            currentBytes -= it.next().getValue().weight();
+            it.remove();
+        }
+    }
+
+    private boolean isStale(String testId, TestDto test) {
+        Long announced = announcedVersions.get(testId);
+        return announced != null && test.version() < announced;
+    }
+
+    private static long estimateBytes(TestDto test) {
+        long chars = length(test.title());
+        if (test.questions() != null) {
+            for (QuestionDto q : test.questions()) {
+                chars += length(q.text()) + length(q.correctAnswer()) + length(q.explanation()) + length(q.type());
+                if (q.options() != null) {
+                    for (String option : q.options()) {
+                        chars += length(option);
+                    }
+                }
+            }
+        }
+        // UTF-16 chars for the test plus its compiled key, and an allowance for object headers
+        return chars * 3 + 256L * (test.questions() != null ? test.questions().size() + 1 : 1);
+    }
+
+    private static long length(String s) {
+        return s != null ? s.length() : 0;
+    }
+}
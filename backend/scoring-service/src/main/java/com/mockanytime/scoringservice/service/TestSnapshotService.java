@@ -0,0 +1,113 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.dto.QuestionDto;
+import com.mockanytime.scoringservice.dto.TestDto;
+import com.mockanytime.scoringservice.model.TestSnapshot;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class TestSnapshotService {
+
+    private static final int RECENT_CAPACITY = 128;
+
+    private final MongoTemplate mongoTemplate;
+    private final Set<String> written = ConcurrentHashMap.newKeySet();
+    private final Map<String, TestSnapshot> recent = new LinkedHashMap<>(RECENT_CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TestSnapshot> eldest) {
+            return size() > RECENT_CAPACITY;
+        }
+    };
+
+    public TestSnapshotService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public static String idFor(String testId, long version) {
+        return testId + ":" + version;
+    }
+
+    /** Stores the question text of this test version once and returns the snapshot ID. */
+    public String record(TestDto test) {
+        TestSnapshot snapshot = new TestSnapshot();
+        snapshot.setId(idFor(test.id(), test.version()));
+        snapshot.setTestId(test.id());
+        snapshot.setTitle(test.title());
+        if (test.questions() != null) {
+            for (QuestionDto q : test.questions()) {
+                snapshot.getQuestions().add(new TestSnapshot.SnapshotQuestion(
+                        q.id(), q.text(), q.correctAnswer(), q.explanation()));
+            }
+        }
+        insertOnce(snapshot);
+        return snapshot.getId();
+    }
+
+    /**
+     * Stores questions recovered from an old embedded result. The ID is derived
+     * from the content so results with identical copies share one snapshot.
+     */
+    public String recordContent(String testId, String title, List<TestSnapshot.SnapshotQuestion> questions) {
+        StringBuilder content = new StringBuilder();
+        for (TestSnapshot.SnapshotQuestion q : questions) {
+            content.append(q.getText()).append('\u0000')
+                    .append(q.getCorrectAnswer()).append('\u0000')
+                    .append(q.getExplanation()).append('\u0001');
+        }
+
+        TestSnapshot snapshot = new TestSnapshot();
+        snapshot.setId(testId + ":h" + sha256(content.toString()).substring(0, 16));
+        snapshot.setTestId(testId);
+        snapshot.setTitle(title);
+        snapshot.setQuestions(questions);
+        insertOnce(snapshot);
+        return snapshot.getId();
+    }
+
+    public TestSnapshot find(String id) {
+        synchronized (recent) {
+            TestSnapshot cached = recent.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        TestSnapshot snapshot = mongoTemplate.findById(id, TestSnapshot.class);
+        if (snapshot != null) {
+            synchronized (recent) {
+                recent.put(id, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    private void insertOnce(TestSnapshot snapshot) {
+        if (!written.add(snapshot.getId())) {
+            return;
+        }
+        try {
+            mongoTemplate.insert(snapshot);
+        } catch (DuplicateKeyException e) {
+            // Already stored by an earlier run or another node
+        } catch (RuntimeException e) {
+            written.remove(snapshot.getId());
+            throw e;
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
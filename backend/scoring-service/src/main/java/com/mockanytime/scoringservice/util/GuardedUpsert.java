@@ -0,0 +1,37 @@
+package com.mockanytime.scoringservice.util;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Upserts that apply at most once. The guard is an extra condition on the
+ * document, such as "this result is not among the ones already counted".
+ * When the document exists but fails the guard, the upsert turns into an
+ * insert of an existing _id and Mongo rejects it with a duplicate key error.
+ */
+public final class GuardedUpsert {
+
+    private GuardedUpsert() {
+    }
+
+    /** Returns false if the guard showed the update had already been applied. */
+    public static boolean apply(MongoTemplate mongoTemplate, Class<?> type, String id, Criteria guard,
+            Update update) {
+        Query query = Query.query(Criteria.where("_id").is(id)).addCriteria(guard);
+        try {
+            mongoTemplate.upsert(query, update, type);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Either the guard failed or another writer created the document first; a retry tells which
+        }
+        try {
+            mongoTemplate.upsert(query, update, type);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
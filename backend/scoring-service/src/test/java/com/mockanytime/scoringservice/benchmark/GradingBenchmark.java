@@ -0,0 +1,126 @@
+package com.mockanytime.scoringservice.benchmark;
+
+import com.mockanytime.scoringservice.dto.QuestionDto;
+import com.mockanytime.scoringservice.dto.TestDto;
+import com.mockanytime.scoringservice.model.Result;
+import com.mockanytime.scoringservice.service.CompiledAnswerKey;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original per-question grading loop with the compiled answer key.
+ * Run after test-compile with:
+ * java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)
+ * com.mockanytime.scoringservice.benchmark.GradingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradingBenchmark {
+
+    @Param({ "100", "200" })
+    private int questionCount;
+
+    private TestDto test;
+    private CompiledAnswerKey key;
+    private Map<String, String> answers;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<QuestionDto> questions = new ArrayList<>();
+        answers = new HashMap<>();
+
+        for (int i = 0; i < questionCount; i++) {
+            List<String> options = List.of("Option A " + i, "Option B " + i, "Option C " + i, "Option D " + i);
+            String correct = options.get(random.nextInt(4));
+            questions.add(new QuestionDto("q" + i, "Question text number " + i + " about postal rules?", "mcq",
+                    options, correct, "Explanation for question " + i, 1 + random.nextInt(2)));
+
+            // Roughly 70% correct, some with stray case and whitespace, 10% unanswered
+            int roll = random.nextInt(10);
+            if (roll < 7) {
+                answers.put(String.valueOf(i), roll == 0 ? " " + correct.toUpperCase() + " " : correct);
+            } else if (roll < 9) {
+                answers.put(String.valueOf(i), options.get((options.indexOf(correct) + 1) % 4));
+            }
+        }
+
+        test = new TestDto("bench", "Benchmark Paper", questions, 1, false);
+        key = CompiledAnswerKey.compile(test);
+    }
+
+    // The loop ResultService used before the answer key was compiled
+    @Benchmark
+    public void legacyLoop(Blackhole bh) {
+        int score = 0;
+        int totalPoints = 0;
+        int correctCount = 0;
+        int wrongCount = 0;
+        Map<String, Result.AnswerDetail> detailedAnswers = new HashMap<>();
+
+        for (int i = 0; i < test.questions().size(); i++) {
+            var q = test.questions().get(i);
+            totalPoints += q.points();
+
+            String userAnswer = answers.get(String.valueOf(i));
+            String correctAnswer = q.correctAnswer();
+            boolean isCorrect = userAnswer != null && correctAnswer != null &&
+                    userAnswer.trim().equalsIgnoreCase(correctAnswer.trim());
+
+            if (isCorrect) {
+                score += q.points();
+                correctCount++;
+            } else {
+                wrongCount++;
+            }
+
+            detailedAnswers.put(String.valueOf(i), new Result.AnswerDetail(
+                    q.text(),
+                    userAnswer != null ? userAnswer : "Not Answered",
+                    correctAnswer,
+                    q.explanation(),
+                    isCorrect,
+                    isCorrect ? q.points() : 0));
+        }
+
+        bh.consume(score + totalPoints + correctCount + wrongCount);
+        bh.consume(detailedAnswers);
+    }
+
+    @Benchmark
+    public CompiledAnswerKey.Grade compiledGrade() {
+        return key.grade(answers);
+    }
+
+    // Compiled grading plus the compact per-question responses ResultService stores
+    @Benchmark
+    public void compiledGradeWithResponses(Blackhole bh) {
+        CompiledAnswerKey.Grade grade = key.grade(answers);
+        List<Result.CompactAnswer> responses = new ArrayList<>(key.size());
+        for (int i = 0; i < key.size(); i++) {
+            boolean isCorrect = grade.correct()[i];
+            responses.add(new Result.CompactAnswer(
+                    answers.get(key.answerKey(i)),
+                    isCorrect,
+                    isCorrect ? key.points(i) : 0));
+        }
+        bh.consume(grade);
+        bh.consume(responses);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GradingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
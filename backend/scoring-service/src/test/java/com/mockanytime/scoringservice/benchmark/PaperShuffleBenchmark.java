@@ -0,0 +1,89 @@
+package com.mockanytime.scoringservice.benchmark;
+
+import com.mockanytime.scoringservice.dto.QuestionDto;
+import com.mockanytime.scoringservice.dto.TestDto;
+import com.mockanytime.scoringservice.service.CompiledAnswerKey;
+import com.mockanytime.scoringservice.service.PaperShuffle;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of per-student shuffling: deriving the question order from the seed,
+ * and grading a shuffled sheet (seed, order, unshuffle, grade) against
+ * grading an unshuffled one. Run after test-compile with:
+ * java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)
+ * com.mockanytime.scoringservice.benchmark.PaperShuffleBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaperShuffleBenchmark {
+
+    @Param({ "100", "200" })
+    private int questionCount;
+
+    private CompiledAnswerKey key;
+    private Map<String, String> answers;
+    private Map<String, String> shuffledAnswers;
+    private long attempt;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<QuestionDto> questions = new ArrayList<>();
+        answers = new HashMap<>();
+
+        for (int i = 0; i < questionCount; i++) {
+            List<String> options = List.of("Option A " + i, "Option B " + i, "Option C " + i, "Option D " + i);
+            String correct = options.get(random.nextInt(4));
+            questions.add(new QuestionDto("q" + i, "Question text number " + i + " about postal rules?", "mcq",
+                    options, correct, "Explanation for question " + i, 1 + random.nextInt(2)));
+            if (random.nextInt(10) < 9) {
+                answers.put(String.valueOf(i), options.get(random.nextInt(4)));
+            }
+        }
+        key = CompiledAnswerKey.compile(new TestDto("bench", "Benchmark Paper", questions, 1, true));
+
+        // The same sheet as the student saw it: answers keyed by displayed position
+        attempt = 1_700_000_000_000L;
+        int[] order = PaperShuffle.order(PaperShuffle.seed("bench", "student-1", attempt), questionCount);
+        shuffledAnswers = new HashMap<>();
+        for (int p = 0; p < questionCount; p++) {
+            String answer = answers.get(String.valueOf(order[p]));
+            if (answer != null) {
+                shuffledAnswers.put(String.valueOf(p), answer);
+            }
+        }
+    }
+
+    // What serving a shuffled paper adds per student, before option order
+    @Benchmark
+    public int[] seedAndOrder() {
+        return PaperShuffle.order(PaperShuffle.seed("bench", "student-1", attempt), questionCount);
+    }
+
+    @Benchmark
+    public CompiledAnswerKey.Grade gradeUnshuffled() {
+        return key.grade(answers);
+    }
+
+    @Benchmark
+    public CompiledAnswerKey.Grade gradeShuffled() {
+        int[] order = PaperShuffle.order(PaperShuffle.seed("bench", "student-1", attempt), questionCount);
+        return key.grade(PaperShuffle.unshuffle(shuffledAnswers, order));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PaperShuffleBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,35 @@
+package com.mockanytime.scoringservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestRankStatsTest {
+
+    @Test
+    void testRankOf_HighestScoreIsFirst() {
+        TestRankStats stats = new TestRankStats("test-1");
+        stats.getScoreCounts().put("10", 1L);
+        stats.getScoreCounts().put("7", 3L);
+        stats.getScoreCounts().put("2", 2L);
+
+        assertEquals(1, stats.rankOf(10));
+    }
+
+    @Test
+    void testRankOf_TiesRankBehindEarlierSubmissions() {
+        TestRankStats stats = new TestRankStats("test-1");
+        stats.getScoreCounts().put("10", 1L);
+        stats.getScoreCounts().put("7", 3L);
+        stats.getScoreCounts().put("2", 2L);
+
+        // The newest of three 7s sits behind the 10 and the two earlier 7s
+        assertEquals(4, stats.rankOf(7));
+        assertEquals(6, stats.rankOf(2));
+    }
+
+    @Test
+    void testRankOf_EmptyHistogram() {
+        assertEquals(1, new TestRankStats("test-1").rankOf(5));
+    }
+}
@@ -0,0 +1,39 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.dto.QuestionDto;
+import com.mockanytime.scoringservice.dto.TestDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledAnswerKeyTest {
+
+    private final TestDto test = new TestDto("t1", "Paper", List.of(
+            new QuestionDto("q1", "Q1", "mcq", List.of("Red", "Blue", "Green", "White"), "Blue", null, 2),
+            new QuestionDto("q2", "Q2", "mcq", List.of("One", "Two", "Three", "Four"), " Four ", null, 1),
+            new QuestionDto("q3", "Q3", "mcq", List.of("A", "B", "C", "D"), "C", null, 1)), 3, false);
+
+    @Test
+    void testGrade_IgnoresCaseAndSurroundingWhitespace() {
+        CompiledAnswerKey key = CompiledAnswerKey.compile(test);
+
+        CompiledAnswerKey.Grade grade = key.grade(Map.of("0", "  blue ", "1", "four", "2", "D"));
+
+        assertEquals(3, grade.score());
+        assertEquals(2, grade.correctCount());
+        assertEquals(1, grade.wrongCount());
+        assertArrayEquals(new boolean[] { true, true, false }, grade.correct());
+        assertEquals(4, key.totalPoints());
+    }
+
+    @Test
+    void testGrade_UnansweredQuestionsAreWrong() {
+        CompiledAnswerKey.Grade grade = CompiledAnswerKey.compile(test).grade(Map.of());
+
+        assertEquals(0, grade.score());
+        assertEquals(3, grade.wrongCount());
+    }
+}
@@ -0,0 +1,163 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.model.LeaderboardBucket;
+import com.mockanytime.scoringservice.model.Result;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LeaderboardServiceTest {
+
+    private static final Date CUTOFF = new Date(1_700_000_000_000L);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BackfillCoordinator backfillCoordinator;
+
+    private LeaderboardService leaderboardService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(backfillCoordinator.cutoff(LeaderboardService.BACKFILL)).thenReturn(CUTOFF);
+        leaderboardService = new LeaderboardService(mongoTemplate, backfillCoordinator, 30);
+    }
+
+    @Test
+    void testRecord_ResultBeforeCutoffIsLeftToTheBackfill() {
+        leaderboardService.record(result("r1", new Date(CUTOFF.getTime() - 1)));
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testRecord_UpsertsDayAndAllTimeBucketsGuardedByResultId() {
+        leaderboardService.record(result("r1", new Date(CUTOFF.getTime() + 1)));
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).upsert(queries.capture(), updates.capture(), eq(LeaderboardBucket.class));
+
+        assertEquals("u1:2023-11-14", queries.getAllValues().get(0).getQueryObject().get("_id"));
+        assertEquals("u1:all", queries.getAllValues().get(1).getQueryObject().get("_id"));
+        for (Query query : queries.getAllValues()) {
+            assertEquals(new Document("$ne", "r1"), query.getQueryObject().get("resultIds"));
+        }
+        Document inc = updates.getAllValues().get(0).getUpdateObject().get("$inc", Document.class);
+        assertEquals(7L, inc.get("totalScore"));
+        assertEquals(1, inc.get("testsTaken"));
+    }
+
+    @Test
+    void testRecord_RepeatedResultIsNotCountedAgain() {
+        // The guard fails on both tries: the bucket already lists this result
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(LeaderboardBucket.class)))
+                .thenThrow(new DuplicateKeyException("E11000"));
+
+        assertDoesNotThrow(() -> leaderboardService.record(result("r1", new Date(CUTOFF.getTime() + 1))));
+        verify(mongoTemplate, times(4)).upsert(any(Query.class), any(Update.class), eq(LeaderboardBucket.class));
+    }
+
+    @Test
+    void testAllTimeBoard_TiesShareACompetitionRank() {
+        when(mongoTemplate.find(any(Query.class), eq(LeaderboardBucket.class))).thenReturn(List.of(
+                bucket("a", 90), bucket("b", 90), bucket("c", 75)));
+
+        List<LeaderboardService.LeaderboardEntry> board = leaderboardService.getLeaderboard("all", 10);
+
+        assertEquals(List.of(1, 1, 3), board.stream().map(LeaderboardService.LeaderboardEntry::rank).toList());
+    }
+
+    @Test
+    void testAllTimePosition_MatchesTheBoardForTies() {
+        when(mongoTemplate.findById("b:all", LeaderboardBucket.class)).thenReturn(bucket("b", 90));
+        when(mongoTemplate.count(any(Query.class), eq(LeaderboardBucket.class))).thenReturn(0L);
+
+        assertEquals(1, leaderboardService.getPosition("all", "b").orElseThrow().rank());
+    }
+
+    @Test
+    void testWeeklyBoard_ConcurrentCallersShareOneBuild() throws Exception {
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(LeaderboardBucket.class), eq(Document.class)))
+                .thenAnswer(invocation -> {
+                    building.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return new AggregationResults<>(List.of(
+                            new Document("_id", "a").append("totalScore", 50L).append("testsTaken", 2)
+                                    .append("accuracySum", 150.0),
+                            new Document("_id", "b").append("totalScore", 50L).append("testsTaken", 1)
+                                    .append("accuracySum", 80.0)), new Document());
+                });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<LeaderboardService.LeaderboardEntry>> first =
+                    pool.submit(() -> leaderboardService.getLeaderboard("weekly", 10));
+            assertTrue(building.await(5, TimeUnit.SECONDS));
+            Future<List<LeaderboardService.LeaderboardEntry>> second =
+                    pool.submit(() -> leaderboardService.getLeaderboard("weekly", 10));
+            release.countDown();
+
+            assertEquals(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertEquals(List.of(1, 1), first.get().stream().map(LeaderboardService.LeaderboardEntry::rank).toList());
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq(LeaderboardBucket.class),
+                eq(Document.class));
+    }
+
+    @Test
+    void testBackfill_SkipsWhenAnotherInstanceHoldsIt() {
+        when(backfillCoordinator.tryClaim(LeaderboardService.BACKFILL)).thenReturn(null);
+
+        leaderboardService.backfill();
+
+        verifyNoInteractions(mongoTemplate);
+        verify(backfillCoordinator, never()).complete(any());
+    }
+
+    private static Result result(String id, Date createdAt) {
+        Result result = new Result();
+        result.setId(id);
+        result.setUserId("u1");
+        result.setScore(7);
+        result.setAccuracy(70.0);
+        result.setCreatedAt(createdAt);
+        return result;
+    }
+
+    private static LeaderboardBucket bucket(String userId, long totalScore) {
+        LeaderboardBucket bucket = new LeaderboardBucket();
+        bucket.setUserId(userId);
+        bucket.setTotalScore(totalScore);
+        bucket.setTestsTaken(1);
+        return bucket;
+    }
+}
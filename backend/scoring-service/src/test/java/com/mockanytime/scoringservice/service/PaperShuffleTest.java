@@ -0,0 +1,42 @@
+package com.mockanytime.scoringservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaperShuffleTest {
+
+    // Same vectors as the assessment service's PaperShuffleTest; both must change together
+    @Test
+    void testSeedAndOrder_MatchAssessmentService() {
+        long seed = PaperShuffle.seed("t1", "u1", 7);
+
+        assertEquals(0x194b037fd74fb3d9L, seed);
+        assertArrayEquals(new int[] { 2, 7, 0, 1, 8, 5, 6, 4, 9, 3 }, PaperShuffle.order(seed, 10));
+    }
+
+    @Test
+    void testOrder_IsAPermutationThatDependsOnTheAttempt() {
+        int[] first = PaperShuffle.order(PaperShuffle.seed("t1", "u1", 1), 50);
+        int[] second = PaperShuffle.order(PaperShuffle.seed("t1", "u1", 2), 50);
+
+        int[] sorted = first.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            assertEquals(i, sorted[i]);
+        }
+        assertFalse(Arrays.equals(first, second));
+    }
+
+    @Test
+    void testUnshuffle_RekeysAnswersByOriginalIndex() {
+        int[] order = { 2, 0, 1 };
+
+        Map<String, String> original = PaperShuffle.unshuffle(Map.of("0", "C", "2", "B"), order);
+
+        assertEquals(Map.of("2", "C", "1", "B"), original);
+    }
+}
@@ -0,0 +1,177 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.client.AuthClient;
+import com.mockanytime.scoringservice.model.PostSubmitTask;
+import com.mockanytime.scoringservice.model.Result;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PostSubmitPipelineTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private AuthClient authClient;
+
+    @Mock
+    private LeaderboardService leaderboardService;
+
+    @Mock
+    private ReportCubeService reportCubeService;
+
+    private PostSubmitPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        pipeline = new PostSubmitPipeline(mongoTemplate, authClient, leaderboardService, reportCubeService,
+                new SimpleMeterRegistry(), 1, 10, 3);
+        when(mongoTemplate.findById("r1", Result.class)).thenReturn(result());
+        when(authClient.getUserProfile("u1")).thenReturn(Map.of("user", Map.of("postalCircle", "North")));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Result.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(PostSubmitTask.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void testPrepare_AssignsTheResultIdAndHoldsTheTaskBackFromTheSweeper() {
+        when(mongoTemplate.insert(anyList(), eq(PostSubmitTask.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        Result result = new Result();
+
+        PostSubmitTask task = pipeline.prepare(result);
+
+        assertNotNull(result.getId());
+        assertEquals(result.getId(), task.getResultId());
+        assertTrue(task.getNextAttemptAt().after(new Date()));
+    }
+
+    @Test
+    void testProcess_PersistsEachStageUnderTheLeaseToken() {
+        pipeline.process(task(1));
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(4)).updateFirst(queries.capture(), updates.capture(), eq(PostSubmitTask.class));
+        for (Query query : queries.getAllValues()) {
+            assertEquals("lease-1", query.getQueryObject().get("leaseToken"));
+        }
+        List<String> stages = updates.getAllValues().stream()
+                .map(u -> u.getUpdateObject().get("$set", Document.class).keySet().iterator().next())
+                .toList();
+        assertEquals(List.of("metadataDone", "leaderboardDone", "reportDone", "notificationDone"), stages);
+        verify(mongoTemplate).remove(any(Query.class), eq(PostSubmitTask.class));
+    }
+
+    @Test
+    void testProcess_StopsOnceAnotherWorkerTookTheTask() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(PostSubmitTask.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        pipeline.process(task(1));
+
+        verify(leaderboardService, never()).record(any());
+        verify(reportCubeService, never()).record(any());
+        verify(authClient, never()).createNotification(any());
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(PostSubmitTask.class));
+    }
+
+    @Test
+    void testProcess_RetriesOnlyTheStagesThatAreNotDone() {
+        PostSubmitTask task = task(2);
+        task.setMetadataDone(true);
+        task.setLeaderboardDone(true);
+
+        pipeline.process(task);
+
+        verify(authClient, never()).getUserProfile(any());
+        verify(leaderboardService, never()).record(any());
+        verify(reportCubeService).record(any());
+    }
+
+    @Test
+    void testProcess_FailedStageIsRetriedWithBackoff() {
+        doThrow(new RuntimeException("down")).when(leaderboardService).record(any());
+
+        pipeline.process(task(1));
+
+        Update last = lastTaskUpdate();
+        Document set = last.getUpdateObject().get("$set", Document.class);
+        assertEquals(PostSubmitTask.PENDING, set.get("status"));
+        assertTrue(((Date) set.get("nextAttemptAt")).after(new Date()));
+        assertTrue(set.getString("lastError").contains("leaderboard"));
+    }
+
+    @Test
+    void testProcess_GivesUpAfterMaxAttempts() {
+        doThrow(new RuntimeException("down")).when(leaderboardService).record(any());
+
+        pipeline.process(task(3));
+
+        assertEquals(PostSubmitTask.FAILED, lastTaskUpdate().getUpdateObject().get("$set", Document.class)
+                .get("status"));
+    }
+
+    @Test
+    void testProcess_ReportIsRecordedWithoutMetadataOnTheLastAttempt() {
+        when(authClient.getUserProfile("u1")).thenThrow(new RuntimeException("auth down"));
+
+        pipeline.process(task(2));
+        verify(reportCubeService, never()).record(any());
+
+        pipeline.process(task(3));
+        verify(reportCubeService).record(any());
+    }
+
+    private Update lastTaskUpdate() {
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, atLeastOnce()).updateFirst(any(Query.class), updates.capture(),
+                eq(PostSubmitTask.class));
+        return updates.getValue();
+    }
+
+    private static PostSubmitTask task(int attempts) {
+        PostSubmitTask task = new PostSubmitTask("r1");
+        task.setId("t1");
+        task.setStatus(PostSubmitTask.RUNNING);
+        task.setAttempts(attempts);
+        task.setLeaseToken("lease-1");
+        return task;
+    }
+
+    private static Result result() {
+        Result result = new Result();
+        result.setId("r1");
+        result.setUserId("u1");
+        result.setScore(5);
+        result.setTotalPoints(10);
+        return result;
+    }
+}
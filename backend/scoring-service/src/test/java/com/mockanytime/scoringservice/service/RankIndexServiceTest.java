@@ -0,0 +1,87 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.model.TestRankStats;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RankIndexServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private RankIndexService rankIndexService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        rankIndexService = new RankIndexService(mongoTemplate);
+        when(mongoTemplate.exists(any(Query.class), eq(TestRankStats.class))).thenReturn(true);
+    }
+
+    @Test
+    void testRegisterScore_TieRanksBehindEarlierSubmissions() {
+        // Histogram after the update: two earlier 10s plus this one
+        histogramAfterUpdate(Map.of("10", 3L, "8", 1L));
+
+        assertEquals(3, rankIndexService.registerScore("t1", 10));
+    }
+
+    @Test
+    void testRegisterScores_TiesWithinABatchRankInSubmissionOrder() {
+        // Two earlier 10s and an 8, then this batch of 10, 7, 10
+        histogramAfterUpdate(Map.of("10", 4L, "8", 1L, "7", 1L));
+
+        int[] ranks = rankIndexService.registerScores("t1", new int[] { 10, 7, 10 });
+
+        assertArrayEquals(new int[] { 3, 6, 4 }, ranks);
+    }
+
+    @Test
+    void testRegisterScores_CountsTheBatchInOneUpdate() {
+        histogramAfterUpdate(Map.of("5", 3L));
+
+        rankIndexService.registerScores("t1", new int[] { 5, 5, 5 });
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).findAndModify(any(Query.class), update.capture(),
+                any(FindAndModifyOptions.class), eq(TestRankStats.class));
+        Document inc = update.getValue().getUpdateObject().get("$inc", Document.class);
+        assertEquals(3, inc.get("totalResults"));
+        assertEquals(3, inc.get("scoreCounts.5"));
+    }
+
+    @Test
+    void testReleaseScores_TakesBackEachScore() {
+        rankIndexService.releaseScores("t1", new int[] { 5, 5, 9 });
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(TestRankStats.class));
+        Document inc = update.getValue().getUpdateObject().get("$inc", Document.class);
+        assertEquals(-3, inc.get("totalResults"));
+        assertEquals(-2, inc.get("scoreCounts.5"));
+        assertEquals(-1, inc.get("scoreCounts.9"));
+    }
+
+    private void histogramAfterUpdate(Map<String, Long> counts) {
+        TestRankStats stats = new TestRankStats("t1");
+        stats.getScoreCounts().putAll(counts);
+        stats.setTotalResults(counts.values().stream().mapToLong(Long::longValue).sum());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(TestRankStats.class))).thenReturn(stats);
+    }
+}
@@ -0,0 +1,134 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.model.BackfillMarker;
+import com.mockanytime.scoringservice.model.ReportCell;
+import com.mockanytime.scoringservice.model.Result;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReportCubeServiceTest {
+
+    private static final Date CUTOFF = new Date(1_700_000_000_000L);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BackfillCoordinator backfillCoordinator;
+
+    private ReportCubeService reportCubeService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(backfillCoordinator.cutoff(ReportCubeService.BACKFILL)).thenReturn(CUTOFF);
+        when(backfillCoordinator.covered(ReportCubeService.BACKFILL)).thenReturn(new Criteria());
+        reportCubeService = new ReportCubeService(mongoTemplate, backfillCoordinator);
+    }
+
+    @Test
+    void testRecord_ResultBeforeCutoffIsLeftToTheBackfill() {
+        reportCubeService.record(result("r1", new Date(CUTOFF.getTime() - 1), "North"));
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testRecord_UpsertsItsCellGuardedByResultId() {
+        reportCubeService.record(result("r1", new Date(CUTOFF.getTime() + 1), "North"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(ReportCell.class));
+        assertEquals(ReportCell.idFor("North", "D1", "PA", "LDCE", "2023-11-14"),
+                query.getValue().getQueryObject().get("_id"));
+        assertEquals(new Document("$ne", "r1"), query.getValue().getQueryObject().get("resultIds"));
+        assertEquals(1L, update.getValue().getUpdateObject().get("$inc", Document.class).get("count"));
+    }
+
+    @Test
+    void testRecord_UnknownProfileStillCountsInTotals() {
+        Result result = result("r1", new Date(CUTOFF.getTime() + 1), null);
+        result.setDivision(null);
+        result.setCadre(null);
+        result.setExamType(null);
+
+        reportCubeService.record(result);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).upsert(query.capture(), any(Update.class), eq(ReportCell.class));
+        assertEquals(ReportCell.idFor(null, null, null, null, "2023-11-14"),
+                query.getValue().getQueryObject().get("_id"));
+    }
+
+    @Test
+    void testBackfill_SkipsWhenAnotherInstanceHoldsIt() {
+        when(backfillCoordinator.tryClaim(ReportCubeService.BACKFILL)).thenReturn(null);
+
+        reportCubeService.backfill();
+
+        verifyNoInteractions(mongoTemplate);
+        verify(backfillCoordinator, never()).complete(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBackfill_UpsertsEachCellOnceAndCompletes() {
+        when(backfillCoordinator.tryClaim(ReportCubeService.BACKFILL)).thenReturn(new BackfillMarker());
+        Document row = new Document("_id", new Document("postalCircle", "North").append("division", "D1")
+                .append("cadre", "PA").append("examType", "LDCE").append("day", "2023-11-01"))
+                .append("count", 3).append("scoreSum", 21L).append("accuracySum", 210.0);
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq("results"), eq(Document.class)))
+                .thenReturn(Stream.of(row));
+
+        reportCubeService.backfill();
+
+        ArgumentCaptor<Map<String, Update>> batch = ArgumentCaptor.forClass(Map.class);
+        verify(backfillCoordinator, atLeastOnce()).upsertOnce(eq(ReportCell.class), batch.capture());
+        Update update = batch.getAllValues().get(0).get(ReportCell.idFor("North", "D1", "PA", "LDCE", "2023-11-01"));
+        assertEquals(3L, update.getUpdateObject().get("$inc", Document.class).get("count"));
+        verify(backfillCoordinator).complete(ReportCubeService.BACKFILL);
+    }
+
+    @Test
+    void testIsReady_FollowsTheSharedBackfillMarker() {
+        when(backfillCoordinator.isDone(ReportCubeService.BACKFILL)).thenReturn(false, true);
+
+        assertFalse(reportCubeService.isReady());
+        assertTrue(reportCubeService.isReady());
+        verify(backfillCoordinator, never()).upsertOnce(any(), anyMap());
+    }
+
+    private static Result result(String id, Date createdAt, String circle) {
+        Result result = new Result();
+        result.setId(id);
+        result.setUserId("u1");
+        result.setScore(7);
+        result.setAccuracy(70.0);
+        result.setCreatedAt(createdAt);
+        result.setPostalCircle(circle);
+        result.setDivision("D1");
+        result.setCadre("PA");
+        result.setExamType("LDCE");
+        return result;
+    }
+}
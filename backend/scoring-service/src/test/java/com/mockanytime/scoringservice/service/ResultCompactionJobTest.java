@@ -0,0 +1,79 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.model.Result;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ResultCompactionJobTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoConverter converter;
+
+    @Mock
+    private TestSnapshotService testSnapshotService;
+
+    private ResultCompactionJob job;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(converter.convertToMongoType(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(testSnapshotService.recordContent(eq("t1"), any(), anyList())).thenReturn("snap-1");
+        job = new ResultCompactionJob(mongoTemplate, testSnapshotService);
+    }
+
+    @Test
+    void testCompact_SkipsAndCountsKeysThatAreNotPositions() {
+        Map<String, Result.AnswerDetail> details = new LinkedHashMap<>();
+        details.put("0", detail("Q1", "A"));
+        details.put("-1", detail("Q?", "B"));
+        details.put("abc", detail("Q?", "C"));
+        details.put("99999999", detail("Q?", "D"));
+        details.put("1", detail("Q2", "E"));
+
+        Update update = job.compact(result(details));
+
+        assertNotNull(update);
+        List<?> responses = (List<?>) update.getUpdateObject().get("$set", Document.class).get("responses");
+        assertEquals(2, responses.size());
+        assertEquals(3L, job.status().get("badKeys"));
+    }
+
+    @Test
+    void testCompact_SkipsAResultWithNoUsableKeys() {
+        assertNull(job.compact(result(Map.of("x", detail("Q1", "A")))));
+        verifyNoInteractions(testSnapshotService);
+    }
+
+    private static Result result(Map<String, Result.AnswerDetail> details) {
+        Result result = new Result();
+        result.setId("r1");
+        result.setTestId("t1");
+        result.setDetailedAnswers(details);
+        return result;
+    }
+
+    private static Result.AnswerDetail detail(String text, String answer) {
+        return new Result.AnswerDetail(text, answer, answer, null, true, 1);
+    }
+}
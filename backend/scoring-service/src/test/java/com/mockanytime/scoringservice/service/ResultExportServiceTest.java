@@ -0,0 +1,22 @@
+package com.mockanytime.scoringservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultExportServiceTest {
+
+    @Test
+    void testCsvField_QuotesSeparatorsAndQuotes() {
+        assertEquals("Postal Assistant", ResultExportService.csvField("Postal Assistant"));
+        assertEquals("\"Mock 1, Paper II\"", ResultExportService.csvField("Mock 1, Paper II"));
+        assertEquals("\"The \"\"GDS\"\" exam\"", ResultExportService.csvField("The \"GDS\" exam"));
+        assertEquals("", ResultExportService.csvField(null));
+    }
+
+    @Test
+    void testCsvField_NeutralisesFormulasButNotNumbers() {
+        assertEquals("'=SUM(A1:A9)", ResultExportService.csvField("=SUM(A1:A9)"));
+        assertEquals("-5", ResultExportService.csvField(-5));
+    }
+}
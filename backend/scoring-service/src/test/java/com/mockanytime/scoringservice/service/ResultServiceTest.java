@@ -0,0 +1,83 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.dto.QuestionDto;
+import com.mockanytime.scoringservice.dto.TestDto;
+import com.mockanytime.scoringservice.model.PostSubmitTask;
+import com.mockanytime.scoringservice.model.Result;
+import com.mockanytime.scoringservice.repository.ResultRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ResultServiceTest {
+
+    @Mock
+    private ResultRepository resultRepository;
+
+    @Mock
+    private TestCache testCache;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private RankIndexService rankIndexService;
+
+    @Mock
+    private PostSubmitPipeline postSubmitPipeline;
+
+    @Mock
+    private TestSnapshotService testSnapshotService;
+
+    private final PostSubmitTask task = new PostSubmitTask("r1");
+    private ResultService resultService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        TestDto test = new TestDto("t1", "Mock 1", List.of(
+                new QuestionDto("q1", "What is a PO?", "mcq", List.of("a", "b"), "a", null, 2)), 1, false);
+        when(testCache.getSnapshot("t1")).thenReturn(new TestCache.Snapshot(test, CompiledAnswerKey.compile(test)));
+        when(postSubmitPipeline.prepare(any(Result.class))).thenReturn(task);
+        when(rankIndexService.registerScore(eq("t1"), anyInt())).thenReturn(1);
+        resultService = new ResultService(resultRepository, testCache, mongoTemplate, rankIndexService,
+                postSubmitPipeline, testSnapshotService);
+    }
+
+    @Test
+    void testSubmit_StartsTheTaskOnceSaved() {
+        when(resultRepository.save(any(Result.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Result result = resultService.submitTest("t1", "u1", Map.of("0", "a"));
+
+        assertEquals(2, result.getScore());
+        assertEquals(1, result.getRank());
+        verify(postSubmitPipeline).start(task);
+        verify(rankIndexService, never()).releaseScores(any(), any());
+    }
+
+    @Test
+    void testFailedSave_ReleasesTheScoreAndDiscardsTheTask() {
+        DataAccessResourceFailureException failure = new DataAccessResourceFailureException("Mongo down");
+        when(resultRepository.save(any(Result.class))).thenThrow(failure);
+
+        assertSame(failure, assertThrows(DataAccessResourceFailureException.class,
+                () -> resultService.submitTest("t1", "u1", Map.of("0", "a"))));
+
+        verify(rankIndexService).releaseScores("t1", new int[] { 2 });
+        verify(postSubmitPipeline).discard(List.of(task));
+        verify(postSubmitPipeline, never()).start(any(PostSubmitTask.class));
+    }
+}
@@ -0,0 +1,123 @@
+package com.mockanytime.scoringservice.service;
+
+import com.mockanytime.scoringservice.client.AssessmentClient;
+import com.mockanytime.scoringservice.dto.QuestionDto;
+import com.mockanytime.scoringservice.dto.TestDto;
+import com.mockanytime.scoringservice.model.TestChangeEvent;
+import feign.FeignException;
+import feign.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TestCacheTest {
+
+    @Mock
+    private AssessmentClient assessmentClient;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private TestCache testCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        testCache = new TestCache(assessmentClient, mongoTemplate, 1 << 20, 600);
+    }
+
+    @Test
+    void testPoll_StartsFromTheNewestEventAtStartup() {
+        when(mongoTemplate.findOne(any(Query.class), eq(TestChangeEvent.class))).thenReturn(event(41));
+        when(mongoTemplate.find(any(Query.class), eq(TestChangeEvent.class))).thenReturn(List.of(event(42)));
+
+        testCache.pollChangeEvents();
+
+        assertEquals(42, testCache.lastSeq());
+    }
+
+    @Test
+    void testAdvance_WaitsAtAGapUntilTheMissingEventAppears() {
+        startAt(10);
+
+        testCache.advance(List.of(event(11), event(13)), 1_000);
+        assertEquals(11, testCache.lastSeq());
+
+        testCache.advance(List.of(event(12), event(13)), 2_000);
+        assertEquals(13, testCache.lastSeq());
+    }
+
+    @Test
+    void testAdvance_SkipsAGapThatNeverFills() {
+        startAt(10);
+
+        testCache.advance(List.of(event(12)), 1_000);
+        assertEquals(10, testCache.lastSeq());
+
+        testCache.advance(List.of(event(12)), 1_000 + TestCache.GAP_WAIT_MILLIS);
+        assertEquals(12, testCache.lastSeq());
+    }
+
+    @Test
+    void testOlderVersion_IsFetchedFromTheArchiveOnce() {
+        when(assessmentClient.getTestById("t1")).thenReturn(test(3, "New"));
+        when(assessmentClient.getTestVersion("t1", 2)).thenReturn(test(2, "Old"));
+
+        assertEquals("Old", testCache.getSnapshot("t1", 2).test().questions().get(0).text());
+        assertEquals("Old", testCache.getSnapshot("t1", 2).test().questions().get(0).text());
+        assertEquals("New", testCache.getSnapshot("t1").test().questions().get(0).text());
+
+        verify(assessmentClient, times(1)).getTestVersion("t1", 2);
+        verify(assessmentClient, times(1)).getTestById("t1");
+    }
+
+    @Test
+    void testCurrentVersion_IsNotFetchedAgain() {
+        when(assessmentClient.getTestById("t1")).thenReturn(test(3, "New"));
+
+        assertEquals(3, testCache.getSnapshot("t1", 3).test().version());
+
+        verify(assessmentClient, never()).getTestVersion(any(), anyLong());
+    }
+
+    @Test
+    void testExpiredVersion_FallsBackToTheCurrentOne() {
+        when(assessmentClient.getTestById("t1")).thenReturn(test(3, "New"));
+        when(assessmentClient.getTestVersion("t1", 1)).thenThrow(new FeignException.NotFound("Not Found",
+                Request.create(Request.HttpMethod.GET, "/tests/t1/versions/1", Map.of(), null, null, null),
+                null, null));
+
+        assertEquals(3, testCache.getSnapshot("t1", 1).test().version());
+    }
+
+    private static TestDto test(long version, String text) {
+        return new TestDto("t1", "Mock", List.of(new QuestionDto("q1", text, "mcq", List.of("a", "b"), "a", null, 1)),
+                version, false);
+    }
+
+    private void startAt(long seq) {
+        when(mongoTemplate.findOne(any(Query.class), eq(TestChangeEvent.class))).thenReturn(event(seq));
+        testCache.pollChangeEvents();
+    }
+
+    private static TestChangeEvent event(long seq) {
+        TestChangeEvent event = new TestChangeEvent();
+        event.setSeq(seq);
+        event.setTestId("t1");
+        event.setVersion(seq);
+        event.setType("UPDATED");
+        return event;
+    }
+}
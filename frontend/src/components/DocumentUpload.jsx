@@ -2,11 +2,15 @@ import { useState } from 'react';
 import { Upload, FileText, CheckCircle, AlertCircle, Loader2 } from 'lucide-react';
 import { testService } from '../services/test';
 
+const RECONNECT_DELAY_MS = 2000;
+
 export default function DocumentUpload({ onQuestionsExtracted, topicId, subtopicId }) {
     const [file, setFile] = useState(null);
     const [uploading, setUploading] = useState(false);
     const [error, setError] = useState('');
+    const [warning, setWarning] = useState('');
     const [success, setSuccess] = useState(false);
+    const [extractedCount, setExtractedCount] = useState(0);
 
     const handleFileChange = (e) => {
         const selectedFile = e.target.files[0];
@@ -28,9 +32,25 @@ export default function DocumentUpload({ onQuestionsExtracted, topicId, subtopic
 
         setUploading(true);
         setError('');
+        setWarning('');
+        setExtractedCount(0);
         try {
-            const questions = await testService.extractQuestions(file, topicId, subtopicId);
-            onQuestionsExtracted(questions);
+            // The server works through the document in the background; questions are added as they are found
+            const job = await testService.submitImportJob(file, topicId, subtopicId);
+            let received = 0;
+            // A stream dropped by a proxy or network blip is resumed from the questions already received
+            for (;;) {
+                const { finished, warning: missing } = await testService.streamImportJob(job.id, received, (questions) => {
+                    onQuestionsExtracted(questions);
+                    received += questions.length;
+                    setExtractedCount(received);
+                });
+                if (finished) {
+                    setWarning(missing || '');
+                    break;
+                }
+                await new Promise((resolve) => setTimeout(resolve, RECONNECT_DELAY_MS));
+            }
             setSuccess(true);
             setFile(null);
         } catch (err) {
@@ -89,6 +109,12 @@ export default function DocumentUpload({ onQuestionsExtracted, topicId, subtopic
                     </div>
                 )}
 
+                {warning && (
+                    <div className="flex items-center text-xs text-amber-700 dark:text-amber-400 bg-amber-50 dark:bg-amber-900/20 p-2 rounded">
+                        <AlertCircle size={14} className="mr-2" /> {warning}
+                    </div>
+                )}
+
                 <button
                     onClick={handleUpload}
                     disabled={!file || uploading}
@@ -97,7 +123,11 @@ export default function DocumentUpload({ onQuestionsExtracted, topicId, subtopic
                     {uploading ? (
                         <>
                             <Loader2 className="animate-spin" size={18} />
-                            <span>Processing Document...</span>
+                            <span>
+                                {extractedCount > 0
+                                    ? `Extracted ${extractedCount} questions so far...`
+                                    : 'Processing Document...'}
+                            </span>
                         </>
                     ) : (
                         <>
@@ -1,5 +1,6 @@
 import { useState } from 'react';
 import { Trash2, Plus, Image as ImageIcon, X } from 'lucide-react';
+import { questionImageSrc } from '../services/test';
 
 export default function QuestionBuilder({ questions, setQuestions }) {
     const addQuestion = () => {
@@ -25,6 +26,10 @@ export default function QuestionBuilder({ questions, setQuestions }) {
     const updateQuestion = (index, field, value) => {
         const newQuestions = [...questions];
         newQuestions[index][field] = value;
+        if (field === 'imageUrl') {
+            // A new upload or removal replaces any stored image
+            newQuestions[index].imageHash = null;
+        }
         setQuestions(newQuestions);
     };
 
@@ -77,10 +82,18 @@ export default function QuestionBuilder({ questions, setQuestions }) {
                                     onChange={(e) => updateQuestion(qIndex, 'text', e.target.value)}
                                     placeholder="Enter question text here"
                                 />
+                                {q.duplicateOf && (
+                                    <p className="mt-1 text-xs text-amber-600">
+                                        {q.duplicateOf.testId
+                                            ? `Possible duplicate of a question in "${q.duplicateOf.testTitle}" `
+                                            : 'Possible duplicate of another question in this upload '}
+                                        ({Math.round(q.duplicateOf.similarity * 100)}% similar)
+                                    </p>
+                                )}
                             </div>
                             <div className="md:w-48">
                                 <label className="block text-sm font-medium text-gray-700">Image / Diagram</label>
-                                {!q.imageUrl ? (
+                                {!questionImageSrc(q) ? (
                                     <div className="mt-1 flex items-center">
                                         <label className="cursor-pointer bg-white dark:bg-gray-800 border border-gray-300 dark:border-gray-600 rounded-md py-2 px-3 flex items-center justify-center text-sm text-gray-600 hover:bg-gray-50 dark:hover:bg-gray-700 w-full shadow-sm">
                                             <ImageIcon size={16} className="mr-2" />
@@ -96,7 +109,7 @@ export default function QuestionBuilder({ questions, setQuestions }) {
                                 ) : (
                                     <div className="mt-1 relative group">
                                         <img
-                                            src={q.imageUrl}
+                                            src={questionImageSrc(q)}
                                             alt="Question"
                                             className="h-20 w-full object-contain border rounded-md"
                                         />
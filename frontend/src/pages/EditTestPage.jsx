@@ -20,6 +20,8 @@ export default function EditTestPage() {
         category: 'General',
         difficulty: 'Medium',
         isPremium: false,
+        shuffleQuestions: false,
+        shuffleOptions: false,
         price: 0,
         topicId: '',
         subtopicId: ''
@@ -46,6 +48,8 @@ export default function EditTestPage() {
                         category: test.category || 'General',
                         difficulty: test.difficulty || 'Medium',
                         isPremium: test.isPremium || test.premium || false,
+                        shuffleQuestions: test.shuffleQuestions || false,
+                        shuffleOptions: test.shuffleOptions || false,
                         price: test.price || 0,
                         topicId: test.topicId || '',
                         subtopicId: test.subtopicId || ''
@@ -241,6 +245,30 @@ export default function EditTestPage() {
                                     Premium Test
                                 </label>
                             </div>
+                            <div className="flex items-center space-x-3 mt-6">
+                                <input
+                                    type="checkbox"
+                                    id="shuffleQuestions"
+                                    className="h-5 w-5 text-primary border-gray-300 dark:border-gray-600 rounded focus:ring-primary dark:bg-gray-700"
+                                    checked={testData.shuffleQuestions}
+                                    onChange={(e) => setTestData({ ...testData, shuffleQuestions: e.target.checked })}
+                                />
+                                <label htmlFor="shuffleQuestions" className="text-sm font-bold text-gray-700 dark:text-gray-200">
+                                    Shuffle question order for each student
+                                </label>
+                            </div>
+                            <div className="flex items-center space-x-3 mt-6">
+                                <input
+                                    type="checkbox"
+                                    id="shuffleOptions"
+                                    className="h-5 w-5 text-primary border-gray-300 dark:border-gray-600 rounded focus:ring-primary dark:bg-gray-700"
+                                    checked={testData.shuffleOptions}
+                                    onChange={(e) => setTestData({ ...testData, shuffleOptions: e.target.checked })}
+                                />
+                                <label htmlFor="shuffleOptions" className="text-sm font-bold text-gray-700 dark:text-gray-200">
+                                    Shuffle answer options for each student
+                                </label>
+                            </div>
                         </div>
                     </div>
 
@@ -250,7 +278,7 @@ export default function EditTestPage() {
                             <h2 className="text-lg sm:text-xl font-bold text-gray-800 dark:text-gray-100">Questions ({questions.length})</h2>
                             <div className="w-full md:w-auto">
                                 <DocumentUpload
-                                    onQuestionsExtracted={(newQuestions) => setQuestions([...questions, ...newQuestions])}
+                                    onQuestionsExtracted={(newQuestions) => setQuestions((current) => [...current, ...newQuestions])}
                                     topicId={testData.topicId}
                                     subtopicId={testData.subtopicId}
                                 />
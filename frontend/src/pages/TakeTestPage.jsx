@@ -1,6 +1,6 @@
 import { useState, useEffect, useRef } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
-import { testService } from '../services/test';
+import { testService, questionImageSrc } from '../services/test';
 import { resultService } from '../services/result';
 import { Clock, ChevronLeft, ChevronRight, CheckCircle } from 'lucide-react';
 
@@ -18,10 +18,21 @@ export default function TakeTestPage() {
     const [timeLeft, setTimeLeft] = useState(0);
     const [isSubmitting, setIsSubmitting] = useState(false);
 
+    // Kept for the session so a reload serves the same shuffled order
+    const attemptKey = `attempt:${testId}`;
+    const getAttempt = () => {
+        let attempt = sessionStorage.getItem(attemptKey);
+        if (!attempt) {
+            attempt = String(Date.now());
+            sessionStorage.setItem(attemptKey, attempt);
+        }
+        return Number(attempt);
+    };
+
     useEffect(() => {
         const loadTest = async () => {
             try {
-                const data = await testService.takeTest(testId);
+                const data = await testService.takeTest(testId, getAttempt());
                 setTest(data);
                 // Set initial timer based on duration
                 let minutes = data.durationMinutes || data.duration_minutes || 60;
@@ -71,10 +82,13 @@ export default function TakeTestPage() {
         try {
             const payload = {
                 test_id: testId,
-                answers: answersRef.current // Use Ref for accurate submission
+                answers: answersRef.current, // Use Ref for accurate submission
+                attempt: getAttempt(),
+                version: test.version // Graded against the questions this paper showed
             };
 
             const result = await resultService.submitTest(payload);
+            sessionStorage.removeItem(attemptKey);
             navigate(`/dashboard/result/${result.id}`);
         } catch (err) {
             console.error("Submission failed", err);
@@ -169,10 +183,10 @@ export default function TakeTestPage() {
                     <div className="flex-1">
                         <h2 className="text-xl font-medium text-gray-900 dark:text-white mb-6">{question.text}</h2>
 
-                        {question.imageUrl && (
+                        {questionImageSrc(question) && (
                             <div className="mb-6 rounded-xl overflow-hidden border border-gray-100 dark:border-gray-700 bg-gray-50 dark:bg-gray-700 flex justify-center">
                                 <img
-                                    src={question.imageUrl}
+                                    src={questionImageSrc(question)}
                                     alt="Question Diagram"
                                     className="max-h-[400px] object-contain"
                                 />
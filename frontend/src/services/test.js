@@ -39,8 +39,9 @@ export const testService = {
         return response.data;
     },
 
-    takeTest: async (testId) => {
-        const response = await api.get(`/tests/${testId}/take`);
+    // attempt seeds the server-side shuffle; send the same value with the submission
+    takeTest: async (testId, attempt) => {
+        const response = await api.get(`/tests/${testId}/take`, { params: { attempt } });
         return response.data;
     },
 
@@ -61,5 +62,73 @@ export const testService = {
             }
         });
         return response.data;
+    },
+
+    // Queues the document for import on the server; returns the job to stream
+    submitImportJob: async (file, topicId, subtopicId) => {
+        const formData = new FormData();
+        formData.append('file', file);
+        if (topicId) formData.append('topicId', topicId);
+        if (subtopicId) formData.append('subtopicId', subtopicId);
+
+        const response = await api.post('/tests/import-jobs', formData, {
+            headers: {
+                'Content-Type': 'multipart/form-data'
+            }
+        });
+        return response.data;
+    },
+
+    // Calls onQuestions with each batch (from index `from` on) as the job saves it.
+    // Resolves with { finished, count, warning } once the stream ends; a dropped stream resolves unfinished.
+    // warning is set when parts of the document could not be read.
+    streamImportJob: async (jobId, from, onQuestions) => {
+        let consumed = 0;
+        let finished = false;
+        let count = 0;
+        let warning = null;
+        let failure = null;
+        const handleEvents = (text) => {
+            // Events end with a blank line; a partly received one waits for the next progress event
+            const end = text.lastIndexOf('\n\n');
+            if (end < consumed) return;
+            const events = text.slice(consumed, end).split('\n\n');
+            consumed = end + 2;
+            for (const event of events) {
+                let name = 'message';
+                const data = [];
+                for (const line of event.split('\n')) {
+                    if (line.startsWith('event:')) name = line.slice(6).trim();
+                    else if (line.startsWith('data:')) data.push(line.slice(5));
+                }
+                if (!data.length) continue;
+                const payload = JSON.parse(data.join('\n'));
+                if (name === 'questions') onQuestions(payload);
+                else if (name === 'done') {
+                    finished = true;
+                    count = payload.count;
+                    warning = payload.warning;
+                } else if (name === 'error') failure = payload.message;
+            }
+        };
+
+        try {
+            const response = await api.get(`/tests/import-jobs/${jobId}/stream`, {
+                params: { from },
+                headers: { Accept: 'text/event-stream' },
+                responseType: 'text',
+                onDownloadProgress: (e) => handleEvents(e.event?.target?.responseText ?? '')
+            });
+            handleEvents(response.data);
+        } catch (err) {
+            // Only a connection that dropped without a response is worth resuming
+            if (err.response) throw err;
+        }
+        if (failure) throw new Error(failure);
+        return { finished, count, warning };
     }
 };
+
+// Images uploaded as data URLs are moved to the image store on save
+export const questionImageSrc = (question) =>
+    question.imageHash ? `${api.defaults.baseURL}/tests/images/${question.imageHash}` : question.imageUrl;
@@ -74,7 +74,7 @@ export default function CreateTestScreen({ navigation }) {
                 const file = result.assets[0];
                 setExtracting(true);
                 try {
-                    const extracted = await testService.extractQuestions(
+                    const { questions: extracted, warning } = await testService.extractQuestions(
                         file.uri,
                         file.name,
                         file.mimeType,
@@ -89,9 +89,11 @@ export default function CreateTestScreen({ navigation }) {
                         } else {
                             setQuestions([...questions, ...extracted]);
                         }
-                        Alert.alert('Success', `Extracted ${extracted.length} questions from document!`);
+                        const message = `Extracted ${extracted.length} questions from document!`;
+                        Alert.alert(warning ? 'Partly extracted' : 'Success',
+                            warning ? `${message}\n\n${warning}` : message);
                     } else {
-                        Alert.alert('Notice', 'No questions could be extracted from this document.');
+                        Alert.alert('Notice', warning || 'No questions could be extracted from this document.');
                     }
                 } catch (err) {
                     Alert.alert('Error', 'AI Extraction failed. Please check your document or try again later.');
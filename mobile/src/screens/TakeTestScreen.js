@@ -14,7 +14,7 @@ import {
 import { LinearGradient } from 'expo-linear-gradient';
 import { usePreventScreenCapture } from 'expo-screen-capture';
 import { Ionicons } from '@expo/vector-icons';
-import { testService } from '../services/test';
+import { testService, questionImageSrc } from '../services/test';
 import { resultService } from '../services/result';
 
 export default function TakeTestScreen({ navigation, route }) {
@@ -78,7 +78,8 @@ export default function TakeTestScreen({ navigation, route }) {
             console.log("Submitting test results for testId:", testId);
             const result = await resultService.submitTest({
                 test_id: testId,
-                answers: answers
+                answers: answers,
+                version: test?.version // Graded against the questions this paper showed
             });
             console.log("Submission successful, resultId:", result.id || result._id);
             // Use result.id or result._id depending on what backend returns
@@ -154,9 +155,9 @@ export default function TakeTestScreen({ navigation, route }) {
             <ScrollView contentContainerStyle={styles.questionContainer}>
                 <Text style={styles.questionText}>{question.text}</Text>
 
-                {question.imageUrl && (
+                {questionImageSrc(question) && (
                     <Image
-                        source={{ uri: question.imageUrl }}
+                        source={{ uri: questionImageSrc(question) }}
                         style={styles.questionImage}
                         resizeMode="contain"
                     />
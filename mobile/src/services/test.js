@@ -55,6 +55,12 @@ export const testService = {
                 'Content-Type': 'multipart/form-data'
             }
         });
-        return response.data;
+        // Set when parts of the document could not be read, so some questions may be missing
+        return { questions: response.data, warning: response.headers['x-extraction-warning'] };
     }
 };
+
+// Question images live in the image store and are referenced by content hash;
+// baseURL is read at render time since it may have switched to the backup
+export const questionImageSrc = (question) =>
+    question.imageHash ? `${api.defaults.baseURL}tests/images/${question.imageHash}` : question.imageUrl;